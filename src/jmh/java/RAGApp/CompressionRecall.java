@@ -0,0 +1,342 @@
+package RAGApp;
+
+import io.milvus.param.MetricType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Recall vs. latency vs. size for {@link VectorCompression} settings, to pick one per collection.
+ * Every setting searches the same chunks through {@link CompressedVectorStore}, and its hits
+ * are compared with an exact full-precision cosine search.
+ *
+ * <pre>
+ * mvn -Pbenchmark compile exec:exec -Dbench.main=RAGApp.CompressionRecall \
+ *     -Dbench.args="--docs 50000 --configs none;truncate:256;sq8;binary,rescore:8"
+ * </pre>
+ *
+ * By default the vectors are synthetic and clustered, with variance falling off along the
+ * dimensions like a Matryoshka-trained model, and each setting is searched with an exact
+ * in-process scan over its float, int8 or bit-packed codes, so only the compression is measured.
+ * {@code --model nomic-embed-text --document docs/} embeds real chunks through Ollama instead
+ * (cached under .rag-cache/embeddings), and {@code --milvus localhost:19530} searches real
+ * Milvus collections with the index profile each setting would use.
+ *
+ * Options (defaults in brackets): --docs [20000] synthetic chunks, --queries [500], --top-k [10],
+ * --dim [768], --clusters [200], --seed [1], --configs [see DEFAULT_CONFIGS], --model, --document,
+ * --milvus host:port, --collection [recall_bench] Milvus collection name prefix.
+ */
+public class CompressionRecall {
+    private static final String DEFAULT_CONFIGS = "none;truncate:512;truncate:256;truncate:128;"
+            + "sq8;sq8,rescore:4;binary;binary,rescore:4;binary,rescore:10;truncate:256,binary,rescore:10";
+    private static final int WARMUP_QUERIES = 50;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int docs = Integer.parseInt(options.getOrDefault("docs", "20000"));
+        int queryCount = Integer.parseInt(options.getOrDefault("queries", "500"));
+        int topK = Integer.parseInt(options.getOrDefault("top-k", "10"));
+        int dimension = Integer.parseInt(options.getOrDefault("dim", "768"));
+        int clusters = Integer.parseInt(options.getOrDefault("clusters", "200"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        String[] configs = options.getOrDefault("configs", DEFAULT_CONFIGS).split(";");
+        Random random = new Random(seed);
+
+        Path tempDir = Files.createTempDirectory("rag-recall");
+        Embedder embedder = null;
+        try {
+            List<String> texts = new ArrayList<>();
+            List<float[]> vectors;
+            List<float[]> queries;
+            DiskEmbeddingCache fullVectors;
+
+            if (options.containsKey("model")) {
+                embedder = new Embedder(options.get("model"), dimension, Path.of(".rag-cache", "embeddings"));
+                fullVectors = embedder.getDiskCache();
+                Path document = Path.of(options.getOrDefault("document", "src/main/resources/document.txt"));
+                try (Stream<DocumentChunk> chunks = DocumentLoader.streamDocuments(document, new TextSplitter(128, 16))) {
+                    chunks.limit(docs).forEach(chunk -> texts.add(chunk.getText()));
+                }
+                System.out.println("📡 Embedding " + texts.size() + " chunks with " + options.get("model") + "...");
+                vectors = embedAll(embedder, texts);
+                // A query is the opening words of a random chunk: its own chunk should rank near the top
+                List<String> questions = new ArrayList<>(queryCount);
+                for (int i = 0; i < queryCount; i++) {
+                    String[] words = texts.get(random.nextInt(texts.size())).split("\\s+");
+                    questions.add(String.join(" ", Arrays.copyOf(words, Math.min(words.length, 12))));
+                }
+                queries = embedAll(embedder, questions);
+            } else {
+                fullVectors = new DiskEmbeddingCache(tempDir, "recall", dimension);
+                float[][] centers = new float[clusters][];
+                for (int c = 0; c < clusters; c++) centers[c] = decaying(random, dimension, 1.0);
+                vectors = new ArrayList<>(docs);
+                for (int i = 0; i < docs; i++) {
+                    texts.add("synthetic " + seed + " chunk " + i);
+                    vectors.add(normalize(add(centers[random.nextInt(clusters)], decaying(random, dimension, 0.6))));
+                    fullVectors.put(texts.get(i), vectors.get(i));
+                }
+                queries = new ArrayList<>(queryCount);
+                for (int i = 0; i < queryCount; i++) {
+                    queries.add(normalize(add(vectors.get(random.nextInt(docs)), decaying(random, dimension, 0.4))));
+                }
+            }
+            System.out.println("📐 " + vectors.size() + " chunks, " + queries.size() + " queries, dimension " + dimension
+                    + ", recall@" + topK + " against exact cosine search");
+
+            List<Set<Long>> truth = new ArrayList<>(queries.size());
+            ScanStore exact = new ScanStore(VectorCompression.Quantization.NONE);
+            for (int i = 0; i < vectors.size(); i++) exact.index(i, texts.get(i), vectors.get(i));
+            for (float[] query : queries) truth.add(exact.search(query, topK).keySet());
+
+            System.out.printf("%n%-36s %10s %10s %9s %9s %9s%n", "compression", "bytes/vec", "recall@" + topK,
+                    "p50 ms", "p99 ms", "index s");
+            for (String spec : configs) {
+                VectorCompression compression = VectorCompression.parse(spec);
+                VectorStore store = options.containsKey("milvus")
+                        ? milvusStore(options, compression, dimension)
+                        : new ScanStore(compression.getQuantization());
+                try (CompressedVectorStore compressed = new CompressedVectorStore(store, compression, fullVectors)) {
+                    long indexStart = System.nanoTime();
+                    Set<Long> existing = compressed.existingIds(idsOf(vectors.size()));
+                    for (int i = 0; i < vectors.size(); i++) {
+                        if (!existing.contains((long) i)) compressed.index(i, texts.get(i), vectors.get(i));
+                    }
+                    compressed.checkpoint();
+                    double indexSeconds = (System.nanoTime() - indexStart) / 1e9;
+
+                    for (int i = 0; i < Math.min(WARMUP_QUERIES, queries.size()); i++) compressed.search(queries.get(i), topK);
+                    long[] latencies = new long[queries.size()];
+                    double recall = 0;
+                    for (int i = 0; i < queries.size(); i++) {
+                        long start = System.nanoTime();
+                        Set<Long> hits = compressed.search(queries.get(i), topK).keySet();
+                        latencies[i] = System.nanoTime() - start;
+                        recall += overlap(hits, truth.get(i)) / (double) truth.get(i).size();
+                    }
+                    Arrays.sort(latencies);
+                    System.out.printf("%-36s %10d %10.3f %9.2f %9.2f %9.1f%n", compression,
+                            compression.bytesPerVector(dimension), recall / queries.size(),
+                            percentile(latencies, 50), percentile(latencies, 99), indexSeconds);
+                }
+            }
+        } finally {
+            if (embedder != null) embedder.close();
+            try (Stream<Path> files = Files.walk(tempDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            } catch (IOException e) {
+                System.err.println("⚠ Could not remove " + tempDir + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static VectorStore milvusStore(Map<String, String> options, VectorCompression compression, int dimension) {
+        String[] hostPort = options.get("milvus").split(":");
+        String collection = options.getOrDefault("collection", "recall_bench") + "_" + dimension + compression.collectionSuffix();
+        return new MilvusVectorStore(compression.storedDimension(dimension), hostPort[0], Integer.parseInt(hostPort[1]),
+                collection, compression.indexProfile(IndexProfile.auto(MetricType.COSINE)));
+    }
+
+    private static List<float[]> embedAll(Embedder embedder, List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (int from = 0; from < texts.size(); from += 64) {
+            vectors.addAll(embedder.embedAll(texts.subList(from, Math.min(texts.size(), from + 64))));
+        }
+        return vectors;
+    }
+
+    // Gaussian noise whose scale falls off along the dimensions, so leading dimensions carry most of the signal
+    private static float[] decaying(Random random, int dimension, double scale) {
+        float[] vector = new float[dimension];
+        for (int d = 0; d < dimension; d++) {
+            vector[d] = (float) (random.nextGaussian() * scale / Math.sqrt(1 + d / 32.0));
+        }
+        return vector;
+    }
+
+    private static float[] add(float[] a, float[] b) {
+        float[] sum = new float[a.length];
+        for (int i = 0; i < a.length; i++) sum[i] = a[i] + b[i];
+        return sum;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) norm += (double) v * v;
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) vector[i] *= scale;
+        return vector;
+    }
+
+    private static List<Long> idsOf(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (long i = 0; i < count; i++) ids.add(i);
+        return ids;
+    }
+
+    private static int overlap(Set<Long> hits, Set<Long> truth) {
+        int common = 0;
+        for (Long id : hits) if (truth.contains(id)) common++;
+        return common;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return Double.NaN;
+        int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Expected --option, got " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    /**
+     * Exact scan over float vectors, per-dimension min/max int8 codes (as in Milvus IVF_SQ8)
+     * or sign bits compared by Hamming distance (as in BIN_FLAT). Codes are built on the
+     * first search, once every row is in.
+     */
+    private static final class ScanStore implements VectorStore {
+        private final VectorCompression.Quantization quantization;
+        private final List<float[]> vectors = new ArrayList<>();
+        private final List<Long> ids = new ArrayList<>();
+        private final List<String> texts = new ArrayList<>();
+        private byte[][] sq8Codes;
+        private float[] minimums;
+        private float[] steps;
+        private float[] sq8Norms;
+        private long[][] bits;
+
+        ScanStore(VectorCompression.Quantization quantization) {
+            this.quantization = quantization;
+        }
+
+        @Override
+        public void index(long id, String text, float[] embedding) {
+            ids.add(id);
+            texts.add(text);
+            vectors.add(embedding);
+            sq8Codes = null;
+            bits = null;
+        }
+
+        @Override
+        public Set<Long> existingIds(Collection<Long> candidates) {
+            Set<Long> existing = new HashSet<>(candidates);
+            existing.retainAll(new HashSet<>(ids));
+            return existing;
+        }
+
+        @Override
+        public List<Map<Long, String>> searchBatch(List<float[]> queryEmbeddings, int topK) {
+            encode();
+            List<Map<Long, String>> results = new ArrayList<>(queryEmbeddings.size());
+            for (float[] query : queryEmbeddings) {
+                long[] queryBits = quantization == VectorCompression.Quantization.BINARY ? packed(query) : null;
+                // q·(min + code*step) = q·min + (q*step)·code
+                float[] scaledQuery = null;
+                double queryDotMin = 0;
+                if (quantization == VectorCompression.Quantization.SQ8) {
+                    scaledQuery = new float[query.length];
+                    for (int d = 0; d < query.length; d++) {
+                        scaledQuery[d] = query[d] * steps[d];
+                        queryDotMin += query[d] * minimums[d];
+                    }
+                }
+                float[] scores = new float[vectors.size()];
+                for (int row = 0; row < scores.length; row++) {
+                    switch (quantization) {
+                        case SQ8: scores[row] = sq8Score(scaledQuery, queryDotMin, sq8Codes[row], sq8Norms[row]); break;
+                        case BINARY: scores[row] = -hamming(queryBits, bits[row]); break;
+                        default: scores[row] = FloatVectors.cosine(query, vectors.get(row));
+                    }
+                }
+                results.add(top(scores, topK));
+            }
+            return results;
+        }
+
+        private Map<Long, String> top(float[] scores, int topK) {
+            Integer[] order = new Integer[scores.length];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+            Map<Long, String> top = new LinkedHashMap<>();
+            for (int i = 0; i < Math.min(topK, order.length); i++) top.put(ids.get(order[i]), texts.get(order[i]));
+            return top;
+        }
+
+        private void encode() {
+            if (quantization == VectorCompression.Quantization.SQ8 && sq8Codes == null && !vectors.isEmpty()) {
+                int dimension = vectors.get(0).length;
+                minimums = new float[dimension];
+                steps = new float[dimension];
+                float[] maximums = new float[dimension];
+                Arrays.fill(minimums, Float.MAX_VALUE);
+                Arrays.fill(maximums, -Float.MAX_VALUE);
+                for (float[] vector : vectors) {
+                    for (int d = 0; d < dimension; d++) {
+                        minimums[d] = Math.min(minimums[d], vector[d]);
+                        maximums[d] = Math.max(maximums[d], vector[d]);
+                    }
+                }
+                for (int d = 0; d < dimension; d++) steps[d] = Math.max(1e-12f, (maximums[d] - minimums[d]) / 255f);
+                sq8Codes = new byte[vectors.size()][dimension];
+                sq8Norms = new float[vectors.size()];
+                for (int row = 0; row < vectors.size(); row++) {
+                    double norm = 0;
+                    for (int d = 0; d < dimension; d++) {
+                        sq8Codes[row][d] = (byte) Math.round((vectors.get(row)[d] - minimums[d]) / steps[d]);
+                        float decoded = minimums[d] + (sq8Codes[row][d] & 0xFF) * steps[d];
+                        norm += decoded * decoded;
+                    }
+                    sq8Norms[row] = (float) Math.sqrt(norm);
+                }
+            }
+            if (quantization == VectorCompression.Quantization.BINARY && bits == null) {
+                bits = new long[vectors.size()][];
+                for (int row = 0; row < vectors.size(); row++) bits[row] = packed(vectors.get(row));
+            }
+        }
+
+        private static float sq8Score(float[] scaledQuery, double queryDotMin, byte[] codes, float norm) {
+            float dot = 0;
+            for (int d = 0; d < codes.length; d++) dot += scaledQuery[d] * (codes[d] & 0xFF);
+            return norm == 0 ? 0f : (float) ((queryDotMin + dot) / norm);
+        }
+
+        // The same sign bits Milvus receives, read eight bytes at a time
+        private static long[] packed(float[] vector) {
+            byte[] bytes = FloatVectors.toBits(vector);
+            long[] words = new long[(bytes.length + 7) / 8];
+            for (int i = 0; i < bytes.length; i++) words[i >> 3] |= (bytes[i] & 0xFFL) << ((i & 7) * 8);
+            return words;
+        }
+
+        private static int hamming(long[] a, long[] b) {
+            int distance = 0;
+            for (int i = 0; i < a.length; i++) distance += Long.bitCount(a[i] ^ b[i]);
+            return distance;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package RAGApp;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Chunking throughput of DocumentLoader over an 8 MB file on disk, reading included.
+ * Scores are per character (chars/sec).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentLoaderBenchmark {
+
+    private static final int FILE_CHARS = 8 * 1024 * 1024;
+    private static final String[] WORDS = {
+            "retrieval", "augmented", "generation", "vector", "embedding", "Milvus", "index", "query",
+            "the", "a", "of", "and", "to", "in", "is", "model", "chunk", "context", "E-1042", "latency"
+    };
+
+    private Path file;
+    private TextSplitter splitter;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(11);
+        StringBuilder text = new StringBuilder(FILE_CHARS + 64);
+        while (text.length() < FILE_CHARS) {
+            int words = 6 + random.nextInt(25);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) text.append(' ');
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            text.append(random.nextInt(8) == 0 ? ".\n\n" : ". ");
+        }
+        text.setLength(FILE_CHARS);
+        file = Files.createTempFile("rag-bench", ".txt");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        splitter = new TextSplitter(128, 16);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILE_CHARS)
+    public int loadAllFixedSize() throws IOException {
+        return DocumentLoader.loadDocumentChunks(file.toString(), 500).size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILE_CHARS)
+    public long streamFixedSize() throws IOException {
+        try (Stream<String> chunks = DocumentLoader.streamChunks(file, 500)) {
+            return chunks.count();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILE_CHARS)
+    public long streamBoundaryAware() throws IOException {
+        try (Stream<String> chunks = DocumentLoader.streamChunks(file, splitter)) {
+            return chunks.count();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package RAGApp;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Deterministic stand-in for the Ollama embedding model. Words are hashed into the vector
+ * (feature hashing) and the result normalized, so texts sharing words get similar vectors
+ * and search behaves realistically. An optional per-request and per-text delay models
+ * the model's latency without a GPU or network.
+ */
+public class FakeEmbeddingModel implements EmbeddingModel {
+    private final int dimension;
+    private final long requestNanos;
+    private final long perTextNanos;
+
+    public FakeEmbeddingModel(int dimension) {
+        this(dimension, 0, 0);
+    }
+
+    public FakeEmbeddingModel(int dimension, long requestMicros, long perTextMicros) {
+        this.dimension = dimension;
+        this.requestNanos = TimeUnit.MICROSECONDS.toNanos(requestMicros);
+        this.perTextNanos = TimeUnit.MICROSECONDS.toNanos(perTextMicros);
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+        long delay = requestNanos + perTextNanos * segments.size();
+        if (delay > 0) LockSupport.parkNanos(delay);
+
+        List<Embedding> embeddings = new ArrayList<>(segments.size());
+        for (TextSegment segment : segments) {
+            embeddings.add(Embedding.from(vectorOf(segment.text())));
+        }
+        return Response.from(embeddings);
+    }
+
+    float[] vectorOf(String text) {
+        float[] vector = new float[dimension];
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) continue;
+            int hash = word.hashCode() * 0x9E3779B9;
+            vector[Math.floorMod(hash, dimension)] += (hash & 0x10000) == 0 ? 1 : -1;
+        }
+        double norm = 0;
+        for (float v : vector) norm += v * v;
+        if (norm == 0) {
+            vector[0] = 1;
+            return vector;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) vector[i] *= scale;
+        return vector;
+    }
+}
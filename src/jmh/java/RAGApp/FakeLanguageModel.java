@@ -0,0 +1,64 @@
+package RAGApp;
+
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.language.LanguageModel;
+import dev.langchain4j.model.language.StreamingLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stand-in for the Ollama LLM: answers every prompt with a fixed number of tokens after a
+ * configurable time to first token and per-token delay. Prompt length is reported as
+ * token usage so token metrics stay meaningful.
+ */
+public class FakeLanguageModel implements LanguageModel, StreamingLanguageModel {
+    private final int answerTokens;
+    private final long firstTokenNanos;
+    private final long perTokenNanos;
+
+    public FakeLanguageModel(int answerTokens, long firstTokenMicros, long perTokenMicros) {
+        this.answerTokens = answerTokens;
+        this.firstTokenNanos = TimeUnit.MICROSECONDS.toNanos(firstTokenMicros);
+        this.perTokenNanos = TimeUnit.MICROSECONDS.toNanos(perTokenMicros);
+    }
+
+    @Override
+    public Response<String> generate(String prompt) {
+        StringBuilder answer = new StringBuilder();
+        pause(firstTokenNanos);
+        for (int i = 0; i < answerTokens; i++) {
+            if (i > 0) pause(perTokenNanos);
+            answer.append(token(i));
+        }
+        return Response.from(answer.toString(), usage(prompt));
+    }
+
+    // Tokens are delivered on the calling thread
+    @Override
+    public void generate(String prompt, StreamingResponseHandler<String> handler) {
+        StringBuilder answer = new StringBuilder();
+        pause(firstTokenNanos);
+        for (int i = 0; i < answerTokens; i++) {
+            if (i > 0) pause(perTokenNanos);
+            String token = token(i);
+            answer.append(token);
+            handler.onNext(token);
+        }
+        handler.onComplete(Response.from(answer.toString(), usage(prompt)));
+    }
+
+    private TokenUsage usage(String prompt) {
+        return new TokenUsage(TextSplitter.estimateTokens(prompt, 0, prompt.length()), answerTokens);
+    }
+
+    private static String token(int i) {
+        return i == 0 ? "answer" : " token" + i;
+    }
+
+    private static void pause(long nanos) {
+        if (nanos > 0) LockSupport.parkNanos(nanos);
+    }
+}
@@ -0,0 +1,255 @@
+package RAGApp;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.language.LanguageModel;
+import dev.langchain4j.model.language.StreamingLanguageModel;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.milvus.param.MetricType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Drives RagService end to end with local stand-ins for Ollama (FakeEmbeddingModel,
+ * FakeLanguageModel) and Milvus (in-memory HnswVectorStore), then reports throughput,
+ * latency percentiles and the per-stage timers. Needs no GPU, network or Docker.
+ *
+ * <pre>
+ * mvn -Pbenchmark compile exec:exec -Dbench.main=RAGApp.LoadGenerator \
+ *     -Dbench.args="--questions 5000 --concurrency 64 --mode stream"
+ * </pre>
+ *
+ * Options (defaults in brackets): --docs [20000] chunks indexed, --questions [2000],
+ * --concurrency [32] questions in flight, --mode [async|stream], --repeat [0.1] fraction
+ * of repeated questions, --dim [256], --embed-micros [2000] per embedding request,
+ * --first-token-micros [20000], --token-micros [1000], --answer-tokens [32], --seed [1].
+ *
+ * <p>With {@code --nodes N} the fakes run behind an {@link OllamaPool} of N simulated Ollama
+ * servers, each serving --node-parallel [1] requests at a time; the first --down-nodes [0]
+ * of them refuse every request, to exercise retries and circuit breaking.
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int docs = Integer.parseInt(options.getOrDefault("docs", "20000"));
+        int questions = Integer.parseInt(options.getOrDefault("questions", "2000"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        String mode = options.getOrDefault("mode", "async");
+        double repeat = Double.parseDouble(options.getOrDefault("repeat", "0.1"));
+        int dimension = Integer.parseInt(options.getOrDefault("dim", "256"));
+        long embedMicros = Long.parseLong(options.getOrDefault("embed-micros", "2000"));
+        long firstTokenMicros = Long.parseLong(options.getOrDefault("first-token-micros", "20000"));
+        long tokenMicros = Long.parseLong(options.getOrDefault("token-micros", "1000"));
+        int answerTokens = Integer.parseInt(options.getOrDefault("answer-tokens", "32"));
+        Random random = new Random(Long.parseLong(options.getOrDefault("seed", "1")));
+        int nodes = Integer.parseInt(options.getOrDefault("nodes", "0"));
+        int nodeParallel = Integer.parseInt(options.getOrDefault("node-parallel", "1"));
+        int downNodes = Integer.parseInt(options.getOrDefault("down-nodes", "0"));
+
+        SimpleMeterRegistry warmupMetrics = new SimpleMeterRegistry();
+        Metrics.addRegistry(warmupMetrics);
+        Path cacheDir = Files.createTempDirectory("rag-load");
+        FakeLanguageModel llm = new FakeLanguageModel(answerTokens, firstTokenMicros, tokenMicros);
+        FakeEmbeddingModel embeddingModel = new FakeEmbeddingModel(dimension, embedMicros, 0);
+        OllamaPool pool = null;
+        Embedder embedder;
+        RagLLM ragLlm;
+        if (nodes > 0) {
+            List<String> endpoints = new ArrayList<>(nodes);
+            for (int i = 0; i < nodes; i++) endpoints.add("http://node" + i + ":11434");
+            pool = new OllamaPool(endpoints, nodeParallel, Duration.ofSeconds(60),
+                    new SimulatedNodes(embeddingModel, llm, nodeParallel, downNodes));
+            embedder = new Embedder(pool.embeddingModel("fake"), "fake", cacheDir);
+            ragLlm = new RagLLM(pool, "fake");
+        } else {
+            embedder = new Embedder(embeddingModel, "fake", cacheDir);
+            ragLlm = new RagLLM(llm, llm);
+        }
+        VectorStore store = new HnswVectorStore(dimension, MetricType.COSINE, null);
+        RagService ragService = new RagService(store, embedder, ragLlm, new RagCache(),
+                StageDeadlines.defaults(), ContextBudget.defaults());
+        ragService.setLexicalIndex(new Bm25Index(null));
+
+        try {
+            String[] vocabulary = vocabulary(5000);
+            List<String> chunks = new ArrayList<>(docs);
+            for (int i = 0; i < docs; i++) chunks.add(sentence(random, vocabulary, 80) + " Ref " + i + ".");
+            System.out.println("📚 Indexing " + docs + " synthetic chunks...");
+            System.out.println("✅ " + ragService.indexAll("load", chunks));
+
+            List<String> asked = new ArrayList<>(questions);
+            for (int i = 0; i < questions; i++) {
+                boolean again = !asked.isEmpty() && random.nextDouble() < repeat;
+                asked.add(again ? asked.get(random.nextInt(asked.size())) : sentence(random, vocabulary, 8) + "?");
+            }
+
+            System.out.println("🔥 Warming up...");
+            run(ragService, asked.subList(0, Math.min(200, questions)), concurrency, mode);
+            // Meters keep their identity; swapping the backing registry resets what they report
+            Metrics.removeRegistry(warmupMetrics);
+            Metrics.addRegistry(new SimpleMeterRegistry());
+
+            System.out.println("🚀 " + questions + " questions, " + concurrency + " in flight, mode " + mode);
+            long start = System.nanoTime();
+            Result result = run(ragService, asked, concurrency, mode);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long[] latencies = Arrays.copyOf(result.latencyNanos, result.completed.get());
+            Arrays.sort(latencies);
+            System.out.printf("%nThroughput: %.1f questions/s (%d ok, %d failed in %.1f s)%n",
+                    result.completed.get() / seconds, result.completed.get(), result.failed.get(), seconds);
+            System.out.printf("Latency ms: p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+                    percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99), percentile(latencies, 100));
+            System.out.print("\nStage timings:\n" + RagMetrics.summary());
+        } finally {
+            ragService.close();
+            embedder.close();
+            if (pool != null) pool.close();
+            try (Stream<Path> files = Files.walk(cacheDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            } catch (IOException e) {
+                System.err.println("⚠ Could not remove " + cacheDir + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ollama servers simulated by the fakes: each serves a fixed number of requests at once,
+     * like a GPU with OLLAMA_NUM_PARALLEL set, and a down node refuses every connection.
+     */
+    private static final class SimulatedNodes implements OllamaPool.ModelFactory {
+        private final FakeEmbeddingModel embeddingModel;
+        private final FakeLanguageModel llm;
+        private final int parallel;
+        private final int downNodes;
+        private final Map<String, Semaphore> slots = new ConcurrentHashMap<>();
+
+        SimulatedNodes(FakeEmbeddingModel embeddingModel, FakeLanguageModel llm, int parallel, int downNodes) {
+            this.embeddingModel = embeddingModel;
+            this.llm = llm;
+            this.parallel = parallel;
+            this.downNodes = downNodes;
+        }
+
+        // Endpoints are named http://node<i>:11434
+        private <T> T serve(String baseUrl, Supplier<T> work) {
+            int node = Integer.parseInt(baseUrl.substring(baseUrl.indexOf("node") + 4, baseUrl.lastIndexOf(':')));
+            if (node < downNodes) throw new RuntimeException("Connection refused: " + baseUrl);
+            Semaphore nodeSlots = slots.computeIfAbsent(baseUrl, url -> new Semaphore(parallel));
+            nodeSlots.acquireUninterruptibly();
+            try {
+                return work.get();
+            } finally {
+                nodeSlots.release();
+            }
+        }
+
+        @Override
+        public EmbeddingModel embeddingModel(String baseUrl, String modelName, Duration timeout) {
+            return segments -> serve(baseUrl, () -> embeddingModel.embedAll(segments));
+        }
+
+        @Override
+        public LanguageModel languageModel(String baseUrl, String modelName, Duration timeout) {
+            return prompt -> serve(baseUrl, () -> llm.generate(prompt));
+        }
+
+        @Override
+        public StreamingLanguageModel streamingLanguageModel(String baseUrl, String modelName, Duration timeout) {
+            return (prompt, handler) -> serve(baseUrl, () -> {
+                llm.generate(prompt, handler);
+                return null;
+            });
+        }
+    }
+
+    private static class Result {
+        final long[] latencyNanos;
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        Result(int questions) {
+            latencyNanos = new long[questions];
+        }
+
+        void record(long startNanos, Throwable error) {
+            if (error != null) {
+                failed.incrementAndGet();
+            } else {
+                latencyNanos[completed.getAndIncrement()] = System.nanoTime() - startNanos;
+            }
+        }
+    }
+
+    // Closed loop: a new question starts as soon as one of the in-flight ones completes
+    private static Result run(RagService ragService, List<String> questions, int concurrency, String mode)
+            throws InterruptedException {
+        Result result = new Result(questions.size());
+        Semaphore inFlight = new Semaphore(concurrency);
+        CountDownLatch done = new CountDownLatch(questions.size());
+        for (String question : questions) {
+            inFlight.acquire();
+            long start = System.nanoTime();
+            CompletableFuture<String> answer = mode.equals("stream")
+                    ? ragService.askStreaming(question, token -> { })
+                    : ragService.askAsync(question);
+            answer.whenComplete((text, error) -> {
+                result.record(start, error);
+                inFlight.release();
+                done.countDown();
+            });
+        }
+        done.await();
+        return result;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return Double.NaN;
+        int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    private static String[] vocabulary(int size) {
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) words[i] = "term" + Integer.toString(i, 36);
+        return words;
+    }
+
+    // Roughly Zipf-distributed words, so some terms are common and some rare
+    private static String sentence(Random random, String[] vocabulary, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int w = 0; w < words; w++) {
+            if (w > 0) sentence.append(' ');
+            int rank = (int) Math.min(vocabulary.length - 1, Math.exp(random.nextDouble() * Math.log(vocabulary.length)) - 1);
+            sentence.append(vocabulary[rank]);
+        }
+        return sentence.toString();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Expected --option, got " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,64 @@
+package RAGApp;
+
+import io.milvus.grpc.DataType;
+import io.milvus.grpc.FieldData;
+import io.milvus.grpc.IDs;
+import io.milvus.grpc.LongArray;
+import io.milvus.grpc.ScalarField;
+import io.milvus.grpc.SearchResultData;
+import io.milvus.grpc.StringArray;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping a batched Milvus search response back to one ID → text map per query,
+ * the work done by MilvusVectorStore.searchBatch after the RPC returns.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchResultMappingBenchmark {
+
+    @Param({"1", "64"})
+    public int queries;
+
+    @Param({"12"})
+    public int topK;
+
+    private SearchResultData response;
+
+    @Setup
+    public void setup() {
+        LongArray.Builder ids = LongArray.newBuilder();
+        StringArray.Builder texts = StringArray.newBuilder();
+        SearchResultData.Builder data = SearchResultData.newBuilder()
+                .setNumQueries(queries)
+                .setTopK(topK);
+        for (int q = 0; q < queries; q++) {
+            data.addTopks(topK);
+            for (int k = 0; k < topK; k++) {
+                ids.addData(q * 1000L + k);
+                texts.addData("Chunk text for query " + q + " rank " + k + " ".repeat(400));
+                data.addScores(k * 0.01f);
+            }
+        }
+        response = data
+                .setIds(IDs.newBuilder().setIntId(ids))
+                .addFieldsData(FieldData.newBuilder()
+                        .setFieldName("text")
+                        .setType(DataType.VarChar)
+                        .setScalars(ScalarField.newBuilder().setStringData(texts)))
+                .build();
+    }
+
+    @Benchmark
+    public List<Map<Long, String>> mapResults() {
+        return MilvusVectorStore.mapSearchResults(response, queries);
+    }
+}
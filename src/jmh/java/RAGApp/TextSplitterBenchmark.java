@@ -0,0 +1,64 @@
+package RAGApp;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Split throughput over a large synthetic corpus. Scores are reported per character,
+ * so the throughput figure reads directly as chars/sec.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextSplitterBenchmark {
+
+    private static final int CORPUS_CHARS = 4 * 1024 * 1024;
+    private static final String[] WORDS = {
+            "retrieval", "augmented", "generation", "vector", "embedding", "Milvus", "index", "query",
+            "the", "a", "of", "and", "to", "in", "is", "model", "chunk", "context", "E-1042", "latency"
+    };
+
+    private String corpus;
+    private TextSplitter splitter;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        StringBuilder text = new StringBuilder(CORPUS_CHARS + 64);
+        while (text.length() < CORPUS_CHARS) {
+            int words = 6 + random.nextInt(25);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) text.append(' ');
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            text.append(random.nextInt(8) == 0 ? ".\n\n" : ". ");
+        }
+        text.setLength(CORPUS_CHARS);
+        corpus = text.toString();
+        splitter = new TextSplitter(128, 16);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_CHARS)
+    public void naiveFixedSize(Blackhole bh) {
+        bh.consume(TextSplitter.split(corpus, 500));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_CHARS)
+    public void boundaryAwareOffsets(Blackhole bh) {
+        splitter.split(corpus, (text, start, end) -> bh.consume(end - start));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_CHARS)
+    public void boundaryAwareStrings(Blackhole bh) {
+        bh.consume(splitter.splitToStrings(corpus));
+    }
+}
@@ -0,0 +1,90 @@
+package RAGApp;
+
+import io.milvus.param.dml.InsertParam;
+import io.milvus.param.dml.SearchParam;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building Milvus insert/search requests from boxed per-row copies (the old
+ * index/search path) against keeping float[] until the request is built.
+ * Run with {@code -prof gc} to see allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorConversionBenchmark {
+
+    @Param({"768"})
+    public int dimension;
+
+    @Param({"50"})
+    public int batchSize;
+
+    private List<float[]> vectors;
+    private List<Long> ids;
+    private List<String> texts;
+    private float[] query;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        vectors = new ArrayList<>(batchSize);
+        ids = new ArrayList<>(batchSize);
+        texts = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            float[] vector = new float[dimension];
+            for (int d = 0; d < dimension; d++) vector[d] = random.nextFloat();
+            vectors.add(vector);
+            ids.add((long) i);
+            texts.add("chunk " + i);
+        }
+        query = vectors.get(0);
+    }
+
+    @Benchmark
+    public InsertParam insertBoxedPerRow() {
+        // Old path: every row was copied into a growing ArrayList<Float> as soon as it was buffered
+        List<List<Float>> embeddings = new ArrayList<>();
+        for (float[] vector : vectors) {
+            List<Float> embedding = new ArrayList<>();
+            for (float f : vector) embedding.add(f);
+            embeddings.add(embedding);
+        }
+        List<InsertParam.Field> fields = new ArrayList<>();
+        fields.add(new InsertParam.Field("id", ids));
+        fields.add(new InsertParam.Field("embedding", embeddings));
+        fields.add(new InsertParam.Field("text", texts));
+        return InsertParam.newBuilder().withCollectionName("bench").withFields(fields).build();
+    }
+
+    @Benchmark
+    public InsertParam insertPrimitive() {
+        return MilvusVectorStore.buildInsertParam("bench", ids, vectors, texts);
+    }
+
+    @Benchmark
+    public SearchParam searchBoxed() {
+        List<Float> vector = new ArrayList<>();
+        for (float f : query) vector.add(f);
+        return SearchParam.newBuilder()
+                .withCollectionName("bench")
+                .withTopK(3)
+                .withVectors(Collections.singletonList(vector))
+                .withVectorFieldName("embedding")
+                .build();
+    }
+
+    @Benchmark
+    public SearchParam searchPrimitive() {
+        return MilvusVectorStore.buildSearchParam("bench", IndexProfile.defaultProfile(), query, 3);
+    }
+}
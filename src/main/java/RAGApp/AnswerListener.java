@@ -0,0 +1,17 @@
+package RAGApp;
+
+/**
+ * Receives a streamed answer from {@link RagService#askStreaming}.
+ * Callbacks arrive one at a time, on the model client's thread or, for cached answers and
+ * retrieval errors, on a pipeline stage thread.
+ */
+public interface AnswerListener {
+
+    void onToken(String token);
+
+    default void onComplete(String answer, AnswerTiming timing) {
+    }
+
+    default void onError(Throwable error) {
+    }
+}
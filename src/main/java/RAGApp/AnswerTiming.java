@@ -0,0 +1,34 @@
+package RAGApp;
+
+/**
+ * Latency of one streamed answer, measured from the start of the ask call.
+ * Time to first token is what users perceive; total time is when the answer is complete.
+ */
+public class AnswerTiming {
+    private final long timeToFirstTokenMillis;
+    private final long totalMillis;
+    private final int tokens;
+
+    public AnswerTiming(long timeToFirstTokenMillis, long totalMillis, int tokens) {
+        this.timeToFirstTokenMillis = timeToFirstTokenMillis;
+        this.totalMillis = totalMillis;
+        this.tokens = tokens;
+    }
+
+    public long getTimeToFirstTokenMillis() {
+        return timeToFirstTokenMillis;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public int getTokens() {
+        return tokens;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("first token %d ms, total %d ms, %d tokens", timeToFirstTokenMillis, totalMillis, tokens);
+    }
+}
@@ -0,0 +1,471 @@
+package RAGApp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory BM25 inverted index over chunk text, for the exact-term queries (error codes,
+ * product names, IDs) that embeddings tend to miss.
+ *
+ * <p>Chunks get dense internal doc numbers in insertion order, so every postings list is
+ * sorted by construction. Each list keeps its newest postings as primitive ints; once
+ * {@value #BLOCK_SIZE} have accumulated they are compressed into a block of varint
+ * doc-number gaps and term frequencies. A query scores term-at-a-time into a per-thread
+ * accumulator and keeps the best hits in a small heap. Removed chunks keep their doc numbers
+ * and postings but are marked in a bitset and skipped while scoring.
+ *
+ * <p>Like {@link HnswVectorStore}, the index loads its snapshot on construction if one
+ * exists and saves it on {@link #checkpoint()} and {@link #close()}.
+ */
+public class Bm25Index implements LexicalSearch, AutoCloseable {
+    private static final int MAGIC = 0x424D3235; // "BM25"
+    private static final int VERSION = 2;
+    private static final int BLOCK_SIZE = 128;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private final Path snapshotPath;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Long, Integer> docsById = new HashMap<>();
+    private final BitSet removed = new BitSet();
+    private final ThreadLocal<Accumulator> accumulators = ThreadLocal.withInitial(Accumulator::new);
+
+    private long[] chunkIds = new long[INITIAL_CAPACITY];
+    private int[] docLengths = new int[INITIAL_CAPACITY];
+    private String[] texts = new String[INITIAL_CAPACITY];
+    private int docCount;
+    private long totalLength;
+
+    /**
+     * @param snapshotPath File to load from and save to, or {@code null} for a purely in-memory index
+     */
+    public Bm25Index(Path snapshotPath) {
+        this.snapshotPath = snapshotPath;
+        if (snapshotPath != null && Files.exists(snapshotPath)) {
+            load(snapshotPath);
+            System.out.println("🔤 Lexical index opened with " + docsById.size() + " chunks, " + postings.size() + " terms");
+        }
+    }
+
+    /**
+     * Adds a chunk; chunks already in the index are ignored.
+     */
+    public void add(long id, String text) {
+        lock.writeLock().lock();
+        try {
+            if (docsById.containsKey(id)) return;
+            int doc = docCount;
+            if (doc == chunkIds.length) grow();
+
+            Map<String, Integer> termFrequencies = new HashMap<>();
+            int length = tokenize(text, term -> termFrequencies.merge(term, 1, Integer::sum));
+            for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new Postings()).add(doc, entry.getValue());
+            }
+
+            chunkIds[doc] = id;
+            docLengths[doc] = length;
+            texts[doc] = text;
+            docsById.put(id, doc);
+            totalLength += length;
+            docCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes chunks, e.g. those an edited document no longer has; unknown IDs are ignored.
+     * A removed chunk can be added again later.
+     */
+    public void remove(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                Integer doc = docsById.remove(id);
+                if (doc == null) continue;
+                removed.set(doc);
+                totalLength -= docLengths[doc];
+                texts[doc] = "";
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return docsById.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Long, String> search(String query, int topK) {
+        lock.readLock().lock();
+        try {
+            int live = docsById.size();
+            if (live == 0 || topK <= 0) return new LinkedHashMap<>();
+
+            Accumulator acc = accumulators.get();
+            acc.reset(docCount);
+            float avgLength = (float) totalLength / live;
+            boolean anyRemoved = !removed.isEmpty();
+            Map<String, Boolean> queryTerms = new LinkedHashMap<>();
+            tokenize(query, term -> queryTerms.put(term, Boolean.TRUE));
+
+            for (String term : queryTerms.keySet()) {
+                Postings list = postings.get(term);
+                if (list == null) continue;
+                // Document frequencies still count removed chunks, which only matters after many removals
+                float idf = (float) Math.log(1 + (live - list.count + 0.5) / (list.count + 0.5));
+                list.forEach((doc, tf) -> {
+                    if (anyRemoved && removed.get(doc)) return;
+                    float norm = K1 * (1 - B + B * docLengths[doc] / avgLength);
+                    acc.add(doc, idf * tf * (K1 + 1) / (tf + norm));
+                });
+            }
+            return acc.top(topK, chunkIds, texts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void checkpoint() {
+        if (snapshotPath != null) save(snapshotPath);
+    }
+
+    @Override
+    public void close() {
+        checkpoint();
+    }
+
+    /**
+     * Writes the index to a file and atomically replaces the previous snapshot.
+     */
+    public void save(Path path) {
+        lock.readLock().lock();
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(docCount);
+                for (int doc = 0; doc < docCount; doc++) {
+                    out.writeLong(chunkIds[doc]);
+                    out.writeInt(docLengths[doc]);
+                    byte[] text = texts[doc].getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(text.length);
+                    out.write(text);
+                }
+                out.writeInt(postings.size());
+                for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    entry.getValue().write(out);
+                }
+                out.writeInt(removed.cardinality());
+                for (int doc = removed.nextSetBit(0); doc >= 0; doc = removed.nextSetBit(doc + 1)) {
+                    out.writeInt(doc);
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save lexical index to " + path, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void load(Path path) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            // Version 1 snapshots have no removed chunks and are still readable
+            int version;
+            if (in.readInt() != MAGIC || (version = in.readInt()) < 1 || version > VERSION) {
+                throw new IllegalStateException("Not a lexical index snapshot: " + path);
+            }
+            int count = in.readInt();
+            int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, count)) * 2);
+            chunkIds = new long[capacity];
+            docLengths = new int[capacity];
+            texts = new String[capacity];
+            for (int doc = 0; doc < count; doc++) {
+                chunkIds[doc] = in.readLong();
+                docLengths[doc] = in.readInt();
+                byte[] text = new byte[in.readInt()];
+                in.readFully(text);
+                texts[doc] = new String(text, StandardCharsets.UTF_8);
+                docsById.put(chunkIds[doc], doc);
+                totalLength += docLengths[doc];
+            }
+            docCount = count;
+            int terms = in.readInt();
+            for (int i = 0; i < terms; i++) {
+                String term = in.readUTF();
+                postings.put(term, Postings.read(in));
+            }
+            int removedCount = version == 1 ? 0 : in.readInt();
+            for (int i = 0; i < removedCount; i++) {
+                int doc = in.readInt();
+                removed.set(doc);
+                // The same ID may have been added again under a later doc number
+                docsById.remove(chunkIds[doc], doc);
+                totalLength -= docLengths[doc];
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load lexical index from " + path, e);
+        }
+    }
+
+    private void grow() {
+        int capacity = chunkIds.length * 2;
+        chunkIds = Arrays.copyOf(chunkIds, capacity);
+        docLengths = Arrays.copyOf(docLengths, capacity);
+        texts = Arrays.copyOf(texts, capacity);
+    }
+
+    private interface TermConsumer {
+        void accept(String term);
+    }
+
+    // Lowercased runs of letters and digits; returns the number of terms
+    private static int tokenize(String text, TermConsumer consumer) {
+        int terms = 0;
+        int start = -1;
+        int length = text.length();
+        for (int pos = 0; pos <= length; pos++) {
+            boolean wordChar = pos < length && Character.isLetterOrDigit(text.charAt(pos));
+            if (wordChar && start < 0) {
+                start = pos;
+            } else if (!wordChar && start >= 0) {
+                consumer.accept(text.substring(start, pos).toLowerCase(Locale.ROOT));
+                terms++;
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private interface PostingConsumer {
+        void accept(int doc, int termFrequency);
+    }
+
+    /**
+     * One term's postings: full blocks as varint-encoded (doc gap, tf) pairs in a byte
+     * array, plus the open block as primitive ints. Gaps restart at each block boundary
+     * so blocks decode independently.
+     */
+    private static final class Postings {
+        private byte[] blocks = new byte[0];
+        private int blockBytes;
+        private int[] openDocs = new int[4];
+        private int[] openTfs = new int[4];
+        private int openSize;
+        private int count;
+
+        void add(int doc, int termFrequency) {
+            if (openSize == openDocs.length) {
+                openDocs = Arrays.copyOf(openDocs, openSize * 2);
+                openTfs = Arrays.copyOf(openTfs, openSize * 2);
+            }
+            openDocs[openSize] = doc;
+            openTfs[openSize] = termFrequency;
+            openSize++;
+            count++;
+            if (openSize == BLOCK_SIZE) sealBlock();
+        }
+
+        private void sealBlock() {
+            ensureBlockCapacity(blockBytes + openSize * 10);
+            int previous = 0;
+            for (int i = 0; i < openSize; i++) {
+                blockBytes = writeVarint(blocks, blockBytes, openDocs[i] - previous);
+                blockBytes = writeVarint(blocks, blockBytes, openTfs[i]);
+                previous = openDocs[i];
+            }
+            openSize = 0;
+        }
+
+        void forEach(PostingConsumer consumer) {
+            int pos = 0;
+            int inBlock = 0;
+            int doc = 0;
+            while (pos < blockBytes) {
+                if (inBlock == BLOCK_SIZE) {
+                    inBlock = 0;
+                    doc = 0;
+                }
+                int gap = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = blocks[pos++];
+                    gap |= (b & 0x7F) << shift;
+                    if (b >= 0) break;
+                }
+                int tf = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = blocks[pos++];
+                    tf |= (b & 0x7F) << shift;
+                    if (b >= 0) break;
+                }
+                doc += gap;
+                inBlock++;
+                consumer.accept(doc, tf);
+            }
+            for (int i = 0; i < openSize; i++) consumer.accept(openDocs[i], openTfs[i]);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(count);
+            out.writeInt(blockBytes);
+            out.write(blocks, 0, blockBytes);
+            out.writeInt(openSize);
+            for (int i = 0; i < openSize; i++) {
+                out.writeInt(openDocs[i]);
+                out.writeInt(openTfs[i]);
+            }
+        }
+
+        static Postings read(DataInputStream in) throws IOException {
+            Postings list = new Postings();
+            list.count = in.readInt();
+            list.blockBytes = in.readInt();
+            list.blocks = new byte[list.blockBytes];
+            in.readFully(list.blocks);
+            list.openSize = in.readInt();
+            int capacity = Math.max(4, Integer.highestOneBit(Math.max(1, list.openSize)) * 2);
+            list.openDocs = new int[capacity];
+            list.openTfs = new int[capacity];
+            for (int i = 0; i < list.openSize; i++) {
+                list.openDocs[i] = in.readInt();
+                list.openTfs[i] = in.readInt();
+            }
+            return list;
+        }
+
+        private void ensureBlockCapacity(int needed) {
+            if (needed > blocks.length) {
+                blocks = Arrays.copyOf(blocks, Math.max(needed, blocks.length * 2));
+            }
+        }
+
+        private static int writeVarint(byte[] target, int pos, int value) {
+            while ((value & ~0x7F) != 0) {
+                target[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            target[pos++] = (byte) value;
+            return pos;
+        }
+    }
+
+    /**
+     * Per-thread score accumulator: a dense score array sized to the corpus, cleared
+     * through the list of docs actually touched by the last query.
+     */
+    private static final class Accumulator {
+        private float[] scores = new float[0];
+        private int[] touched = new int[64];
+        private int touchedSize;
+
+        void reset(int docCount) {
+            for (int i = 0; i < touchedSize; i++) {
+                if (touched[i] < scores.length) scores[touched[i]] = 0;
+            }
+            touchedSize = 0;
+            if (scores.length < docCount) scores = new float[Math.max(docCount, scores.length * 2)];
+        }
+
+        void add(int doc, float score) {
+            if (scores[doc] == 0) {
+                if (touchedSize == touched.length) touched = Arrays.copyOf(touched, touchedSize * 2);
+                touched[touchedSize++] = doc;
+            }
+            scores[doc] += score;
+        }
+
+        // Best topK docs by score, highest first, through a min-heap of doc numbers
+        Map<Long, String> top(int topK, long[] chunkIds, String[] texts) {
+            int[] heap = new int[Math.min(topK, touchedSize)];
+            int heapSize = 0;
+            for (int i = 0; i < touchedSize; i++) {
+                int doc = touched[i];
+                if (heapSize < heap.length) {
+                    heap[heapSize] = doc;
+                    siftUp(heap, heapSize++);
+                } else if (scores[doc] > scores[heap[0]]) {
+                    heap[0] = doc;
+                    siftDown(heap, heapSize);
+                }
+            }
+            int[] ordered = new int[heapSize];
+            for (int i = heapSize - 1; i >= 0; i--) {
+                ordered[i] = heap[0];
+                heap[0] = heap[--heapSize];
+                siftDown(heap, heapSize);
+            }
+            Map<Long, String> results = new LinkedHashMap<>();
+            for (int doc : ordered) results.put(chunkIds[doc], texts[doc]);
+            return results;
+        }
+
+        private void siftUp(int[] heap, int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[heap[parent]] <= scores[heap[i]]) break;
+                swap(heap, parent, i);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int[] heap, int size) {
+            int i = 0;
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && scores[heap[left]] < scores[heap[smallest]]) smallest = left;
+                if (right < size && scores[heap[right]] < scores[heap[smallest]]) smallest = right;
+                if (smallest == i) return;
+                swap(heap, i, smallest);
+                i = smallest;
+            }
+        }
+
+        private static void swap(int[] heap, int a, int b) {
+            int tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package RAGApp;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content-addressed primary keys for chunks.
+ * The same source and text always map to the same ID, so re-indexing is idempotent
+ * across restarts and IDs never collide with rows written by earlier runs.
+ */
+public final class ChunkIds {
+
+    private ChunkIds() {
+    }
+
+    /**
+     * Derives a stable, non-negative 64-bit ID from the first 8 bytes of SHA-256(source, text).
+     *
+     * @param source Identifier of the originating document (may be empty)
+     * @param text   Chunk text
+     * @return The chunk ID
+     */
+    public static long of(String source, String text) {
+        return of("", source, text);
+    }
+
+    /**
+     * Same as {@link #of(String, String)} scoped to a tenant; an empty tenant gives the unscoped ID.
+     */
+    public static long of(String tenant, String source, String text) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        if (!tenant.isEmpty()) {
+            digest.update(tenant.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        digest.update(source.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        byte[] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+
+        long id = 0;
+        for (int i = 0; i < 8; i++) {
+            id = (id << 8) | (hash[i] & 0xFF);
+        }
+        return id & Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,118 @@
+package RAGApp;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Where a chunk came from: its tenant, document, page and section, and the document's timestamp.
+ * Stored alongside the chunk so answers can cite it without a second lookup, and so searches
+ * can be filtered by it (see {@link SearchFilter}).
+ */
+public class ChunkMetadata {
+    public static final ChunkMetadata NONE = new ChunkMetadata("", 0, "");
+    // Size of the tenant partition-key column in Milvus, in UTF-8 bytes
+    public static final int MAX_TENANT_BYTES = 256;
+
+    private final String tenant;
+    private final String source;
+    private final int page;
+    private final String section;
+    private final long timestamp;
+
+    /**
+     * @param source  Identifier of the originating document, usually its path
+     * @param page    1-based page number, or 0 when the document has no pages
+     * @param section Nearest heading or bookmark title, or empty
+     */
+    public ChunkMetadata(String source, int page, String section) {
+        this("", source, page, section, 0);
+    }
+
+    /**
+     * @param tenant    Owner of the chunk, or empty for a single-tenant deployment
+     * @param timestamp Document timestamp in epoch millis (last modified, or when indexed), or 0 if unknown
+     * @throws IllegalArgumentException If the tenant is longer than {@link #MAX_TENANT_BYTES}; it is
+     *                                  never shortened, since two tenants could then collide
+     */
+    public ChunkMetadata(String tenant, String source, int page, String section, long timestamp) {
+        if (tenant != null && tenant.getBytes(StandardCharsets.UTF_8).length > MAX_TENANT_BYTES) {
+            throw new IllegalArgumentException("Tenant is longer than " + MAX_TENANT_BYTES + " bytes");
+        }
+        this.tenant = tenant == null ? "" : tenant;
+        this.source = source == null ? "" : source;
+        this.page = Math.max(0, page);
+        this.section = section == null ? "" : section;
+        this.timestamp = timestamp;
+    }
+
+    public static ChunkMetadata of(String source) {
+        return source == null || source.isEmpty() ? NONE : new ChunkMetadata(source, 0, "");
+    }
+
+    // The file's path as source and its last-modified time as timestamp
+    public static ChunkMetadata forFile(Path file) throws IOException {
+        return new ChunkMetadata("", file.toString(), 0, "", Files.getLastModifiedTime(file).toMillis());
+    }
+
+    public ChunkMetadata withTenant(String tenant) {
+        return new ChunkMetadata(tenant, source, page, section, timestamp);
+    }
+
+    public ChunkMetadata withPage(int page, String section) {
+        return new ChunkMetadata(tenant, source, page, section, timestamp);
+    }
+
+    public ChunkMetadata withTimestamp(long timestamp) {
+        return new ChunkMetadata(tenant, source, page, section, timestamp);
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public String getSection() {
+        return section;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isEmpty() {
+        return tenant.isEmpty() && source.isEmpty() && page == 0 && section.isEmpty() && timestamp == 0;
+    }
+
+    // Short human-readable reference, e.g. "report.pdf, p. 4, Results"
+    public String toCitation() {
+        StringBuilder citation = new StringBuilder();
+        if (!source.isEmpty()) {
+            Path name = Paths.get(source).getFileName();
+            citation.append(name == null ? source : name.toString());
+        }
+        if (page > 0) {
+            if (citation.length() > 0) citation.append(", ");
+            citation.append("p. ").append(page);
+        }
+        if (!section.isEmpty()) {
+            if (citation.length() > 0) citation.append(", ");
+            citation.append(section);
+        }
+        return citation.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toCitation();
+    }
+}
@@ -0,0 +1,175 @@
+package RAGApp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Puts a {@link VectorCompression} stage in front of another store: vectors are truncated
+ * before they are stored or searched (the wrapped store quantizes them if its index profile
+ * says so), and searches fetch extra candidates that are reordered by full-precision cosine
+ * similarity.
+ *
+ * <p>The full-precision vectors come from the {@link DiskEmbeddingCache}, which already holds
+ * every embedding the {@link Embedder} produced, keyed by chunk text. Candidates whose
+ * vector isn't in the cache keep their compressed-search order behind the rescored ones.
+ */
+public class CompressedVectorStore implements VectorStore {
+    private final VectorStore delegate;
+    private final VectorCompression compression;
+    private final DiskEmbeddingCache fullVectors;
+    private final ThrottledLog missLog = new ThrottledLog(10_000);
+
+    /**
+     * @param delegate    Store for the compressed vectors, created with the truncated dimension
+     * @param fullVectors Full-precision vectors by text; {@code null} disables rescoring
+     */
+    public CompressedVectorStore(VectorStore delegate, VectorCompression compression, DiskEmbeddingCache fullVectors) {
+        this.delegate = delegate;
+        this.compression = compression;
+        this.fullVectors = fullVectors;
+        if (fullVectors == null && compression.getRescoreFactor() > 1) {
+            System.out.println("⚠️ No embedding cache configured; compressed search results won't be rescored");
+        }
+        System.out.println("🗜️ Vector compression: " + compression);
+    }
+
+    public VectorCompression getCompression() {
+        return compression;
+    }
+
+    @Override
+    public void index(long id, String text, float[] embedding) {
+        index(id, text, embedding, ChunkMetadata.NONE);
+    }
+
+    @Override
+    public void index(long id, String text, float[] embedding, ChunkMetadata metadata) {
+        keepFullVector(text, embedding);
+        delegate.index(id, text, compression.truncate(embedding), metadata);
+    }
+
+    @Override
+    public CompletableFuture<Long> indexAsync(long id, String text, float[] embedding) {
+        return indexAsync(id, text, embedding, ChunkMetadata.NONE);
+    }
+
+    @Override
+    public CompletableFuture<Long> indexAsync(long id, String text, float[] embedding, ChunkMetadata metadata) {
+        keepFullVector(text, embedding);
+        return delegate.indexAsync(id, text, compression.truncate(embedding), metadata);
+    }
+
+    // Usually a no-op: the Embedder has already cached the vector under the same text
+    private void keepFullVector(String text, float[] embedding) {
+        if (fullVectors != null && rescoring()) fullVectors.put(text, embedding);
+    }
+
+    @Override
+    public List<Map<Long, String>> searchBatch(List<float[]> queryEmbeddings, int topK) {
+        return searchBatch(queryEmbeddings, topK, SearchFilter.NONE);
+    }
+
+    @Override
+    public List<Map<Long, String>> searchBatch(List<float[]> queryEmbeddings, int topK, SearchFilter filter) {
+        List<float[]> truncated = new ArrayList<>(queryEmbeddings.size());
+        for (float[] query : queryEmbeddings) {
+            truncated.add(compression.truncate(query));
+        }
+        if (!rescoring()) {
+            return delegate.searchBatch(truncated, topK, filter);
+        }
+
+        List<Map<Long, String>> candidates = delegate.searchBatch(truncated, topK * compression.getRescoreFactor(), filter);
+        List<Map<Long, String>> results = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            results.add(rescore(queryEmbeddings.get(i), candidates.get(i), topK));
+        }
+        return results;
+    }
+
+    private boolean rescoring() {
+        return fullVectors != null && compression.getRescoreFactor() > 1;
+    }
+
+    private Map<Long, String> rescore(float[] query, Map<Long, String> candidates, int topK) {
+        List<Map.Entry<Long, String>> entries = new ArrayList<>(candidates.entrySet());
+        float[] scores = new float[entries.size()];
+        int missing = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            float[] full = fullVectors.get(entries.get(i).getValue());
+            if (full == null || full.length != query.length) {
+                scores[i] = Float.NEGATIVE_INFINITY;
+                missing++;
+            } else {
+                scores[i] = FloatVectors.cosine(query, full);
+            }
+        }
+        if (missing > 0 && missLog.shouldLog()) {
+            System.out.println("⚠️ " + missing + " of " + entries.size() + " candidates had no full-precision vector to rescore");
+        }
+        return topByScore(entries, scores, topK);
+    }
+
+    /**
+     * Orders candidates by descending score, keeping the incoming order for ties (including
+     * unscored candidates), and keeps the best {@code topK}.
+     */
+    static Map<Long, String> topByScore(List<Map.Entry<Long, String>> candidates, float[] scores, int topK) {
+        List<Integer> order = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) order.add(i);
+        order.sort(Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+
+        Map<Long, String> top = new LinkedHashMap<>();
+        for (int i = 0; i < order.size() && top.size() < topK; i++) {
+            Map.Entry<Long, String> entry = candidates.get(order.get(i));
+            top.put(entry.getKey(), entry.getValue());
+        }
+        return top;
+    }
+
+    @Override
+    public Set<Long> existingIds(Collection<Long> ids) {
+        return delegate.existingIds(ids);
+    }
+
+    @Override
+    public Set<Long> existingIds(Collection<Long> ids, SearchFilter filter) {
+        return delegate.existingIds(ids, filter);
+    }
+
+    @Override
+    public ChunkMetadata metadata(long id) {
+        return delegate.metadata(id);
+    }
+
+    @Override
+    public Set<Long> idsForSources(String tenant, Collection<String> sources) {
+        return delegate.idsForSources(tenant, sources);
+    }
+
+    @Override
+    public void delete(Collection<Long> ids) {
+        delegate.delete(ids);
+    }
+
+    @Override
+    public void awaitPendingWrites() {
+        delegate.awaitPendingWrites();
+    }
+
+    @Override
+    public void checkpoint() {
+        delegate.checkpoint();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
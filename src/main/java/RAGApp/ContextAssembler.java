@@ -0,0 +1,227 @@
+package RAGApp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+/**
+ * Turns over-fetched search hits into a compact prompt context:
+ * near-duplicate chunks are dropped by comparing their embeddings, the rest are reranked
+ * by query similarity plus keyword overlap, and packed greedily into the token budget.
+ * The last chunk that does not fit is cut at a sentence boundary.
+ * Embeddings are only looked up in the embedder's disk cache, which holds every chunk
+ * indexed through it; this stage never calls the model. A chunk whose vector isn't cached
+ * is never treated as a duplicate, and is ranked by its search position instead.
+ * Savings are measured against the prompt this replaced: the first {@value #BASELINE_CHUNKS}
+ * hits, in search order, each with a plain ID header.
+ * When chunk metadata is available, each chunk's header cites its source, page and section.
+ */
+public class ContextAssembler {
+    // Weight of the keyword-overlap term relative to cosine similarity when reranking
+    private static final double TERM_OVERLAP_WEIGHT = 0.2;
+    // Don't bother squeezing in a truncated chunk smaller than this
+    private static final int MIN_PARTIAL_TOKENS = 24;
+    // Chunks the prompt held before context packing
+    static final int BASELINE_CHUNKS = 3;
+
+    private final Embedder embedder;
+    private final ContextBudget budget;
+    private final LongFunction<ChunkMetadata> metadata;
+
+    public ContextAssembler(Embedder embedder, ContextBudget budget) {
+        this(embedder, budget, id -> null);
+    }
+
+    /**
+     * @param metadata Looks up a chunk's metadata by ID, returning {@code null} if unknown
+     */
+    public ContextAssembler(Embedder embedder, ContextBudget budget, LongFunction<ChunkMetadata> metadata) {
+        this.embedder = embedder;
+        this.budget = budget;
+        this.metadata = metadata;
+    }
+
+    public ContextBudget getBudget() {
+        return budget;
+    }
+
+    public PackedContext assemble(String question, float[] queryEmbedding, Map<Long, String> hits) {
+        List<Long> ids = new ArrayList<>(hits.size());
+        List<String> texts = new ArrayList<>(hits.size());
+        List<String> headers = new ArrayList<>(hits.size());
+        int baselineTokens = 0;
+        for (Map.Entry<Long, String> hit : hits.entrySet()) {
+            String text = hit.getValue();
+            if (text == null || text.isBlank()) continue;
+            String header = header(hit.getKey(), metadata.apply(hit.getKey()));
+            if (ids.size() < BASELINE_CHUNKS) baselineTokens += chunkTokens(header(hit.getKey(), null), text);
+            ids.add(hit.getKey());
+            texts.add(text);
+            headers.add(header);
+        }
+        if (ids.isEmpty()) {
+            return new PackedContext("", new LinkedHashSet<>(), hits.size(), 0, baselineTokens, 0);
+        }
+
+        float[] query = normalized(queryEmbedding);
+        String[] queryTerms = terms(question);
+
+        int n = ids.size();
+        float[][] unit = new float[n][];
+        double[] similarity = new double[n];
+        int firstScored = -1;
+        for (int i = 0; i < n; i++) {
+            float[] vector = embedder.cachedVector(texts.get(i));
+            if (vector == null || vector.length != query.length) continue;
+            unit[i] = normalized(vector);
+            similarity[i] = dot(query, unit[i]);
+            if (firstScored < 0) firstScored = i;
+        }
+        // Hits arrive best first, so an uncached chunk is taken to be as similar as the nearest scored hit
+        // ahead of it (or the first scored hit, when none is ahead). With nothing cached, the search
+        // rank stands in for similarity, so keyword overlap only reorders hits that ranked close together.
+        double carried = firstScored < 0 ? 0 : similarity[firstScored];
+        double[] scores = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            if (firstScored < 0) carried = 1 - (double) i / n;
+            else if (unit[i] != null) carried = similarity[i];
+            scores[i] = carried + TERM_OVERLAP_WEIGHT * termOverlap(queryTerms, texts.get(i));
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+
+        StringBuilder context = new StringBuilder();
+        Set<Long> packedIds = new LinkedHashSet<>();
+        List<float[]> kept = new ArrayList<>();
+        int remaining = budget.getMaxTokens();
+        int duplicates = 0;
+        for (int i : order) {
+            if (packedIds.size() == budget.getMaxChunks() || remaining < MIN_PARTIAL_TOKENS) break;
+            if (unit[i] != null && isDuplicate(unit[i], kept)) {
+                duplicates++;
+                continue;
+            }
+            long id = ids.get(i);
+            String text = texts.get(i);
+            String header = headers.get(i);
+            int tokens = chunkTokens(header, text);
+            if (tokens > remaining) {
+                text = truncate(text, remaining - chunkTokens(header, ""));
+                if (text.isEmpty()) continue;
+                tokens = chunkTokens(header, text);
+            }
+            context.append(header).append(text).append("\n\n");
+            packedIds.add(id);
+            if (unit[i] != null) kept.add(unit[i]);
+            remaining -= tokens;
+        }
+        return new PackedContext(context.toString(), packedIds, hits.size(), duplicates,
+                baselineTokens, budget.getMaxTokens() - remaining);
+    }
+
+    static void appendChunk(StringBuilder context, long id, String text) {
+        context.append(header(id, null)).append(text).append("\n\n");
+    }
+
+    // "Chunk ID 42: " or, with metadata, "Chunk ID 42 [report.pdf, p. 4, Results]: "
+    static String header(long id, ChunkMetadata metadata) {
+        String citation = metadata == null ? "" : metadata.toCitation();
+        if (citation.isEmpty()) return "Chunk ID " + id + ": ";
+        return "Chunk ID " + id + " [" + citation + "]: ";
+    }
+
+    private static int chunkTokens(String header, String text) {
+        // The header ends in whitespace, so header and text estimate independently
+        return TextSplitter.estimateTokens(header, 0, header.length()) + TextSplitter.estimateTokens(text, 0, text.length());
+    }
+
+    private boolean isDuplicate(float[] vector, List<float[]> kept) {
+        for (float[] other : kept) {
+            if (dot(vector, other) >= budget.getDuplicateSimilarity()) return true;
+        }
+        return false;
+    }
+
+    // Longest prefix ending on a sentence (or failing that, word) boundary within maxTokens
+    private static String truncate(String text, int maxTokens) {
+        int lastSentence = -1;
+        int lastWord = -1;
+        int tokens = 0;
+        int counted = 0;
+        for (int end = 1; end <= text.length(); end++) {
+            if (end < text.length() && !Character.isWhitespace(text.charAt(end))) continue;
+            // Ranges split at whitespace estimate independently, so count only the new words
+            tokens += TextSplitter.estimateTokens(text, counted, end);
+            counted = end;
+            if (tokens > maxTokens) break;
+            lastWord = end;
+            char c = text.charAt(end - 1);
+            if (c == '.' || c == '!' || c == '?') lastSentence = end;
+        }
+        int cut = lastSentence > 0 ? lastSentence : lastWord;
+        return cut > 0 ? text.substring(0, cut).trim() : "";
+    }
+
+    private static String[] terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        int start = -1;
+        int length = text.length();
+        for (int pos = 0; pos <= length; pos++) {
+            boolean wordChar = pos < length && Character.isLetterOrDigit(text.charAt(pos));
+            if (wordChar && start < 0) {
+                start = pos;
+            } else if (!wordChar && start >= 0) {
+                if (pos - start > 2) terms.add(text.substring(start, pos).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms.toArray(new String[0]);
+    }
+
+    // Fraction of query terms that occur in the text; words are matched in place, without allocating
+    private static double termOverlap(String[] queryTerms, String text) {
+        if (queryTerms.length == 0) return 0;
+        boolean[] found = new boolean[queryTerms.length];
+        int matched = 0;
+        int start = -1;
+        int length = text.length();
+        for (int pos = 0; pos <= length && matched < queryTerms.length; pos++) {
+            boolean wordChar = pos < length && Character.isLetterOrDigit(text.charAt(pos));
+            if (wordChar && start < 0) {
+                start = pos;
+            } else if (!wordChar && start >= 0) {
+                int wordLength = pos - start;
+                for (int t = 0; t < queryTerms.length; t++) {
+                    if (!found[t] && queryTerms[t].length() == wordLength
+                            && text.regionMatches(true, start, queryTerms[t], 0, wordLength)) {
+                        found[t] = true;
+                        matched++;
+                    }
+                }
+                start = -1;
+            }
+        }
+        return (double) matched / queryTerms.length;
+    }
+
+    private static float[] normalized(float[] vector) {
+        double norm = Math.sqrt(dot(vector, vector));
+        float[] unit = new float[vector.length];
+        if (norm == 0) return unit;
+        for (int i = 0; i < vector.length; i++) unit[i] = (float) (vector[i] / norm);
+        return unit;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) sum += a[i] * b[i];
+        return sum;
+    }
+}
@@ -0,0 +1,44 @@
+package RAGApp;
+
+/**
+ * Limits for the context handed to the LLM: how many chunks to over-fetch from the
+ * store, how similar two chunks may be before one is dropped as a duplicate, and the
+ * token budget the packed context must fit in.
+ */
+public class ContextBudget {
+    private final int candidates;
+    private final int maxChunks;
+    private final int maxTokens;
+    private final double duplicateSimilarity;
+
+    public ContextBudget(int candidates, int maxChunks, int maxTokens, double duplicateSimilarity) {
+        if (candidates < maxChunks || maxChunks < 1 || maxTokens < 1) {
+            throw new IllegalArgumentException("Invalid context budget: candidates=" + candidates
+                    + ", maxChunks=" + maxChunks + ", maxTokens=" + maxTokens);
+        }
+        this.candidates = candidates;
+        this.maxChunks = maxChunks;
+        this.maxTokens = maxTokens;
+        this.duplicateSimilarity = duplicateSimilarity;
+    }
+
+    public static ContextBudget defaults() {
+        return new ContextBudget(12, 4, 512, 0.92);
+    }
+
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public int getMaxChunks() {
+        return maxChunks;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public double getDuplicateSimilarity() {
+        return duplicateSimilarity;
+    }
+}
@@ -0,0 +1,242 @@
+package RAGApp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persistent embedding cache keyed by (model name, dimension, content hash).
+ *
+ * <p>Vectors live in an append-only file of fixed-size records ({@code long key + float[dimension]}),
+ * memory-mapped in 64MB segments. Lookups go through an open-addressing hash index that is
+ * itself a memory-mapped file, so opening the cache costs two mmaps regardless of its size.
+ * A cache directory is created per model and dimension; switching either starts a fresh cache.
+ */
+public class DiskEmbeddingCache implements AutoCloseable {
+    private static final int MAGIC = 0x52414745;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int SLOT_BYTES = 12;
+    private static final int INITIAL_CAPACITY = 1 << 14;
+    private static final long SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_VERSION = 4;
+    private static final int OFFSET_DIMENSION = 8;
+    private static final int OFFSET_CAPACITY = 12;
+    private static final int OFFSET_COUNT = 16;
+
+    private final String modelName;
+    private final int dimension;
+    private final int recordBytes;
+    private final int recordsPerSegment;
+    private final Path indexPath;
+    private final FileChannel vectorChannel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int count;
+    private long hits;
+    private long misses;
+
+    public DiskEmbeddingCache(Path baseDirectory, String modelName, int dimension) {
+        this.modelName = modelName;
+        this.dimension = dimension;
+        this.recordBytes = 8 + dimension * 4;
+        this.recordsPerSegment = (int) (SEGMENT_BYTES / recordBytes);
+
+        try {
+            Path directory = baseDirectory.resolve(modelName.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + dimension);
+            Files.createDirectories(directory);
+            this.indexPath = directory.resolve("index.bin");
+            this.vectorChannel = FileChannel.open(directory.resolve("vectors.bin"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            if (!openExistingIndex()) {
+                // No usable index: the vector file can't be trusted either, start over
+                vectorChannel.truncate(0);
+                createIndex(indexPath, INITIAL_CAPACITY);
+                mapIndex(indexPath);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open embedding cache for " + modelName, e);
+        }
+
+        System.out.println("💾 Embedding cache opened with " + count + " vectors");
+    }
+
+    private boolean openExistingIndex() throws IOException {
+        if (!Files.exists(indexPath) || Files.size(indexPath) < HEADER_BYTES) {
+            return false;
+        }
+        mapIndex(indexPath);
+        if (index.getInt(OFFSET_MAGIC) != MAGIC || index.getInt(OFFSET_VERSION) != VERSION
+                || index.getInt(OFFSET_DIMENSION) != dimension
+                || Files.size(indexPath) != HEADER_BYTES + (long) capacity * SLOT_BYTES) {
+            indexChannel.close();
+            return false;
+        }
+        return true;
+    }
+
+    private void createIndex(Path path, int newCapacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + (long) newCapacity * SLOT_BYTES);
+            buffer.putInt(OFFSET_MAGIC, MAGIC);
+            buffer.putInt(OFFSET_VERSION, VERSION);
+            buffer.putInt(OFFSET_DIMENSION, dimension);
+            buffer.putInt(OFFSET_CAPACITY, newCapacity);
+            buffer.putInt(OFFSET_COUNT, 0);
+            buffer.force();
+        }
+    }
+
+    private void mapIndex(Path path) throws IOException {
+        indexChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+        capacity = index.getInt(OFFSET_CAPACITY);
+        count = index.getInt(OFFSET_COUNT);
+    }
+
+    /**
+     * @return The cached vector for this text, or {@code null} if it has never been stored
+     */
+    public synchronized float[] get(String text) {
+        long key = keyOf(text);
+        int slot = findSlot(index, capacity, key);
+        if (index.getLong(slotOffset(slot)) == 0) {
+            misses++;
+            return null;
+        }
+
+        int record = index.getInt(slotOffset(slot) + 8);
+        ByteBuffer buffer = recordBuffer(record);
+        float[] vector = new float[dimension];
+        buffer.position(buffer.position() + 8);
+        buffer.asFloatBuffer().get(vector);
+        hits++;
+        return vector;
+    }
+
+    public synchronized void put(String text, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + vector.length);
+        }
+
+        long key = keyOf(text);
+        if (index.getLong(slotOffset(findSlot(index, capacity, key))) != 0) {
+            return;
+        }
+        if ((count + 1) * 2L > capacity) {
+            grow();
+        }
+
+        ByteBuffer buffer = recordBuffer(count);
+        buffer.putLong(key);
+        buffer.asFloatBuffer().put(vector);
+
+        int slot = findSlot(index, capacity, key);
+        index.putLong(slotOffset(slot), key);
+        index.putInt(slotOffset(slot) + 8, count);
+        count++;
+        index.putInt(OFFSET_COUNT, count);
+    }
+
+    // Doubles the hash index into a new file and swaps it in
+    private void grow() {
+        int newCapacity = capacity * 2;
+        Path tmpPath = indexPath.resolveSibling("index.bin.tmp");
+        try {
+            createIndex(tmpPath, newCapacity);
+            try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer grown = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                for (int slot = 0; slot < capacity; slot++) {
+                    long key = index.getLong(slotOffset(slot));
+                    if (key == 0) continue;
+                    int target = findSlot(grown, newCapacity, key);
+                    grown.putLong(slotOffset(target), key);
+                    grown.putInt(slotOffset(target) + 8, index.getInt(slotOffset(slot) + 8));
+                }
+                grown.putInt(OFFSET_COUNT, count);
+                grown.force();
+            }
+            indexChannel.close();
+            Files.move(tmpPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            mapIndex(indexPath);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to grow embedding cache index", e);
+        }
+    }
+
+    private static int findSlot(ByteBuffer table, int tableCapacity, long key) {
+        int mask = tableCapacity - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (true) {
+            long existing = table.getLong(slotOffset(slot));
+            if (existing == 0 || existing == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    // A little-endian view positioned at the start of the given record
+    private ByteBuffer recordBuffer(int record) {
+        int segment = record / recordsPerSegment;
+        try {
+            while (segments.size() <= segment) {
+                long start = segments.size() * (long) recordsPerSegment * recordBytes;
+                segments.add(vectorChannel.map(FileChannel.MapMode.READ_WRITE, start, (long) recordsPerSegment * recordBytes));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to map embedding cache segment " + segment, e);
+        }
+
+        ByteBuffer buffer = segments.get(segment).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position((record % recordsPerSegment) * recordBytes);
+        return buffer;
+    }
+
+    // Keys are never 0, which marks an empty slot
+    private long keyOf(String text) {
+        long key = ChunkIds.of(modelName, text);
+        return key == 0 ? 1 : key;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized String statsSummary() {
+        long lookups = hits + misses;
+        return String.format("%d vectors, %.0f%% hit rate", count, lookups == 0 ? 0.0 : hits * 100.0 / lookups);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            index.force();
+            indexChannel.close();
+            vectorChannel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close embedding cache", e);
+        }
+    }
+}
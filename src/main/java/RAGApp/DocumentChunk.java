@@ -0,0 +1,31 @@
+package RAGApp;
+
+/**
+ * A chunk of text ready for indexing, together with the page/section it was cut from.
+ */
+public class DocumentChunk {
+    private final String text;
+    private final ChunkMetadata metadata;
+
+    public DocumentChunk(String text, ChunkMetadata metadata) {
+        this.text = text;
+        this.metadata = metadata == null ? ChunkMetadata.NONE : metadata;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public ChunkMetadata getMetadata() {
+        return metadata;
+    }
+
+    public DocumentChunk withMetadata(ChunkMetadata metadata) {
+        return new DocumentChunk(text, metadata);
+    }
+
+    // Content-addressed ID, see ChunkIds; the same text indexed for two tenants gets two rows
+    public long id() {
+        return ChunkIds.of(metadata.getTenant(), metadata.getSource(), text);
+    }
+}
@@ -1,16 +1,47 @@
 package RAGApp;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Utility class for loading documents from file and splitting them into chunks.
+ * {@link #streamDocument} and {@link #streamDocuments} go through a {@link DocumentParser}
+ * so PDF and Markdown chunks keep their page/section.
  */
 public class DocumentLoader {
+    private static final int READ_BUFFER_CHARS = 64 * 1024;
+    private static final int DIRECTORY_QUEUE_CAPACITY = 1024;
+    private static final int DEFAULT_READER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final Object END_OF_CHUNKS = new Object();
+    private static final DocumentParser TEXT_PARSER = new TextDocumentParser();
+    private static final List<DocumentParser> PARSERS = List.of(
+            new PdfDocumentParser(), new MarkdownDocumentParser(), TEXT_PARSER);
 
     /**
      * Loads a document from the given file path and splits it into chunks.
@@ -44,4 +75,265 @@ public class DocumentLoader {
         System.out.println("Loaded " + chunks.size() + " chunks.");
         return chunks;
     }
+
+    /**
+     * Lazily reads a file into fixed-size chunks through a buffered NIO channel.
+     * Only one chunk is held in memory at a time; close the stream to release the file.
+     *
+     * @param file      Path to a UTF-8 text file
+     * @param chunkSize The size of each chunk (in characters)
+     * @return A sequential stream of chunks
+     */
+    public static Stream<String> streamChunks(Path file, int chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+
+        BufferedReader reader = new BufferedReader(
+                Channels.newReader(FileChannel.open(file, StandardOpenOption.READ), StandardCharsets.UTF_8),
+                READ_BUFFER_CHARS);
+
+        Iterator<String> chunks = new Iterator<>() {
+            private final char[] buffer = new char[chunkSize];
+            private String next = readChunk();
+
+            private String readChunk() {
+                try {
+                    int filled = 0;
+                    while (filled < chunkSize) {
+                        int read = reader.read(buffer, filled, chunkSize - filled);
+                        if (read < 0) break;
+                        filled += read;
+                    }
+                    return filled == 0 ? null : new String(buffer, 0, filled);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read " + file, e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (next == null) throw new NoSuchElementException();
+                String chunk = next;
+                next = readChunk();
+                return chunk;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> closeQuietly(reader));
+    }
+
+    /**
+     * Lazily reads a file and splits it on sentence/paragraph boundaries with the given splitter.
+     * The file is read in 64K-character windows; the last, possibly incomplete chunk of each
+     * window is carried over and re-split with the next one, so memory stays bounded by the
+     * window size plus one chunk.
+     *
+     * @param file     Path to a UTF-8 text file
+     * @param splitter Boundary-aware splitter
+     * @return A sequential stream of chunks
+     */
+    public static Stream<String> streamChunks(Path file, TextSplitter splitter) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                Channels.newReader(FileChannel.open(file, StandardOpenOption.READ), StandardCharsets.UTF_8),
+                READ_BUFFER_CHARS);
+
+        Iterator<String> chunks = new Iterator<>() {
+            private final char[] buffer = new char[READ_BUFFER_CHARS];
+            private final StringBuilder window = new StringBuilder();
+            private final ArrayDeque<String> ready = new ArrayDeque<>();
+            private final List<int[]> spans = new ArrayList<>();
+            private boolean eof = false;
+
+            private void fill() {
+                try {
+                    while (ready.isEmpty() && !(eof && window.length() == 0)) {
+                        int read = reader.read(buffer);
+                        if (read < 0) eof = true;
+                        else window.append(buffer, 0, read);
+
+                        spans.clear();
+                        splitter.split(window, (text, start, end) -> spans.add(new int[]{start, end}));
+                        // The last span may continue in the next read, unless a whole buffer of whitespace follows it
+                        boolean lastComplete = eof || !spans.isEmpty()
+                                && window.length() - spans.get(spans.size() - 1)[1] > READ_BUFFER_CHARS;
+                        int complete = lastComplete ? spans.size() : spans.size() - 1;
+                        for (int i = 0; i < complete; i++) {
+                            ready.add(window.substring(spans.get(i)[0], spans.get(i)[1]));
+                        }
+                        // Without a pending span the window is only whitespace, which would otherwise keep growing
+                        if (complete == spans.size()) window.setLength(0);
+                        else if (complete > 0) window.delete(0, spans.get(complete)[0]);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read " + file, e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                fill();
+                return !ready.isEmpty();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return ready.poll();
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> closeQuietly(reader));
+    }
+
+    /**
+     * Parses a PDF, Markdown or plain-text file (chosen by extension) into chunks that carry
+     * their source, page and section. A file of unknown type is read as UTF-8 text.
+     * Parsing is lazy; close the stream to release the file.
+     *
+     * @param file     Path to the document
+     * @param splitter Boundary-aware splitter applied per page/section
+     * @return A sequential stream of chunks in document order
+     */
+    public static Stream<DocumentChunk> streamDocument(Path file, TextSplitter splitter) throws IOException {
+        DocumentParser parser = parserFor(file);
+        return (parser != null ? parser : TEXT_PARSER).parse(file, splitter);
+    }
+
+    /**
+     * Parses every regular file under {@code root} (or {@code root} itself if it is a file),
+     * reading several files at once; see {@link #streamDocuments(Path, TextSplitter, int)}.
+     */
+    public static Stream<DocumentChunk> streamDocuments(Path root, TextSplitter splitter) throws IOException {
+        return streamDocuments(root, splitter, DEFAULT_READER_THREADS);
+    }
+
+    /**
+     * Walks a directory tree and parses its files on {@code readerThreads} threads.
+     * Chunks are handed over through a bounded queue, so memory stays bounded no matter
+     * how large the corpus is; readers block while the consumer (usually indexing) catches up.
+     * Chunks of different files may interleave; each carries its own source. Files of a type
+     * no parser supports are skipped, as are text files that turn out not to be UTF-8.
+     * Closing the stream stops the readers.
+     *
+     * @param root          Directory to walk, or a single file
+     * @param splitter      Boundary-aware splitter applied per page/section
+     * @param readerThreads Number of files read concurrently
+     */
+    public static Stream<DocumentChunk> streamDocuments(Path root, TextSplitter splitter, int readerThreads) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return streamDocument(root, splitter);
+        }
+        List<Path> files;
+        int unsupported;
+        try (Stream<Path> walk = Files.walk(root)) {
+            List<Path> regular = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            files = regular.stream().filter(file -> parserFor(file) != null).collect(Collectors.toList());
+            unsupported = regular.size() - files.size();
+        }
+        System.out.println("Found " + files.size() + " files under " + root
+                + (unsupported > 0 ? " (skipping " + unsupported + " of unsupported types)" : ""));
+        return streamFiles(files, file -> streamDocument(file, splitter), readerThreads);
+    }
+
+    // The parser for the file's extension, or null if none supports it
+    static DocumentParser parserFor(Path file) {
+        for (DocumentParser parser : PARSERS) {
+            if (parser.supports(file)) return parser;
+        }
+        return null;
+    }
+
+    private interface FileChunker<T> {
+        Stream<T> chunks(Path file) throws IOException;
+    }
+
+    private static <T> Stream<T> streamFiles(List<Path> files, FileChunker<T> chunker, int readerThreads) {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(DIRECTORY_QUEUE_CAPACITY);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        AtomicInteger remaining = new AtomicInteger(files.size());
+        // Daemon threads, shut down after the last file, so a stream drained without close() leaks nothing
+        ExecutorService readers = Executors.newFixedThreadPool(Math.max(1, readerThreads), r -> {
+            Thread t = new Thread(r, "document-reader");
+            t.setDaemon(true);
+            return t;
+        });
+
+        for (Path file : files) {
+            readers.submit(() -> {
+                try (Stream<T> chunks = chunker.chunks(file)) {
+                    Iterator<T> it = chunks.iterator();
+                    while (it.hasNext()) queue.put(it.next());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (UncheckedIOException e) {
+                    if (e.getCause() instanceof CharacterCodingException) {
+                        System.err.println("⚠ Skipping the rest of " + file + ": not UTF-8 text");
+                    } else {
+                        failure.compareAndSet(null, new RuntimeException("Failed to read " + file, e));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failure.compareAndSet(null, new RuntimeException("Failed to read " + file, e));
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    try {
+                        queue.put(END_OF_CHUNKS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    readers.shutdown();
+                }
+            });
+        }
+        if (files.isEmpty()) {
+            queue.add(END_OF_CHUNKS);
+            readers.shutdown();
+        }
+
+        Iterator<T> chunks = new Iterator<>() {
+            private Object next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = queue.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException("Interrupted while reading documents", e);
+                    }
+                }
+                if (failure.get() != null) throw failure.get();
+                return next != END_OF_CHUNKS;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                T chunk = (T) next;
+                next = null;
+                return chunk;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.NONNULL), false)
+                .onClose(readers::shutdownNow);
+    }
+
+    private static void closeQuietly(Reader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            System.err.println("⚠ Failed to close reader: " + e.getMessage());
+        }
+    }
 }
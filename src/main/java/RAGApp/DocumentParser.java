@@ -0,0 +1,29 @@
+package RAGApp;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Turns one file into chunks tagged with their page/section.
+ * Implemented by {@link TextDocumentParser}, {@link MarkdownDocumentParser} and {@link PdfDocumentParser};
+ * {@link DocumentLoader#streamDocument} picks one by file extension.
+ */
+public interface DocumentParser {
+
+    boolean supports(Path file);
+
+    /**
+     * Lazily parses and splits the file. Close the stream to release the file.
+     */
+    Stream<DocumentChunk> parse(Path file, TextSplitter splitter) throws IOException;
+
+    static String extensionOf(Path file) {
+        Path name = file.getFileName();
+        if (name == null) return "";
+        String fileName = name.toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
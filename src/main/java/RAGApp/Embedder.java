@@ -1,30 +1,69 @@
 package RAGApp;
 
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
 import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
 
-public class Embedder {
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class Embedder implements AutoCloseable {
     private final EmbeddingModel embeddingModel;
+    private final String modelName;
     private final int embeddingDimension;
+    private final DiskEmbeddingCache diskCache;
+    private final StartupManifest manifest;
+    // Texts embedded per second is the rate of rag.embed.texts{source="model"}
+    private final Timer embedTimer = RagMetrics.timer("rag.embed", "Embedding model requests", "type", "single");
+    private final Timer batchTimer = RagMetrics.timer("rag.embed", "Embedding model requests", "type", "batch");
+    private final DistributionSummary batchSizes = RagMetrics.summary("rag.embed.batch.size", "Texts sent per batch embedding request", "texts");
+    private final Counter modelTexts = RagMetrics.counter("rag.embed.texts", "Texts embedded", "source", "model");
+    private final Counter cachedTexts = RagMetrics.counter("rag.embed.texts", "Texts embedded", "source", "cache");
 
+    // Models given by name go through OllamaPool.shared() unless a pool is passed in
     public Embedder(String modelName) {
-        this.embeddingModel = OllamaEmbeddingModel.builder()
-                .baseUrl("http://localhost:11434")
-                .modelName(modelName)
-                .build();
+        this.embeddingModel = OllamaPool.shared().embeddingModel(modelName);
 
+        this.modelName = modelName;
         this.embeddingDimension = detectEmbeddingDimension();
+        this.diskCache = null;
+        this.manifest = null;
         System.out.println("Auto-detected embedding dimension: " + this.embeddingDimension);
     }
 
     public Embedder(String modelName, int expectedDimension) {
-        this.embeddingModel = OllamaEmbeddingModel.builder()
-                .baseUrl("http://localhost:11434")
-                .modelName(modelName)
-                .build();
+        this(modelName, expectedDimension, null);
+    }
+
+    /**
+     * @param cacheDirectory Directory for the persistent embedding cache, or {@code null} to disable it
+     */
+    public Embedder(String modelName, int expectedDimension, Path cacheDirectory) {
+        this(modelName, expectedDimension, cacheDirectory, null);
+    }
 
-        int actualDimension = detectEmbeddingDimension();
+    /**
+     * @param manifest Where the model's dimension is remembered between runs; when it is known,
+     *                 construction makes no request to the model and {@link #warmUp()} checks it
+     *                 later. {@code null} always probes the model here.
+     */
+    public Embedder(String modelName, int expectedDimension, Path cacheDirectory, StartupManifest manifest) {
+        this(OllamaPool.shared(), modelName, expectedDimension, cacheDirectory, manifest);
+    }
+
+    public Embedder(OllamaPool pool, String modelName, int expectedDimension, Path cacheDirectory, StartupManifest manifest) {
+        this.embeddingModel = pool.embeddingModel(modelName);
+        this.modelName = modelName;
+        this.manifest = manifest;
+
+        int knownDimension = manifest == null ? 0 : manifest.embeddingDimension(modelName);
+        int actualDimension = knownDimension > 0 ? knownDimension : detectEmbeddingDimension();
+        if (manifest != null) manifest.putEmbeddingDimension(modelName, actualDimension);
 
         if (actualDimension != expectedDimension) {
             System.err.println("Warning: Expected dimension " + expectedDimension +
@@ -32,6 +71,23 @@ public class Embedder {
         }
 
         this.embeddingDimension = actualDimension;
+        this.diskCache = cacheDirectory == null ? null
+                : new DiskEmbeddingCache(cacheDirectory, modelName, actualDimension);
+    }
+
+    /**
+     * Wraps any embedding model, e.g. a local stand-in for benchmarks and load tests.
+     *
+     * @param cacheName      Name the disk cache is keyed by, normally the model name
+     * @param cacheDirectory Directory for the persistent embedding cache, or {@code null} to disable it
+     */
+    public Embedder(EmbeddingModel embeddingModel, String cacheName, Path cacheDirectory) {
+        this.embeddingModel = embeddingModel;
+        this.modelName = cacheName;
+        this.manifest = null;
+        this.embeddingDimension = detectEmbeddingDimension();
+        this.diskCache = cacheDirectory == null ? null
+                : new DiskEmbeddingCache(cacheDirectory, cacheName, embeddingDimension);
     }
 
     private int detectEmbeddingDimension() {
@@ -43,18 +99,104 @@ public class Embedder {
         }
     }
 
+    /**
+     * Sends one request so the model is loaded before the first real one, and checks that it
+     * still has the dimension this embedder was built with. Meant to run in the background
+     * while the rest of startup proceeds.
+     */
+    public void warmUp() {
+        long start = System.nanoTime();
+        int dimension = detectEmbeddingDimension();
+        if (dimension != embeddingDimension) {
+            // Vectors of the wrong size can't be stored or compared; the next start uses the right one
+            if (manifest != null) manifest.putEmbeddingDimension(modelName, dimension);
+            throw new IllegalStateException("Model " + modelName + " now produces " + dimension
+                    + " dimensions, not " + embeddingDimension + "; restart to pick up the change");
+        }
+        System.out.printf("🔥 Embedding model %s warmed up in %d ms%n", modelName, (System.nanoTime() - start) / 1_000_000);
+    }
+
     public Embedding embed(String text) {
         if (text == null || text.trim().isEmpty()) {
             throw new IllegalArgumentException("Text cannot be null or empty");
         }
-        return embeddingModel.embed(text).content();
+        if (diskCache != null) {
+            float[] cached = diskCache.get(text);
+            if (cached != null) {
+                cachedTexts.increment();
+                return Embedding.from(cached);
+            }
+        }
+
+        long start = System.nanoTime();
+        Embedding embedding = embeddingModel.embed(text).content();
+        embedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        modelTexts.increment();
+        if (diskCache != null) {
+            diskCache.put(text, embedding.vector());
+        }
+        return embedding;
     }
 
     public float[] embedAsFloatArray(String text) {
         return embed(text).vector();
     }
 
+    // Embed a batch of texts through the model's embedAll path, preserving input order.
+    // Texts found in the disk cache are not sent to the model.
+    public List<float[]> embedAll(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        List<Integer> missing = new ArrayList<>();
+        List<TextSegment> segments = new ArrayList<>();
+        for (String text : texts) {
+            if (text == null || text.trim().isEmpty()) {
+                throw new IllegalArgumentException("Text cannot be null or empty");
+            }
+            float[] cached = diskCache == null ? null : diskCache.get(text);
+            if (cached == null) {
+                missing.add(vectors.size());
+                segments.add(TextSegment.from(text));
+            }
+            vectors.add(cached);
+        }
+        cachedTexts.increment(texts.size() - segments.size());
+        if (segments.isEmpty()) {
+            return vectors;
+        }
+
+        long start = System.nanoTime();
+        List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSizes.record(segments.size());
+        modelTexts.increment(segments.size());
+        for (int i = 0; i < embeddings.size(); i++) {
+            float[] vector = embeddings.get(i).vector();
+            int position = missing.get(i);
+            vectors.set(position, vector);
+            if (diskCache != null) {
+                diskCache.put(texts.get(position), vector);
+            }
+        }
+        return vectors;
+    }
+
+    // The stored vector for this text, or null if it isn't cached; never calls the model
+    public float[] cachedVector(String text) {
+        return diskCache == null ? null : diskCache.get(text);
+    }
+
     public int getEmbeddingDimension() {
         return embeddingDimension;
     }
+
+    public DiskEmbeddingCache getDiskCache() {
+        return diskCache;
+    }
+
+    @Override
+    public void close() {
+        if (diskCache != null) {
+            diskCache.close();
+        }
+    }
 }
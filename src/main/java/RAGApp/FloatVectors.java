@@ -0,0 +1,68 @@
+package RAGApp;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversions between primitive vectors and the boxed lists the Milvus SDK requires.
+ * Vectors stay as {@code float[]} in every buffer and queue; these helpers are only
+ * called when a request is built, so each float is boxed once and never retained.
+ * Also holds the binary packing and similarity helpers used for compressed vectors.
+ */
+public final class FloatVectors {
+
+    private FloatVectors() {
+    }
+
+    public static List<Float> toList(float[] vector) {
+        List<Float> list = new ArrayList<>(vector.length);
+        for (float f : vector) {
+            list.add(f);
+        }
+        return list;
+    }
+
+    public static List<List<Float>> toLists(List<float[]> vectors) {
+        List<List<Float>> lists = new ArrayList<>(vectors.size());
+        for (float[] vector : vectors) {
+            lists.add(toList(vector));
+        }
+        return lists;
+    }
+
+    public static float cosine(float[] a, float[] b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += (double) a[i] * b[i];
+            normA += (double) a[i] * a[i];
+            normB += (double) b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0f : (float) (dot / Math.sqrt(normA * normB));
+    }
+
+    /**
+     * Sign-quantizes a vector to one bit per dimension (1 for positive components), packed
+     * most significant bit first as Milvus expects for BinaryVector fields. Hamming distance
+     * between the codes approximates the angle between the original vectors.
+     * The dimension must be a multiple of 8.
+     */
+    public static byte[] toBits(float[] vector) {
+        if (vector.length % 8 != 0) {
+            throw new IllegalArgumentException("Binary vectors need a dimension divisible by 8, got " + vector.length);
+        }
+        byte[] bits = new byte[vector.length / 8];
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] > 0) bits[i >> 3] |= (byte) (0x80 >>> (i & 7));
+        }
+        return bits;
+    }
+
+    public static List<ByteBuffer> toBinaryBuffers(List<float[]> vectors) {
+        List<ByteBuffer> buffers = new ArrayList<>(vectors.size());
+        for (float[] vector : vectors) {
+            buffers.add(ByteBuffer.wrap(toBits(vector)));
+        }
+        return buffers;
+    }
+}
@@ -0,0 +1,716 @@
+package RAGApp;
+
+import io.milvus.param.MetricType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Pure-Java, in-process {@link VectorStore} backed by an HNSW graph.
+ *
+ * <p>Meant for development, CI and small tenants: no Milvus, etcd or MinIO, and no network hop
+ * per query. Vectors are kept in one contiguous {@code float[]} (row-major), graph links in
+ * primitive int arrays, and search heaps encode (distance, node) pairs in primitive longs.
+ * COSINE vectors are normalized on insert so every distance is a single dot-product loop.
+ *
+ * <p>Filtered searches scan the matching nodes exactly when there are few of them, and otherwise
+ * search the graph with a candidate list widened by the filter's selectivity, keeping only matches.
+ * Nodes are indexed by tenant so a tenant filter never looks at other tenants' chunks.
+ *
+ * <p>Deleted chunks stay in the graph as waypoints, marked in a bitset, and are never returned;
+ * searches then go through the filtered path with every live node allowed.
+ *
+ * <p>If a snapshot path is given, the store loads it on construction (through a memory-mapped
+ * read) and writes it back atomically on {@link #checkpoint()} and {@link #close()}.
+ */
+public class HnswVectorStore implements VectorStore {
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 4;
+    private static final int DEFAULT_M = 16;
+    private static final int DEFAULT_EF_CONSTRUCTION = 200;
+    private static final int DEFAULT_EF_SEARCH = 64;
+    private static final int INITIAL_CAPACITY = 1024;
+    // Filtered searches over at most this many matching nodes are exact scans
+    private static final int MAX_EXACT_SCAN = 4096;
+    private static final int MAX_FILTERED_EF = 4096;
+
+    private final int dimension;
+    private final MetricType metric;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelFactor;
+    private final Path snapshotPath;
+    private final Random random = new Random(42);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private float[] vectors;
+    private long[] ids;
+    private String[] texts;
+    private ChunkMetadata[] metadata;
+    // links[node][level] = {count, neighbor...}
+    private int[][][] links;
+    private final Map<Long, Integer> nodesById = new HashMap<>();
+    private final Map<String, BitSet> nodesByTenant = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswVectorStore(int dimension, MetricType metric) {
+        this(dimension, metric, null);
+    }
+
+    public HnswVectorStore(int dimension, MetricType metric, Path snapshotPath) {
+        this(dimension, metric, DEFAULT_M, DEFAULT_EF_CONSTRUCTION, DEFAULT_EF_SEARCH, snapshotPath);
+    }
+
+    /**
+     * @param metric         L2, IP or COSINE
+     * @param m              Links per node on upper layers (2m on the base layer)
+     * @param efConstruction Candidate list size while inserting
+     * @param efSearch       Candidate list size while searching (widened to topK if smaller)
+     * @param snapshotPath   File to load from and save to, or {@code null} for a purely in-memory store
+     */
+    public HnswVectorStore(int dimension, MetricType metric, int m, int efConstruction, int efSearch, Path snapshotPath) {
+        if (metric != MetricType.L2 && metric != MetricType.IP && metric != MetricType.COSINE) {
+            throw new IllegalArgumentException("Unsupported metric: " + metric);
+        }
+        this.dimension = dimension;
+        this.metric = metric;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelFactor = 1 / Math.log(m);
+        this.snapshotPath = snapshotPath;
+
+        allocate(INITIAL_CAPACITY);
+        if (snapshotPath != null && Files.exists(snapshotPath)) {
+            load(snapshotPath);
+            System.out.println("✅ Loaded " + nodesById.size() + " vectors from " + snapshotPath);
+        }
+    }
+
+    private void allocate(int capacity) {
+        vectors = vectors == null ? new float[capacity * dimension] : Arrays.copyOf(vectors, capacity * dimension);
+        ids = ids == null ? new long[capacity] : Arrays.copyOf(ids, capacity);
+        texts = texts == null ? new String[capacity] : Arrays.copyOf(texts, capacity);
+        metadata = metadata == null ? new ChunkMetadata[capacity] : Arrays.copyOf(metadata, capacity);
+        links = links == null ? new int[capacity][][] : Arrays.copyOf(links, capacity);
+    }
+
+    @Override
+    public void index(long id, String text, float[] embedding) {
+        index(id, text, embedding, ChunkMetadata.NONE);
+    }
+
+    @Override
+    public void index(long id, String text, float[] embedding, ChunkMetadata chunkMetadata) {
+        if (embedding.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + embedding.length);
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (nodesById.containsKey(id)) return;
+            if (size == ids.length) allocate(size * 2);
+
+            int node = size++;
+            System.arraycopy(embedding, 0, vectors, node * dimension, dimension);
+            if (metric == MetricType.COSINE) normalize(vectors, node * dimension);
+            ids[node] = id;
+            texts[node] = text;
+            metadata[node] = chunkMetadata == null ? ChunkMetadata.NONE : chunkMetadata;
+            nodesById.put(id, node);
+            nodesByTenant.computeIfAbsent(metadata[node].getTenant(), tenant -> new BitSet()).set(node);
+            insertIntoGraph(node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<Long> existingIds(Collection<Long> candidates) {
+        lock.readLock().lock();
+        try {
+            Set<Long> existing = new HashSet<>();
+            for (Long id : candidates) {
+                if (nodesById.containsKey(id)) existing.add(id);
+            }
+            return existing;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Map<Long, String>> searchBatch(List<float[]> queryEmbeddings, int topK) {
+        lock.readLock().lock();
+        try {
+            BitSet live = deleted.isEmpty() ? null : matchingNodes(SearchFilter.NONE);
+            List<Map<Long, String>> results = new ArrayList<>(queryEmbeddings.size());
+            for (float[] query : queryEmbeddings) {
+                results.add(live == null ? searchLocked(query, topK) : searchFilteredLocked(query, topK, live));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Map<Long, String>> searchBatch(List<float[]> queryEmbeddings, int topK, SearchFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return searchBatch(queryEmbeddings, topK);
+        }
+        lock.readLock().lock();
+        try {
+            BitSet allowed = matchingNodes(filter);
+            List<Map<Long, String>> results = new ArrayList<>(queryEmbeddings.size());
+            for (float[] query : queryEmbeddings) {
+                results.add(searchFilteredLocked(query, topK, allowed));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet matchingNodes(SearchFilter filter) {
+        BitSet allowed;
+        if (filter.getTenant() != null) {
+            BitSet tenantNodes = nodesByTenant.get(filter.getTenant());
+            allowed = tenantNodes == null ? new BitSet() : (BitSet) tenantNodes.clone();
+        } else {
+            allowed = new BitSet(size);
+            allowed.set(0, size);
+            allowed.andNot(deleted);
+        }
+        if (!filter.getSources().isEmpty() || filter.hasTimestampRange()) {
+            for (int node = allowed.nextSetBit(0); node >= 0; node = allowed.nextSetBit(node + 1)) {
+                if (!filter.matches(metadata[node])) allowed.clear(node);
+            }
+        }
+        return allowed;
+    }
+
+    private Map<Long, String> searchFilteredLocked(float[] query, int topK, BitSet allowed) {
+        int matches = allowed.cardinality();
+        if (matches == 0) return new LinkedHashMap<>();
+
+        float[] q = query;
+        if (metric == MetricType.COSINE) {
+            q = query.clone();
+            normalize(q, 0);
+        }
+        if (matches > MAX_EXACT_SCAN) {
+            // Widen the candidate list by the filter's selectivity so enough matches survive
+            int ef = (int) Math.min(MAX_FILTERED_EF, (long) Math.max(efSearch, topK) * size / matches);
+            int ep = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                ep = greedyClosest(q, 0, ep, level);
+            }
+            Map<Long, String> hits = new LinkedHashMap<>();
+            long[] sorted = searchLayer(q, 0, ep, Math.max(ef, topK), 0).drainAscending();
+            for (int i = 0; i < sorted.length && hits.size() < topK; i++) {
+                int node = (int) sorted[i];
+                if (allowed.get(node)) hits.put(ids[node], texts[node]);
+            }
+            if (hits.size() == Math.min(topK, matches)) return hits;
+        }
+
+        LongHeap nearest = new LongHeap(topK + 1, true);
+        for (int node = allowed.nextSetBit(0); node >= 0; node = allowed.nextSetBit(node + 1)) {
+            float d = distance(q, 0, node * dimension);
+            if (nearest.size() < topK || d < decodeDistance(nearest.peek())) {
+                nearest.push(encode(d, node));
+                if (nearest.size() > topK) nearest.pop();
+            }
+        }
+        Map<Long, String> hits = new LinkedHashMap<>();
+        for (long encoded : nearest.drainAscending()) {
+            hits.put(ids[(int) encoded], texts[(int) encoded]);
+        }
+        return hits;
+    }
+
+    @Override
+    public ChunkMetadata metadata(long id) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodesById.get(id);
+            return node == null ? null : metadata[node];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<Long> idsForSources(String tenant, Collection<String> sources) {
+        lock.readLock().lock();
+        try {
+            Set<Long> found = new HashSet<>();
+            BitSet tenantNodes = nodesByTenant.get(tenant);
+            if (tenantNodes == null) return found;
+            Set<String> wanted = new HashSet<>(sources);
+            for (int node = tenantNodes.nextSetBit(0); node >= 0; node = tenantNodes.nextSetBit(node + 1)) {
+                if (wanted.contains(metadata[node].getSource())) found.add(ids[node]);
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(Collection<Long> idsToDelete) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : idsToDelete) {
+                Integer node = nodesById.remove(id);
+                if (node == null) continue;
+                deleted.set(node);
+                nodesByTenant.get(metadata[node].getTenant()).clear(node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Live chunks, not counting deleted ones
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, String> searchLocked(float[] query, int topK) {
+        Map<Long, String> hits = new LinkedHashMap<>();
+        if (entryPoint < 0) return hits;
+
+        float[] q = query;
+        if (metric == MetricType.COSINE) {
+            q = query.clone();
+            normalize(q, 0);
+        }
+
+        int ep = entryPoint;
+        for (int level = maxLevel; level > 0; level--) {
+            ep = greedyClosest(q, 0, ep, level);
+        }
+        LongHeap nearest = searchLayer(q, 0, ep, Math.max(efSearch, topK), 0);
+
+        long[] sorted = nearest.drainAscending();
+        for (int i = 0; i < sorted.length && hits.size() < topK; i++) {
+            int node = (int) sorted[i];
+            hits.put(ids[node], texts[node]);
+        }
+        return hits;
+    }
+
+    private void insertIntoGraph(int node) {
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelFactor);
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[1 + maxLinks(l)];
+        }
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int offset = node * dimension;
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedyClosest(vectors, offset, ep, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            long[] candidates = searchLayer(vectors, offset, ep, efConstruction, l).drainAscending();
+            int[] own = links[node][l];
+            for (int i = 0; i < candidates.length && own[0] < m; i++) {
+                int neighbor = (int) candidates[i];
+                if (neighbor == node) continue;
+                own[++own[0]] = neighbor;
+                link(neighbor, node, l);
+            }
+            ep = (int) candidates[0];
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    // Adds a back-link, dropping the farthest neighbor once the list is full
+    private void link(int from, int to, int level) {
+        int[] list = links[from][level];
+        if (list[0] < list.length - 1) {
+            list[++list[0]] = to;
+            return;
+        }
+
+        int fromOffset = from * dimension;
+        int worst = -1;
+        float worstDistance = distance(vectors, fromOffset, to * dimension);
+        for (int i = 1; i <= list[0]; i++) {
+            float d = distance(vectors, fromOffset, list[i] * dimension);
+            if (d > worstDistance) {
+                worstDistance = d;
+                worst = i;
+            }
+        }
+        if (worst > 0) list[worst] = to;
+    }
+
+    private int greedyClosest(float[] query, int queryOffset, int start, int level) {
+        int current = start;
+        float currentDistance = distance(query, queryOffset, current * dimension);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbors = links[current][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                float d = distance(query, queryOffset, neighbors[i] * dimension);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = neighbors[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Best-first search on one layer; returns a max-heap of the ef closest nodes
+    private LongHeap searchLayer(float[] query, int queryOffset, int start, int ef, int level) {
+        BitSet visited = new BitSet(size);
+        LongHeap candidates = new LongHeap(ef * 2, false);
+        LongHeap nearest = new LongHeap(ef + 1, true);
+
+        long first = encode(distance(query, queryOffset, start * dimension), start);
+        visited.set(start);
+        candidates.push(first);
+        nearest.push(first);
+
+        while (!candidates.isEmpty()) {
+            long candidate = candidates.pop();
+            if (nearest.size() >= ef && decodeDistance(candidate) > decodeDistance(nearest.peek())) break;
+
+            int[] neighbors = links[(int) candidate][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (visited.get(neighbor)) continue;
+                visited.set(neighbor);
+
+                float d = distance(query, queryOffset, neighbor * dimension);
+                if (nearest.size() < ef || d < decodeDistance(nearest.peek())) {
+                    long encoded = encode(d, neighbor);
+                    candidates.push(encoded);
+                    nearest.push(encoded);
+                    if (nearest.size() > ef) nearest.pop();
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Distance between {@code a[aOffset..]} and the stored vector at {@code vectorOffset}; smaller is closer.
+     * Four independent accumulators keep the loop free of a serial dependency so the JIT can pipeline it.
+     */
+    private float distance(float[] a, int aOffset, int vectorOffset) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        int bound = dimension & ~3;
+        if (metric == MetricType.L2) {
+            for (; i < bound; i += 4) {
+                float d0 = a[aOffset + i] - vectors[vectorOffset + i];
+                float d1 = a[aOffset + i + 1] - vectors[vectorOffset + i + 1];
+                float d2 = a[aOffset + i + 2] - vectors[vectorOffset + i + 2];
+                float d3 = a[aOffset + i + 3] - vectors[vectorOffset + i + 3];
+                s0 += d0 * d0;
+                s1 += d1 * d1;
+                s2 += d2 * d2;
+                s3 += d3 * d3;
+            }
+            for (; i < dimension; i++) {
+                float d = a[aOffset + i] - vectors[vectorOffset + i];
+                s0 += d * d;
+            }
+            return s0 + s1 + s2 + s3;
+        }
+
+        for (; i < bound; i += 4) {
+            s0 += a[aOffset + i] * vectors[vectorOffset + i];
+            s1 += a[aOffset + i + 1] * vectors[vectorOffset + i + 1];
+            s2 += a[aOffset + i + 2] * vectors[vectorOffset + i + 2];
+            s3 += a[aOffset + i + 3] * vectors[vectorOffset + i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += a[aOffset + i] * vectors[vectorOffset + i];
+        }
+        // IP/COSINE: larger dot product is closer
+        float dot = s0 + s1 + s2 + s3;
+        return metric == MetricType.COSINE ? 1f - dot : -dot;
+    }
+
+    private static void normalize(float[] vector, int offset, int dimension) {
+        float norm = 0;
+        for (int i = 0; i < dimension; i++) norm += vector[offset + i] * vector[offset + i];
+        if (norm == 0) return;
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) vector[offset + i] *= scale;
+    }
+
+    private void normalize(float[] vector, int offset) {
+        normalize(vector, offset, dimension);
+    }
+
+    // Packs (distance, node) into one long that orders by distance: the float bits are made
+    // sortable as a signed int (negative values flipped) and stored in the high half
+    private static long encode(float distance, int node) {
+        int bits = Float.floatToIntBits(distance);
+        bits ^= (bits >> 31) & 0x7FFFFFFF;
+        return ((long) bits << 32) | (node & 0xFFFFFFFFL);
+    }
+
+    private static float decodeDistance(long encoded) {
+        int bits = (int) (encoded >> 32);
+        bits ^= (bits >> 31) & 0x7FFFFFFF;
+        return Float.intBitsToFloat(bits);
+    }
+
+    @Override
+    public void checkpoint() {
+        if (snapshotPath != null) save(snapshotPath);
+    }
+
+    @Override
+    public void close() {
+        checkpoint();
+    }
+
+    /**
+     * Writes the store to a file and atomically replaces the previous snapshot.
+     */
+    public void save(Path path) {
+        lock.readLock().lock();
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(dimension);
+                out.writeInt(metric.ordinal());
+                out.writeInt(size);
+                out.writeInt(entryPoint);
+                out.writeInt(maxLevel);
+
+                ByteBuffer block = ByteBuffer.allocate(dimension * 4).order(ByteOrder.LITTLE_ENDIAN);
+                for (int node = 0; node < size; node++) {
+                    block.clear();
+                    block.asFloatBuffer().put(vectors, node * dimension, dimension);
+                    out.write(block.array());
+                }
+                for (int node = 0; node < size; node++) {
+                    out.writeLong(ids[node]);
+                    writeString(out, texts[node]);
+                    writeString(out, metadata[node].getSource());
+                    out.writeInt(metadata[node].getPage());
+                    writeString(out, metadata[node].getSection());
+                    writeString(out, metadata[node].getTenant());
+                    out.writeLong(metadata[node].getTimestamp());
+                    out.writeInt(links[node].length);
+                    for (int[] level : links[node]) {
+                        out.writeInt(level.length);
+                        for (int value : level) out.writeInt(value);
+                    }
+                }
+                out.writeInt(deleted.cardinality());
+                for (int node = deleted.nextSetBit(0); node >= 0; node = deleted.nextSetBit(node + 1)) {
+                    out.writeInt(node);
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save vector snapshot to " + path, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void load(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int version = buffer.getInt(4);
+            // Older snapshots lack chunk metadata (v1), tenant and timestamp (v2) or deletions (v3) and are still readable
+            if (buffer.getInt() != MAGIC || buffer.getInt() < 1 || version > VERSION) {
+                throw new IllegalStateException("Not a vector snapshot: " + path);
+            }
+            int fileDimension = buffer.getInt();
+            int fileMetric = buffer.getInt();
+            if (fileDimension != dimension || fileMetric != metric.ordinal()) {
+                throw new IllegalStateException("Snapshot " + path + " has dimension " + fileDimension
+                        + " and metric " + MetricType.values()[fileMetric] + ", expected " + dimension + " and " + metric);
+            }
+            int count = buffer.getInt();
+            entryPoint = buffer.getInt();
+            maxLevel = buffer.getInt();
+
+            allocate(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, count)) * 2));
+            ByteBuffer vectorBlock = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            vectorBlock.asFloatBuffer().get(vectors, 0, count * dimension);
+            buffer.position(buffer.position() + count * dimension * 4);
+
+            for (int node = 0; node < count; node++) {
+                ids[node] = buffer.getLong();
+                texts[node] = readString(buffer);
+                if (version == 1) {
+                    metadata[node] = ChunkMetadata.NONE;
+                } else {
+                    String source = readString(buffer);
+                    int page = buffer.getInt();
+                    String section = readString(buffer);
+                    metadata[node] = version == 2 ? new ChunkMetadata(source, page, section)
+                            : new ChunkMetadata(readString(buffer), source, page, section, buffer.getLong());
+                }
+                links[node] = new int[buffer.getInt()][];
+                for (int l = 0; l < links[node].length; l++) {
+                    int[] level = new int[buffer.getInt()];
+                    for (int i = 0; i < level.length; i++) level[i] = buffer.getInt();
+                    links[node][l] = level;
+                }
+                nodesById.put(ids[node], node);
+                nodesByTenant.computeIfAbsent(metadata[node].getTenant(), tenant -> new BitSet()).set(node);
+            }
+            size = count;
+            int deletedCount = version < 4 ? 0 : buffer.getInt();
+            for (int i = 0; i < deletedCount; i++) {
+                int node = buffer.getInt();
+                deleted.set(node);
+                // The same ID may have been indexed again as a later node
+                nodesById.remove(ids[node], node);
+                nodesByTenant.get(metadata[node].getTenant()).clear(node);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load vector snapshot from " + path, e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Binary heap over primitive longs; a max-heap when {@code max} is set
+    private static final class LongHeap {
+        private long[] heap;
+        private int size;
+        private final boolean max;
+
+        LongHeap(int capacity, boolean max) {
+            this.heap = new long[Math.max(4, capacity)];
+            this.max = max;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long peek() {
+            return heap[0];
+        }
+
+        void push(long value) {
+            if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+            int i = size++;
+            heap[i] = value;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(heap[i], heap[parent])) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        long pop() {
+            long top = heap[0];
+            heap[0] = heap[--size];
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) break;
+                int child = left + 1 < size && before(heap[left + 1], heap[left]) ? left + 1 : left;
+                if (!before(heap[child], heap[i])) break;
+                swap(i, child);
+                i = child;
+            }
+            return top;
+        }
+
+        // Empties the heap, returning entries closest first
+        long[] drainAscending() {
+            long[] sorted = new long[size];
+            for (int i = sorted.length - 1; i >= 0 && max; i--) sorted[i] = pop();
+            for (int i = 0; i < sorted.length && !max; i++) sorted[i] = pop();
+            return sorted;
+        }
+
+        private boolean before(long a, long b) {
+            return max ? a > b : a < b;
+        }
+
+        private void swap(int i, int j) {
+            long tmp = heap[i];
+            heap[i] = heap[j];
+            heap[j] = tmp;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package RAGApp;
+
+import io.milvus.param.IndexType;
+import io.milvus.param.MetricType;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * ANN index configuration for the embedding field: index type, metric, build-time
+ * parameters and search-time parameters.
+ *
+ * <p>Use the factory methods for a fixed profile, or {@link #auto(MetricType)} to let the
+ * store pick one from the collection's row count: FLAT for small sets, HNSW for medium ones,
+ * then IVF_SQ8 and IVF_PQ as the collection grows and memory matters more than recall.
+ * Binary profiles ({@link #binaryFlat()}, {@link #binaryIvf}) make the store keep
+ * sign-quantized BinaryVector embeddings compared by Hamming distance.
+ */
+public class IndexProfile {
+    private static final long FLAT_MAX_ROWS = 20_000;
+    private static final long HNSW_MAX_ROWS = 2_000_000;
+    private static final long SQ8_MAX_ROWS = 20_000_000;
+
+    private final IndexType indexType;
+    private final MetricType metricType;
+    private final String buildParams;
+    private final String searchParamName;
+    private final int searchParamValue;
+    private final boolean auto;
+
+    private IndexProfile(IndexType indexType, MetricType metricType, String buildParams,
+                         String searchParamName, int searchParamValue, boolean auto) {
+        this.indexType = indexType;
+        this.metricType = metricType;
+        this.buildParams = buildParams;
+        this.searchParamName = searchParamName;
+        this.searchParamValue = searchParamValue;
+        this.auto = auto;
+    }
+
+    // Brute force: exact results, no build cost; fine for small collections
+    public static IndexProfile flat(MetricType metric) {
+        return new IndexProfile(IndexType.FLAT, metric, "{}", null, 0, false);
+    }
+
+    public static IndexProfile ivfFlat(int nlist, int nprobe, MetricType metric) {
+        return new IndexProfile(IndexType.IVF_FLAT, metric, "{\"nlist\":" + nlist + "}", "nprobe", nprobe, false);
+    }
+
+    // Scalar-quantized IVF: about 4x less memory than IVF_FLAT
+    public static IndexProfile ivfSq8(int nlist, int nprobe, MetricType metric) {
+        return new IndexProfile(IndexType.IVF_SQ8, metric, "{\"nlist\":" + nlist + "}", "nprobe", nprobe, false);
+    }
+
+    /**
+     * Product-quantized IVF: smallest footprint. {@code m} must divide the vector dimension.
+     */
+    public static IndexProfile ivfPq(int nlist, int m, int nbits, int nprobe, MetricType metric) {
+        return new IndexProfile(IndexType.IVF_PQ, metric,
+                "{\"nlist\":" + nlist + ",\"m\":" + m + ",\"nbits\":" + nbits + "}", "nprobe", nprobe, false);
+    }
+
+    public static IndexProfile hnsw(int m, int efConstruction, int ef, MetricType metric) {
+        return new IndexProfile(IndexType.HNSW, metric,
+                "{\"M\":" + m + ",\"efConstruction\":" + efConstruction + "}", "ef", ef, false);
+    }
+
+    // Exact Hamming search over 1-bit codes: 32x smaller than float32 vectors
+    public static IndexProfile binaryFlat() {
+        return new IndexProfile(IndexType.BIN_FLAT, MetricType.HAMMING, "{}", null, 0, false);
+    }
+
+    public static IndexProfile binaryIvf(int nlist, int nprobe) {
+        return new IndexProfile(IndexType.BIN_IVF_FLAT, MetricType.HAMMING, "{\"nlist\":" + nlist + "}", "nprobe", nprobe, false);
+    }
+
+    public static IndexProfile auto(MetricType metric) {
+        return new IndexProfile(IndexType.AUTOINDEX, metric, "{}", null, 0, true);
+    }
+
+    // The profile the store used before profiles existed
+    public static IndexProfile defaultProfile() {
+        return ivfFlat(128, 10, MetricType.L2);
+    }
+
+    /**
+     * Describes an index found on an existing collection, so it can be searched as it is.
+     * Search parameters are this class's defaults for the index type.
+     */
+    public static IndexProfile of(IndexType indexType, MetricType metricType, String buildParams) {
+        String params = buildParams == null || buildParams.isBlank() ? "{}" : buildParams;
+        switch (indexType) {
+            case HNSW:
+                return new IndexProfile(indexType, metricType, params, "ef", 64, false);
+            case IVF_FLAT:
+            case IVF_SQ8:
+            case IVF_PQ:
+            case BIN_IVF_FLAT:
+                return new IndexProfile(indexType, metricType, params, "nprobe", 16, false);
+            default:
+                return new IndexProfile(indexType, metricType, params, null, 0, false);
+        }
+    }
+
+    /**
+     * Resolves an automatic profile to a concrete one for the given collection size.
+     * Concrete profiles resolve to themselves.
+     */
+    public IndexProfile resolve(long rowCount, int dimension) {
+        if (!auto) return this;
+
+        if (rowCount <= FLAT_MAX_ROWS) {
+            return flat(metricType);
+        }
+        if (rowCount <= HNSW_MAX_ROWS) {
+            return hnsw(16, 200, 64, metricType);
+        }
+        int nlist = (int) Math.min(65_536, 4 * Math.sqrt(rowCount));
+        int nprobe = Math.max(16, nlist / 64);
+        if (rowCount <= SQ8_MAX_ROWS || dimension % 8 != 0) {
+            return ivfSq8(nlist, nprobe, metricType);
+        }
+        return ivfPq(nlist, dimension / 8, 8, nprobe, metricType);
+    }
+
+    public boolean isAuto() {
+        return auto;
+    }
+
+    // Whether the embedding field holds binary rather than float vectors
+    public boolean isBinary() {
+        return indexType == IndexType.BIN_FLAT || indexType == IndexType.BIN_IVF_FLAT;
+    }
+
+    /**
+     * Whether an index built with these settings is what this profile would build. Build
+     * parameters are compared by value, since Milvus may echo them back quoted or reordered.
+     */
+    public boolean sameIndex(IndexType indexType, MetricType metricType, String buildParams) {
+        return this.indexType == indexType && this.metricType == metricType
+                && parseParams(this.buildParams).equals(parseParams(buildParams));
+    }
+
+    // {"nlist":128,"m":96} → {nlist=128, m=96}; the build parameters are flat numeric objects
+    private static Map<String, String> parseParams(String json) {
+        Map<String, String> params = new HashMap<>();
+        if (json == null) return params;
+        for (String pair : json.replaceAll("[{}\"\\s]", "").split(",")) {
+            String[] keyValue = pair.split(":", 2);
+            if (keyValue.length == 2) params.put(keyValue[0], keyValue[1]);
+        }
+        return params;
+    }
+
+    public IndexType getIndexType() {
+        return indexType;
+    }
+
+    public MetricType getMetricType() {
+        return metricType;
+    }
+
+    public String getBuildParams() {
+        return buildParams;
+    }
+
+    // HNSW requires ef >= topK, so the search parameter is widened when needed
+    public String searchParams(int topK) {
+        if (searchParamName == null) return "{}";
+        int value = "ef".equals(searchParamName) ? Math.max(searchParamValue, topK) : searchParamValue;
+        return "{\"" + searchParamName + "\":" + value + "}";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof IndexProfile)) return false;
+        IndexProfile other = (IndexProfile) o;
+        return auto == other.auto && indexType == other.indexType && metricType == other.metricType
+                && searchParamValue == other.searchParamValue && Objects.equals(searchParamName, other.searchParamName)
+                && parseParams(buildParams).equals(parseParams(other.buildParams));
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(indexType, metricType, parseParams(buildParams), searchParamName, searchParamValue, auto);
+    }
+
+    @Override
+    public String toString() {
+        return auto ? "AUTO/" + metricType : indexType + "/" + metricType + " " + buildParams;
+    }
+}
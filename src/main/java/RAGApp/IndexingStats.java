@@ -0,0 +1,53 @@
+package RAGApp;
+
+/**
+ * Summary of a batch indexing run, used to tune embedding concurrency.
+ */
+public class IndexingStats {
+    private final long chunksIndexed;
+    private final long chunksSkipped;
+    private final long chunksRemoved;
+    private final long elapsedNanos;
+
+    public IndexingStats(long chunksIndexed, long chunksSkipped, long elapsedNanos) {
+        this(chunksIndexed, chunksSkipped, 0, elapsedNanos);
+    }
+
+    public IndexingStats(long chunksIndexed, long chunksSkipped, long chunksRemoved, long elapsedNanos) {
+        this.chunksIndexed = chunksIndexed;
+        this.chunksSkipped = chunksSkipped;
+        this.chunksRemoved = chunksRemoved;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getChunksIndexed() {
+        return chunksIndexed;
+    }
+
+    // Chunks not embedded because they were already indexed or repeated within the run
+    public long getChunksSkipped() {
+        return chunksSkipped;
+    }
+
+    // Chunks deleted because the new version of their source no longer has them
+    public long getChunksRemoved() {
+        return chunksRemoved;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    public double getChunksPerSecond() {
+        return elapsedNanos == 0 ? 0 : chunksIndexed * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        String summary = String.format("%d chunks in %d ms (%.1f chunks/sec)",
+                chunksIndexed, getElapsedMillis(), getChunksPerSecond());
+        if (chunksSkipped > 0) summary += ", " + chunksSkipped + " already indexed";
+        if (chunksRemoved > 0) summary += ", " + chunksRemoved + " removed";
+        return summary;
+    }
+}
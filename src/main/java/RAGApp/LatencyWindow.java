@@ -0,0 +1,41 @@
+package RAGApp;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window of the most recent latency samples, used to derive percentiles
+ * such as the hedging threshold for embedding calls.
+ */
+public class LatencyWindow {
+    private final long[] samples;
+    private final int minSamples;
+    private int next;
+    private int count;
+
+    /**
+     * @param capacity   Number of recent samples kept
+     * @param minSamples Samples required before percentiles are reported
+     */
+    public LatencyWindow(int capacity, int minSamples) {
+        this.samples = new long[capacity];
+        this.minSamples = minSamples;
+    }
+
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+    }
+
+    /**
+     * @param percentile 0-100
+     * @return The percentile in milliseconds, or -1 while there are too few samples
+     */
+    public synchronized long percentile(double percentile) {
+        if (count < minSamples) return -1;
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
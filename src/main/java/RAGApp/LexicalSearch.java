@@ -0,0 +1,15 @@
+package RAGApp;
+
+import java.util.Map;
+
+/**
+ * Keyword-based retrieval that runs alongside vector search in the ask pipeline.
+ */
+@FunctionalInterface
+public interface LexicalSearch {
+
+    /**
+     * @return Up to topK matching chunks as ID → text, best match first
+     */
+    Map<Long, String> search(String query, int topK);
+}
@@ -0,0 +1,142 @@
+package RAGApp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Markdown, split per section: chunks never span an ATX heading ({@code #} … {@code ######}),
+ * and each chunk's section is its heading path, e.g. "Setup > Milvus". Headings inside
+ * fenced code blocks are ignored. Files are read line by line; a section longer than
+ * 64K characters is split in windows like plain text, so memory stays bounded.
+ */
+public class MarkdownDocumentParser implements DocumentParser {
+    private static final int WINDOW_CHARS = 64 * 1024;
+    private static final String SECTION_SEPARATOR = " > ";
+
+    @Override
+    public boolean supports(Path file) {
+        String extension = DocumentParser.extensionOf(file);
+        return extension.equals("md") || extension.equals("markdown");
+    }
+
+    @Override
+    public Stream<DocumentChunk> parse(Path file, TextSplitter splitter) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        ChunkMetadata document = ChunkMetadata.forFile(file);
+
+        Iterator<DocumentChunk> chunks = new Iterator<>() {
+            private final String[] headings = new String[7];
+            private final StringBuilder body = new StringBuilder();
+            private final ArrayDeque<DocumentChunk> ready = new ArrayDeque<>();
+            private final List<int[]> spans = new ArrayList<>();
+            private ChunkMetadata metadata = document;
+            private boolean inFence = false;
+            private boolean eof = false;
+
+            private void fill() {
+                try {
+                    while (ready.isEmpty() && !eof) {
+                        String line = reader.readLine();
+                        if (line == null) {
+                            eof = true;
+                            emit(true);
+                            break;
+                        }
+                        String stripped = line.strip();
+                        if (stripped.startsWith("```") || stripped.startsWith("~~~")) inFence = !inFence;
+
+                        int level = inFence ? 0 : headingLevel(line);
+                        if (level > 0) {
+                            emit(true);
+                            headings[level] = headingText(stripped, level);
+                            for (int l = level + 1; l < headings.length; l++) headings[l] = null;
+                            metadata = document.withPage(0, sectionPath());
+                        }
+                        body.append(line).append('\n');
+                        if (body.length() >= WINDOW_CHARS) emit(false);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read " + file, e);
+                }
+            }
+
+            // Splits the buffered text; unless the section ended, the last chunk is carried over
+            private void emit(boolean sectionEnd) {
+                spans.clear();
+                splitter.split(body, (text, start, end) -> spans.add(new int[]{start, end}));
+                int complete = sectionEnd ? spans.size() : spans.size() - 1;
+                for (int i = 0; i < complete; i++) {
+                    ready.add(new DocumentChunk(body.substring(spans.get(i)[0], spans.get(i)[1]), metadata));
+                }
+                if (sectionEnd) body.setLength(0);
+                else if (complete > 0) body.delete(0, spans.get(complete)[0]);
+            }
+
+            private String sectionPath() {
+                StringBuilder path = new StringBuilder();
+                for (String heading : headings) {
+                    if (heading == null || heading.isEmpty()) continue;
+                    if (path.length() > 0) path.append(SECTION_SEPARATOR);
+                    path.append(heading);
+                }
+                return path.toString();
+            }
+
+            @Override
+            public boolean hasNext() {
+                fill();
+                return !ready.isEmpty();
+            }
+
+            @Override
+            public DocumentChunk next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return ready.poll();
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        System.err.println("⚠ Failed to close " + file + ": " + e.getMessage());
+                    }
+                });
+    }
+
+    // 1-6 for an ATX heading line (at most 3 spaces of indentation), otherwise 0
+    static int headingLevel(String line) {
+        int pos = 0;
+        while (pos < line.length() && pos < 3 && line.charAt(pos) == ' ') pos++;
+        int level = 0;
+        while (pos < line.length() && line.charAt(pos) == '#') {
+            level++;
+            pos++;
+        }
+        if (level == 0 || level > 6) return 0;
+        return pos == line.length() || Character.isWhitespace(line.charAt(pos)) ? level : 0;
+    }
+
+    // Heading text without the opening and optional closing run of '#'
+    private static String headingText(String stripped, int level) {
+        String text = stripped.substring(level).strip();
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) == '#') end--;
+        if (end == 0 || Character.isWhitespace(text.charAt(end - 1))) text = text.substring(0, end);
+        return text.strip();
+    }
+}
@@ -1,5 +1,9 @@
 package RAGApp;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
 import io.milvus.client.MilvusServiceClient;
 import io.milvus.grpc.*;
 import io.milvus.param.*;
@@ -7,35 +11,226 @@ import io.milvus.param.collection.*;
 import io.milvus.param.dml.*;
 import io.milvus.param.highlevel.collection.ListCollectionsParam;
 import io.milvus.param.index.*;
+import io.milvus.response.DescIndexResponseWrapper;
+import io.milvus.response.GetCollStatResponseWrapper;
 import io.milvus.response.QueryResultsWrapper;
 import io.milvus.response.SearchResultsWrapper;
 
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
-public class MilvusVectorStore implements AutoCloseable {
+public class MilvusVectorStore implements VectorStore {
     private final MilvusServiceClient milvusClient;
     private final String collectionName;
     private final int dimension;
-    private long currentId = 1;
+    private final IndexProfile requestedProfile;
+    private volatile IndexProfile activeProfile;
+    // Whether an existing collection indexed differently may be re-indexed (and its metric changed)
+    private final boolean rebuildExistingIndex;
+    // Set when the index in use was found on an existing collection rather than resolved from the requested profile
+    private volatile boolean adoptedIndex;
+    // Set when that index is kept for good: a fixed profile, or a different metric, was requested
+    private volatile boolean keepingExistingIndex;
+    // Row count activeProfile was resolved for, remembered in the manifest
+    private volatile long profileRows;
+    private final StartupManifest manifest;
+    private final String manifestKey;
+    // Completes once the collection handshake and load are done; every Milvus call waits for it
+    private final CompletableFuture<Void> ready;
 
-    private final List<Long> pendingIds = new ArrayList<>();
-    private final List<List<Float>> pendingEmbeddings = new ArrayList<>();
-    private final List<String> pendingTexts = new ArrayList<>();
+    // Synchronous write buffer, striped by thread so concurrent writers don't share one lock
+    private static final int WRITE_STRIPES = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors())) * 2;
+    private final WriteStripe[] writeStripes = new WriteStripe[WRITE_STRIPES];
     private static final int BATCH_SIZE = 50;
-    private long lastFlushTime = 0;
     private static final long FLUSH_INTERVAL_MS = 12000;
+    private static final int EXISTENCE_CHECK_BATCH = 1000;
+    // Sources per query when listing a source's chunks, and Milvus' cap on rows per query
+    private static final int SOURCES_PER_QUERY = 100;
+    private static final long MAX_QUERY_ROWS = 16_384;
+
+    // Chunk metadata columns; collections created before they existed keep working without them.
+    // tenant is the partition key, so a tenant filter only searches that tenant's partition.
+    private static final List<String> METADATA_FIELDS = Arrays.asList("source", "page", "section", "tenant", "updated_at");
+    private static final int METADATA_MAX_LENGTH = 2048;
+    private static final int METADATA_CACHE_SIZE = 100_000;
+
+    // Async write path: bounded queue drained by a background writer in large inserts
+    private static final int WRITE_QUEUE_CAPACITY = 10_000;
+    private static final int MAX_WRITE_BATCH_ROWS = 5_000;
+    private static final long MAX_WRITE_BATCH_BYTES = 16L * 1024 * 1024;
+    private static final long SEAL_INTERVAL_MS = 60_000;
+
+    private final BlockingQueue<PendingRow> writeQueue = new ArrayBlockingQueue<>(WRITE_QUEUE_CAPACITY);
+    private final int writeBatchRows;
+    private final Thread writer;
+    private final ScheduledExecutorService sealScheduler;
+    private volatile boolean closed = false;
+    private final Timer insertTimer;
+    private final DistributionSummary insertRows;
+    private final Timer sealTimer;
+    // Rows queued for the background writer and not yet inserted, and the first insert failure
+    // among them since awaitPendingWrites last reported one
+    private final Object pendingLock = new Object();
+    private long pendingAsyncRows;
+    private Throwable asyncWriteFailure;
+    private Set<String> metadataFields = Collections.emptySet();
+    // Metadata of recently inserted or returned rows, so citations need no extra query
+    private final Cache<Long, ChunkMetadata> recentMetadata = Caffeine.newBuilder()
+            .maximumSize(METADATA_CACHE_SIZE)
+            .build();
 
     public MilvusVectorStore(int dimension, String host, int port, String collectionName) {
+        this(dimension, host, port, collectionName, IndexProfile.defaultProfile());
+    }
+
+    /**
+     * @param indexProfile ANN index for the embedding field of a new collection. An existing
+     *                     collection indexed differently keeps its index (and metric). A binary
+     *                     profile stores sign-quantized vectors in a BinaryVector field instead,
+     *                     which needs a collection created that way.
+     */
+    public MilvusVectorStore(int dimension, String host, int port, String collectionName, IndexProfile indexProfile) {
+        this(dimension, host, port, collectionName, indexProfile, null);
+    }
+
+    /**
+     * Fast start: returns without waiting for Milvus. The collection handshake and load run on a
+     * background thread, so the caller can warm up the embedder or read documents meanwhile;
+     * the first insert or search waits for them. A handshake recorded in the manifest by an
+     * earlier run is trusted, which leaves only the load call.
+     *
+     * @param manifest Where the handshake is remembered; {@code null} initializes synchronously
+     */
+    public MilvusVectorStore(int dimension, String host, int port, String collectionName, IndexProfile indexProfile,
+                             StartupManifest manifest) {
+        this(dimension, host, port, collectionName, indexProfile, manifest, false);
+    }
+
+    /**
+     * @param rebuildExistingIndex Re-index an existing collection whose index differs from
+     *                             {@code indexProfile}, even if that changes its metric. The
+     *                             collection can't be searched while the index rebuilds.
+     */
+    public MilvusVectorStore(int dimension, String host, int port, String collectionName, IndexProfile indexProfile,
+                             StartupManifest manifest, boolean rebuildExistingIndex) {
         this.dimension = dimension;
         this.collectionName = collectionName;
+        this.requestedProfile = indexProfile;
+        this.rebuildExistingIndex = rebuildExistingIndex;
+        this.manifest = manifest;
+        this.manifestKey = host + ":" + port + "/" + collectionName;
         this.milvusClient = new MilvusServiceClient(
                 ConnectParam.newBuilder()
                         .withHost(host)
                         .withPort(port)
                         .withConnectTimeout(10, TimeUnit.SECONDS)
+                        // One multiplexed gRPC channel is shared by every thread; keep it warm between requests
+                        .withKeepAliveTime(30, TimeUnit.SECONDS)
+                        .withKeepAliveTimeout(10, TimeUnit.SECONDS)
+                        .keepAliveWithoutCalls(true)
                         .build());
+        this.insertTimer = RagMetrics.timer("rag.store.insert", "Milvus insert requests", "collection", collectionName);
+        this.insertRows = RagMetrics.summary("rag.store.insert.rows", "Rows per Milvus insert", "rows", "collection", collectionName);
+        this.sealTimer = RagMetrics.timer("rag.store.flush", "Milvus flush (segment seal) requests", "collection", collectionName);
+        RagMetrics.gauge("rag.store.write.queue", "Rows waiting for the background Milvus writer",
+                writeQueue, BlockingQueue::size, "collection", collectionName);
+        for (int i = 0; i < writeStripes.length; i++) {
+            writeStripes[i] = new WriteStripe();
+        }
+        if (manifest == null) {
+            createCollectionIfNotExists();
+            this.ready = CompletableFuture.completedFuture(null);
+        } else {
+            this.ready = new CompletableFuture<>();
+            Thread init = new Thread(() -> {
+                try {
+                    initialize();
+                    ready.complete(null);
+                } catch (Throwable e) {
+                    System.err.println("❌ Milvus collection " + collectionName + " failed to initialize: " + e.getMessage());
+                    ready.completeExceptionally(e);
+                }
+            }, "milvus-init-" + collectionName);
+            init.setDaemon(true);
+            init.start();
+        }
+
+        // Size batches so one insert stays well below the gRPC message limit
+        long approxRowBytes = (requestedProfile.isBinary() ? dimension / 8 : dimension * 4L) + 2048;
+        this.writeBatchRows = (int) Math.max(1, Math.min(MAX_WRITE_BATCH_ROWS, MAX_WRITE_BATCH_BYTES / approxRowBytes));
+
+        this.writer = new Thread(this::runWriter, "milvus-writer-" + collectionName);
+        this.writer.setDaemon(true);
+        this.writer.start();
+
+        this.sealScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "milvus-sealer-" + collectionName);
+            t.setDaemon(true);
+            return t;
+        });
+        this.sealScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                seal(false);
+            } catch (Exception e) {
+                System.err.println("⚠️ Scheduled Milvus flush failed: " + e.getMessage());
+            }
+        }, SEAL_INTERVAL_MS, SEAL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Background initialization: the cached handshake if it still fits, otherwise the full one
+    private void initialize() {
+        long start = System.nanoTime();
+        StartupManifest.CollectionState known = manifest.collection(manifestKey);
+        if (known != null && known.dimension == dimension && known.profile.equals(requestedProfile.toString())) {
+            metadataFields = new LinkedHashSet<>(known.metadataFields);
+            profileRows = known.rows;
+            activeProfile = requestedProfile.resolve(known.rows, dimension);
+            R<RpcStatus> loadResponse = milvusClient.loadCollection(
+                    LoadCollectionParam.newBuilder()
+                            .withCollectionName(collectionName)
+                            .build());
+            if (loadResponse.getStatus() == 0) {
+                System.out.printf("⚡ Collection %s loaded with cached schema in %d ms%n",
+                        collectionName, (System.nanoTime() - start) / 1_000_000);
+                return;
+            }
+            // Dropped or changed behind our back: forget it and do the full handshake
+            System.out.println("⚠️ Cached schema for " + collectionName + " is stale: " + loadResponse.getMessage());
+            manifest.removeCollection(manifestKey);
+        }
         createCollectionIfNotExists();
+        rememberHandshake();
+        System.out.printf("✅ Collection %s ready in %d ms%n", collectionName, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void rememberHandshake() {
+        if (manifest != null && adoptedIndex) {
+            // The cached handshake assumes the requested profile is in use; check the index every start instead
+            manifest.removeCollection(manifestKey);
+        } else if (manifest != null) {
+            manifest.putCollection(manifestKey, new StartupManifest.CollectionState(
+                    dimension, requestedProfile.toString(), profileRows, metadataFields));
+        }
+    }
+
+    private void awaitReady() {
+        if (ready.isDone() && !ready.isCompletedExceptionally()) return;
+        try {
+            ready.join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Milvus collection " + collectionName + " is unavailable", e.getCause());
+        }
+    }
+
+    // Completes once the collection is loaded and searchable
+    public CompletableFuture<Void> ready() {
+        return ready;
     }
 
     private void createCollectionIfNotExists() {
@@ -55,9 +250,10 @@ public class MilvusVectorStore implements AutoCloseable {
                         .withAutoID(false)
                         .build();
 
+                // Binary vectors are declared in bits, one per float dimension
                 FieldType vectorField = FieldType.newBuilder()
                         .withName("embedding")
-                        .withDataType(DataType.FloatVector)
+                        .withDataType(requestedProfile.isBinary() ? DataType.BinaryVector : DataType.FloatVector)
                         .withDimension(dimension)
                         .build();
 
@@ -67,6 +263,35 @@ public class MilvusVectorStore implements AutoCloseable {
                         .withMaxLength(65535)
                         .build();
 
+                FieldType sourceField = FieldType.newBuilder()
+                        .withName("source")
+                        .withDataType(DataType.VarChar)
+                        .withMaxLength(METADATA_MAX_LENGTH)
+                        .build();
+
+                FieldType pageField = FieldType.newBuilder()
+                        .withName("page")
+                        .withDataType(DataType.Int32)
+                        .build();
+
+                FieldType sectionField = FieldType.newBuilder()
+                        .withName("section")
+                        .withDataType(DataType.VarChar)
+                        .withMaxLength(METADATA_MAX_LENGTH)
+                        .build();
+
+                FieldType tenantField = FieldType.newBuilder()
+                        .withName("tenant")
+                        .withDataType(DataType.VarChar)
+                        .withMaxLength(ChunkMetadata.MAX_TENANT_BYTES)
+                        .withPartitionKey(true)
+                        .build();
+
+                FieldType updatedAtField = FieldType.newBuilder()
+                        .withName("updated_at")
+                        .withDataType(DataType.Int64)
+                        .build();
+
                 R<RpcStatus> createResponse = milvusClient.createCollection(
                         CreateCollectionParam.newBuilder()
                                 .withCollectionName(collectionName)
@@ -75,24 +300,20 @@ public class MilvusVectorStore implements AutoCloseable {
                                 .addFieldType(idField)
                                 .addFieldType(vectorField)
                                 .addFieldType(textField)
+                                .addFieldType(sourceField)
+                                .addFieldType(pageField)
+                                .addFieldType(sectionField)
+                                .addFieldType(tenantField)
+                                .addFieldType(updatedAtField)
                                 .build());
 
                 if (createResponse.getStatus()!=0) {
                     throw new RuntimeException("Collection creation failed: " + createResponse.getMessage());
                 }
+                metadataFields = new LinkedHashSet<>(METADATA_FIELDS);
 
-                R<RpcStatus> indexResponse = milvusClient.createIndex(
-                        CreateIndexParam.newBuilder()
-                                .withCollectionName(collectionName)
-                                .withFieldName("embedding")
-                                .withIndexType(IndexType.IVF_FLAT)
-                                .withMetricType(MetricType.L2)
-                                .withExtraParam("{\"nlist\":128}")
-                                .build());
-
-                if (indexResponse.getStatus()!=0) {
-                    throw new RuntimeException("Index creation failed: " + indexResponse.getMessage());
-                }
+                profileRows = 0;
+                createIndex(requestedProfile.resolve(0, dimension));
 
                 R<RpcStatus> loadResponse = milvusClient.loadCollection(
                         LoadCollectionParam.newBuilder()
@@ -114,6 +335,13 @@ public class MilvusVectorStore implements AutoCloseable {
                 Set<String> fieldNames = new HashSet<>();
                 for (FieldSchema field : fields) {
                     fieldNames.add(field.getName());
+                    if (field.getName().equals("embedding")) {
+                        DataType expected = requestedProfile.isBinary() ? DataType.BinaryVector : DataType.FloatVector;
+                        if (field.getDataType() != expected) {
+                            throw new RuntimeException("Collection " + collectionName + " stores " + field.getDataType()
+                                    + " embeddings but the index profile needs " + expected + "; use another collection name");
+                        }
+                    }
                 }
 
                 List<String> missingFields = new ArrayList<>();
@@ -127,6 +355,42 @@ public class MilvusVectorStore implements AutoCloseable {
                     throw new RuntimeException("Collection exists but missing required fields: " + missingFields);
                 }
 
+                metadataFields = new LinkedHashSet<>(METADATA_FIELDS);
+                metadataFields.retainAll(fieldNames);
+                if (metadataFields.size() < METADATA_FIELDS.size()) {
+                    List<String> missing = new ArrayList<>(METADATA_FIELDS);
+                    missing.removeAll(metadataFields);
+                    System.out.println("⚠️ Collection " + collectionName + " has no " + missing + " fields;"
+                            + " that metadata won't be stored or filterable. Drop and re-index it to enable them.");
+                }
+
+                profileRows = countRows();
+                IndexProfile target = requestedProfile.resolve(profileRows, dimension);
+                DescIndexResponseWrapper.IndexDesc existing = describeEmbeddingIndex();
+                if (existing == null) {
+                    createIndex(target);
+                } else if (target.sameIndex(existing.getIndexType(), existing.getMetricType(), existing.getExtraParam())) {
+                    activeProfile = target;
+                } else if (rebuildExistingIndex) {
+                    if (existing.getMetricType() != target.getMetricType()) {
+                        System.out.println("⚠️ Changing the metric of " + collectionName + " from " + existing.getMetricType()
+                                + " to " + target.getMetricType() + "; similarity scores change with it");
+                    }
+                    rebuildIndex(target);
+                } else {
+                    adoptedIndex = true;
+                    activeProfile = IndexProfile.of(existing.getIndexType(), existing.getMetricType(), existing.getExtraParam());
+                    // An automatic profile with the same metric may move the index on after the next ingest
+                    keepingExistingIndex = !requestedProfile.isAuto() || existing.getMetricType() != target.getMetricType();
+                    if (keepingExistingIndex) {
+                        System.out.println("⚠️ Collection " + collectionName + " is indexed as " + activeProfile + ", not "
+                                + target + "; keeping its index. Enable index rebuilding to switch.");
+                    } else {
+                        System.out.println("📐 Collection " + collectionName + " is indexed as " + activeProfile + "; "
+                                + target + " suits its size and is applied after the next indexing run");
+                    }
+                }
+
                 R<RpcStatus> loadResponse = milvusClient.loadCollection(
                         LoadCollectionParam.newBuilder()
                                 .withCollectionName(collectionName)
@@ -141,6 +405,113 @@ public class MilvusVectorStore implements AutoCloseable {
         }
     }
 
+    private void createIndex(IndexProfile profile) {
+        R<RpcStatus> indexResponse = milvusClient.createIndex(
+                CreateIndexParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .withFieldName("embedding")
+                        .withIndexType(profile.getIndexType())
+                        .withMetricType(profile.getMetricType())
+                        .withExtraParam(profile.getBuildParams())
+                        .build());
+
+        if (indexResponse.getStatus()!=0) {
+            throw new RuntimeException("Index creation failed: " + indexResponse.getMessage());
+        }
+        activeProfile = profile;
+        System.out.println("📐 Index profile: " + profile);
+    }
+
+    private DescIndexResponseWrapper.IndexDesc describeEmbeddingIndex() {
+        R<DescribeIndexResponse> response = milvusClient.describeIndex(
+                DescribeIndexParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .build());
+        if (response.getStatus()!=0) {
+            return null;
+        }
+        return new DescIndexResponseWrapper(response.getData()).getIndexDescByFieldName("embedding");
+    }
+
+    // Releases the collection, swaps the embedding index and loads it again
+    private void rebuildIndex(IndexProfile profile) {
+        System.out.println("🔁 Rebuilding index on " + collectionName + " as " + profile);
+        milvusClient.releaseCollection(ReleaseCollectionParam.newBuilder()
+                .withCollectionName(collectionName)
+                .build());
+        milvusClient.dropIndex(DropIndexParam.newBuilder()
+                .withCollectionName(collectionName)
+                .build());
+        createIndex(profile);
+        R<RpcStatus> loadResponse = milvusClient.loadCollection(
+                LoadCollectionParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .build());
+        if (loadResponse.getStatus()!=0) {
+            throw new RuntimeException("Collection loading failed: " + loadResponse.getMessage());
+        }
+    }
+
+    public long rowCount() {
+        awaitReady();
+        return countRows();
+    }
+
+    private long countRows() {
+        R<GetCollectionStatisticsResponse> response = milvusClient.getCollectionStatistics(
+                GetCollectionStatisticsParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .build());
+        if (response.getStatus()!=0) {
+            throw new RuntimeException("Failed to read collection statistics: " + response.getMessage());
+        }
+        return new GetCollStatResponseWrapper(response.getData()).getRowCount();
+    }
+
+    /**
+     * For an automatic index profile, re-evaluates the best profile for the current row count
+     * and rebuilds the index if it changed. Call after large ingests; a no-op for fixed profiles
+     * and for an existing collection whose own index is being kept.
+     *
+     * @return The profile in use afterwards
+     */
+    public IndexProfile reselectIndexProfile() {
+        return reselectIndexProfile(true);
+    }
+
+    /**
+     * Like {@link #reselectIndexProfile()}, but with {@code allowRebuild} false only search parameters
+     * are switched. Rebuilding releases the collection, so searches served meanwhile would fail.
+     *
+     * @return The profile in use afterwards
+     */
+    public IndexProfile reselectIndexProfile(boolean allowRebuild) {
+        if (!requestedProfile.isAuto() || keepingExistingIndex) {
+            return activeProfile;
+        }
+        checkpoint();
+        long rows = rowCount();
+        IndexProfile target = requestedProfile.resolve(rows, dimension);
+        if (target.sameIndex(activeProfile.getIndexType(), activeProfile.getMetricType(), activeProfile.getBuildParams())) {
+            // At most the search parameters differ, which needs no rebuild
+            activeProfile = target;
+        } else if (allowRebuild) {
+            rebuildIndex(target);
+        } else {
+            System.out.println("📐 Collection " + collectionName + " has " + rows + " rows and would suit " + target
+                    + "; keeping " + activeProfile + " while serving. It is rebuilt after the next foreground indexing run.");
+            return activeProfile;
+        }
+        adoptedIndex = false;
+        profileRows = rows;
+        rememberHandshake();
+        return activeProfile;
+    }
+
+    public IndexProfile getIndexProfile() {
+        return activeProfile;
+    }
+
     public boolean isConnected() {
         try {
             return milvusClient != null &&
@@ -150,92 +521,551 @@ public class MilvusVectorStore implements AutoCloseable {
         }
     }
 
-    public void index(String text, float[] embeddingArray) {
-        List<Float> embedding = new ArrayList<>();
-        for (float f : embeddingArray) {
-            embedding.add(f);
+    @Override
+    public void index(long id, String text, float[] embeddingArray) {
+        index(id, text, embeddingArray, ChunkMetadata.NONE);
+    }
+
+    @Override
+    public void index(long id, String text, float[] embeddingArray, ChunkMetadata metadata) {
+        WriteStripe stripe = writeStripes[(int) Thread.currentThread().getId() & (writeStripes.length - 1)];
+        RowBatch full = stripe.add(id, text, embeddingArray, metadata);
+        if (full != null) {
+            insert(full.ids, full.embeddings, full.texts, full.metadata);
         }
+    }
 
-        pendingIds.add(currentId);
-        pendingEmbeddings.add(embedding);
-        pendingTexts.add(text);
+    /**
+     * Queues a row for the background writer and returns immediately.
+     * Blocks only when the write queue is full (backpressure).
+     *
+     * @return A future completed with the row ID once Milvus has accepted the insert
+     */
+    @Override
+    public CompletableFuture<Long> indexAsync(long id, String text, float[] embeddingArray) {
+        return indexAsync(id, text, embeddingArray, ChunkMetadata.NONE);
+    }
 
-        if (pendingIds.size() >= BATCH_SIZE ||
-                System.currentTimeMillis() - lastFlushTime > FLUSH_INTERVAL_MS) {
-            flush();
+    @Override
+    public CompletableFuture<Long> indexAsync(long id, String text, float[] embeddingArray, ChunkMetadata metadata) {
+        if (closed) {
+            throw new IllegalStateException("Vector store is closed");
         }
 
-        currentId++;
+        PendingRow row = new PendingRow(id, text, embeddingArray, metadata);
+        synchronized (pendingLock) {
+            pendingAsyncRows++;
+        }
+        try {
+            writeQueue.put(row);
+        } catch (InterruptedException e) {
+            writeFinished(1, null);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for write queue space", e);
+        }
+        // The writer may have seen an empty queue and exited between the check above and the put
+        if (closed && writeQueue.remove(row)) {
+            abandon(List.of(row));
+        }
+        return row.future;
     }
 
-    private void flush() {
-        if (pendingIds.isEmpty()) return;
+    // Fails rows the writer will never pick up, so their futures and awaitPendingWrites() don't hang
+    private void abandon(List<PendingRow> rows) {
+        if (rows.isEmpty()) return;
+        IllegalStateException closedError = new IllegalStateException("Vector store is closed");
+        for (PendingRow row : rows) {
+            row.future.completeExceptionally(closedError);
+        }
+        writeFinished(rows.size(), closedError);
+    }
 
-        List<InsertParam.Field> fields = new ArrayList<>();
-        fields.add(new InsertParam.Field("id", pendingIds));
-        fields.add(new InsertParam.Field("embedding", pendingEmbeddings));
-        fields.add(new InsertParam.Field("text", pendingTexts));
+    private void runWriter() {
+        List<PendingRow> batch = new ArrayList<>(writeBatchRows);
+        while (true) {
+            PendingRow first;
+            try {
+                first = writeQueue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = writeQueue.poll();
+            }
+            if (first == null) {
+                if (closed) return;
+                continue;
+            }
+
+            batch.add(first);
+            writeQueue.drainTo(batch, writeBatchRows - 1);
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<PendingRow> batch) {
+        List<Long> ids = new ArrayList<>(batch.size());
+        List<float[]> embeddings = new ArrayList<>(batch.size());
+        List<String> texts = new ArrayList<>(batch.size());
+        List<ChunkMetadata> metadata = new ArrayList<>(batch.size());
+        for (PendingRow row : batch) {
+            ids.add(row.id);
+            embeddings.add(row.embedding);
+            texts.add(row.text);
+            metadata.add(row.metadata);
+        }
+
+        try {
+            insert(ids, embeddings, texts, metadata);
+            for (PendingRow row : batch) {
+                row.future.complete(row.id);
+            }
+            writeFinished(batch.size(), null);
+        } catch (Exception e) {
+            for (PendingRow row : batch) {
+                row.future.completeExceptionally(e);
+            }
+            writeFinished(batch.size(), e);
+        }
+    }
 
+    private void writeFinished(int rows, Throwable failure) {
+        synchronized (pendingLock) {
+            pendingAsyncRows -= rows;
+            if (failure != null && asyncWriteFailure == null) asyncWriteFailure = failure;
+            pendingLock.notifyAll();
+        }
+    }
+
+    // Insert buffered rows; sealing segments is left to the scheduler, checkpoint() and close()
+    private void flush() {
+        for (WriteStripe stripe : writeStripes) {
+            RowBatch rows = stripe.drain();
+            if (rows != null) {
+                insert(rows.ids, rows.embeddings, rows.texts, rows.metadata);
+            }
+        }
+    }
+
+    private void insert(List<Long> ids, List<float[]> embeddings, List<String> texts, List<ChunkMetadata> metadata) {
+        awaitReady();
+        long start = System.nanoTime();
         R<MutationResult> insertResult = milvusClient.insert(
-                InsertParam.newBuilder()
-                        .withCollectionName(collectionName)
-                        .withFields(fields)
-                        .build());
+                buildInsertParam(collectionName, ids, embeddings, texts, metadata, metadataFields, requestedProfile.isBinary()));
+        insertTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        insertRows.record(ids.size());
 
         if (insertResult.getStatus()!=0) {
             throw new RuntimeException("Insert failed: " + insertResult.getMessage());
         }
+        if (!metadataFields.isEmpty()) {
+            for (int i = 0; i < ids.size(); i++) {
+                if (!metadata.get(i).isEmpty()) recentMetadata.put(ids.get(i), metadata.get(i));
+            }
+        }
+    }
+
+    // The SDK only accepts boxed vectors, so this is the single place float[] rows get converted
+    static InsertParam buildInsertParam(String collectionName, List<Long> ids, List<float[]> embeddings, List<String> texts) {
+        return buildInsertParam(collectionName, ids, embeddings, texts, null, Collections.emptySet(), false);
+    }
+
+    // Only the metadata fields the collection has are written
+    static InsertParam buildInsertParam(String collectionName, List<Long> ids, List<float[]> embeddings, List<String> texts,
+                                        List<ChunkMetadata> metadata, Set<String> metadataFields, boolean binary) {
+        List<InsertParam.Field> fields = new ArrayList<>();
+        fields.add(new InsertParam.Field("id", ids));
+        fields.add(new InsertParam.Field("embedding", vectorData(embeddings, binary)));
+        fields.add(new InsertParam.Field("text", texts));
+        if (metadata != null) {
+            for (String field : metadataFields) {
+                List<Object> values = new ArrayList<>(metadata.size());
+                for (ChunkMetadata row : metadata) {
+                    values.add(metadataValue(row, field));
+                }
+                fields.add(new InsertParam.Field(field, values));
+            }
+        }
 
-        milvusClient.flush(FlushParam.newBuilder()
+        return InsertParam.newBuilder()
+                .withCollectionName(collectionName)
+                .withFields(fields)
+                .build();
+    }
+
+    private void seal(boolean sync) {
+        awaitReady();
+        long start = System.nanoTime();
+        R<FlushResponse> flushResponse = milvusClient.flush(FlushParam.newBuilder()
                 .withCollectionNames(Collections.singletonList(collectionName))
-                .withSyncFlush(true)
+                .withSyncFlush(sync)
                 .build());
+        sealTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (flushResponse.getStatus()!=0) {
+            throw new RuntimeException("Flush failed: " + flushResponse.getMessage());
+        }
+    }
+
+    /**
+     * Waits until every row handed to {@link #index} or {@link #indexAsync} so far has been inserted.
+     * With other threads still queueing rows, this also waits for theirs.
+     *
+     * @throws CompletionException If a queued insert failed since the last call; the failure is reported once
+     */
+    @Override
+    public void awaitPendingWrites() {
+        flush();
+        Throwable failure;
+        synchronized (pendingLock) {
+            while (pendingAsyncRows > 0) {
+                try {
+                    pendingLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for pending writes", e);
+                }
+            }
+            failure = asyncWriteFailure;
+            asyncWriteFailure = null;
+        }
+        if (failure != null) {
+            throw new CompletionException("Queued Milvus insert failed", failure);
+        }
+    }
 
-        pendingIds.clear();
-        pendingEmbeddings.clear();
-        pendingTexts.clear();
-        lastFlushTime = System.currentTimeMillis();
+    /**
+     * Inserts all pending rows and synchronously flushes the collection so they are durable.
+     */
+    @Override
+    public void checkpoint() {
+        awaitPendingWrites();
+        seal(true);
     }
 
-    public Map<Long, String> search(float[] queryEmbedding, int topK) {
-        List<List<Float>> vectorsToSearch = new ArrayList<>();
-        List<Float> vector = new ArrayList<>();
-        for (float f : queryEmbedding) vector.add(f);
-        vectorsToSearch.add(vector);
+    /**
+     * Returns the subset of the given IDs that already exist in the collection.
+     * Used to skip chunks that an earlier run has already embedded and stored.
+     */
+    @Override
+    public Set<Long> existingIds(Collection<Long> ids) {
+        return existingIds(ids, SearchFilter.NONE);
+    }
 
-        SearchParam searchParam = SearchParam.newBuilder()
-                .withCollectionName(collectionName)
-                .withMetricType(MetricType.L2)
-                .withOutFields(Arrays.asList("id", "text"))  // 🟢 نطلب النص كمان
-                .withTopK(topK)
-                .withVectors(vectorsToSearch)
-                .withVectorFieldName("embedding")
-                .withParams("{\"nprobe\":10}")
-                .build();
+    /**
+     * Returns the subset of the given IDs that exist and match the filter, in one primary-key
+     * query per thousand IDs with the filter pushed down.
+     */
+    @Override
+    public Set<Long> existingIds(Collection<Long> ids, SearchFilter filter) {
+        awaitReady();
+        String expression = filterExpression(filter);
+        Set<Long> existing = new HashSet<>();
+        List<Long> idList = new ArrayList<>(ids);
+
+        for (int from = 0; from < idList.size(); from += EXISTENCE_CHECK_BATCH) {
+            List<Long> slice = idList.subList(from, Math.min(idList.size(), from + EXISTENCE_CHECK_BATCH));
+            R<QueryResults> queryResults = milvusClient.query(
+                    QueryParam.newBuilder()
+                            .withCollectionName(collectionName)
+                            .withExpr(expression.isEmpty() ? "id in " + slice : "id in " + slice + " && " + expression)
+                            .withOutFields(Collections.singletonList("id"))
+                            .build());
+
+            if (queryResults.getStatus()!=0) {
+                throw new RuntimeException("Existence check failed: " + queryResults.getMessage());
+            }
+
+            QueryResultsWrapper wrapper = new QueryResultsWrapper(queryResults.getData());
+            for (Object id : wrapper.getFieldWrapper("id").getFieldData()) {
+                existing.add((Long) id);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Lists the chunks of the given sources, one query per {@value #SOURCES_PER_QUERY} sources.
+     * A query that hits Milvus' row cap is split into two halves of its ID range and retried.
+     *
+     * @throws IllegalArgumentException If this collection has no source (or, for a named tenant, tenant) field
+     */
+    @Override
+    public Set<Long> idsForSources(String tenant, Collection<String> sources) {
+        awaitReady();
+        if (!metadataFields.contains("source") || !tenant.isEmpty() && !metadataFields.contains("tenant")) {
+            throw new IllegalArgumentException("Collection " + collectionName
+                    + " has no source or tenant field; drop and re-index it to add these fields");
+        }
+        Set<Long> ids = new HashSet<>();
+        List<String> sourceList = new ArrayList<>(sources);
+        for (int from = 0; from < sourceList.size(); from += SOURCES_PER_QUERY) {
+            StringJoiner quoted = new StringJoiner(", ", "[", "]");
+            for (String source : sourceList.subList(from, Math.min(sourceList.size(), from + SOURCES_PER_QUERY))) {
+                quoted.add(SearchFilter.quote(clip(source)));
+            }
+            String expression = "source in " + quoted;
+            if (metadataFields.contains("tenant")) expression = "tenant == " + SearchFilter.quote(tenant) + " && " + expression;
+            collectIds(expression, 0, Long.MAX_VALUE, ids);
+        }
+        return ids;
+    }
+
+    // IDs matching the expression within [fromId, toId)
+    private void collectIds(String expression, long fromId, long toId, Set<Long> ids) {
+        R<QueryResults> queryResults = milvusClient.query(
+                QueryParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .withExpr(expression + " && id >= " + fromId + " && id < " + toId)
+                        .withOutFields(Collections.singletonList("id"))
+                        .withLimit(MAX_QUERY_ROWS)
+                        .build());
+        if (queryResults.getStatus() != 0) {
+            throw new RuntimeException("Source query failed: " + queryResults.getMessage());
+        }
+        List<?> found = new QueryResultsWrapper(queryResults.getData()).getFieldWrapper("id").getFieldData();
+        if (found.size() >= MAX_QUERY_ROWS && toId - fromId > 1) {
+            long middle = fromId + (toId - fromId) / 2;
+            collectIds(expression, fromId, middle, ids);
+            collectIds(expression, middle, toId, ids);
+            return;
+        }
+        for (Object id : found) ids.add((Long) id);
+    }
+
+    /**
+     * Deletes rows by primary key, {@value #EXISTENCE_CHECK_BATCH} per request.
+     */
+    @Override
+    public void delete(Collection<Long> ids) {
+        awaitReady();
+        List<Long> idList = new ArrayList<>(ids);
+        for (int from = 0; from < idList.size(); from += EXISTENCE_CHECK_BATCH) {
+            List<Long> slice = idList.subList(from, Math.min(idList.size(), from + EXISTENCE_CHECK_BATCH));
+            R<MutationResult> response = milvusClient.delete(DeleteParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withExpr("id in " + slice)
+                    .build());
+            if (response.getStatus() != 0) {
+                throw new RuntimeException("Delete failed: " + response.getMessage());
+            }
+            recentMetadata.invalidateAll(slice);
+        }
+    }
 
-        R<SearchResults> searchResults = milvusClient.search(searchParam);
+    /**
+     * Searches many query vectors in a single Milvus request.
+     *
+     * @param queryEmbeddings Query vectors
+     * @param topK            Number of hits per query
+     * @return One ID → text map per query, in the same order as the queries
+     */
+    @Override
+    public List<Map<Long, String>> searchBatch(List<float[]> queryEmbeddings, int topK) {
+        return searchBatch(queryEmbeddings, topK, SearchFilter.NONE);
+    }
+
+    /**
+     * Searches with the filter pushed down as a Milvus expression. A tenant filter is resolved
+     * against the partition key, so only that tenant's partition is searched.
+     *
+     * @throws IllegalArgumentException If the filter needs a field this collection doesn't have
+     */
+    @Override
+    public List<Map<Long, String>> searchBatch(List<float[]> queryEmbeddings, int topK, SearchFilter filter) {
+        if (queryEmbeddings.isEmpty()) {
+            return Collections.emptyList();
+        }
+        awaitReady();
+
+        R<SearchResults> searchResults = milvusClient.search(buildSearchParam(collectionName, activeProfile,
+                queryEmbeddings, topK, metadataFields, filterExpression(filter)));
         if (searchResults.getStatus()!=0) {
             throw new RuntimeException("Search failed: " + searchResults.getMessage());
         }
 
-        SearchResultsWrapper wrapper = new SearchResultsWrapper(searchResults.getData().getResults());
-        List<SearchResultsWrapper.IDScore> scores = wrapper.getIDScore(0);
+        SearchResultData data = searchResults.getData().getResults();
+        if (!metadataFields.isEmpty()) {
+            mapSearchMetadata(data, queryEmbeddings.size(), metadataFields, recentMetadata.asMap());
+        }
+        return mapSearchResults(data, queryEmbeddings.size());
+    }
+
+    private String filterExpression(SearchFilter filter) {
+        if (filter == null || filter.isEmpty()) return "";
+        List<String> required = new ArrayList<>();
+        if (filter.getTenant() != null) required.add("tenant");
+        if (!filter.getSources().isEmpty()) required.add("source");
+        if (filter.hasTimestampRange()) required.add("updated_at");
+        required.removeAll(metadataFields);
+        if (!required.isEmpty()) {
+            throw new IllegalArgumentException("Collection " + collectionName + " can't be filtered on " + required
+                    + "; drop and re-index it to add these fields");
+        }
+        return filter.toExpression();
+    }
 
-        Map<Long, String> results = new LinkedHashMap<>();
-        for (int i = 0; i < scores.size(); i++) {
-            Long id = scores.get(i).getLongID();
-            String text = wrapper.getFieldData("text", 0).toString();
-            results.put(id, text);
+    private static Object metadataValue(ChunkMetadata metadata, String field) {
+        switch (field) {
+            case "source": return clip(metadata.getSource());
+            case "page": return metadata.getPage();
+            case "section": return clip(metadata.getSection());
+            // Length checked by ChunkMetadata; a clipped tenant could land in another tenant's partition
+            case "tenant": return metadata.getTenant();
+            case "updated_at": return metadata.getTimestamp();
+            default: throw new IllegalArgumentException("Unknown metadata field: " + field);
         }
+    }
+
+    // VarChar limits count bytes; cut long paths/titles well before the limit
+    private static String clip(String value) {
+        return value.length() <= METADATA_MAX_LENGTH / 4 ? value : value.substring(0, METADATA_MAX_LENGTH / 4);
+    }
 
+    @Override
+    public ChunkMetadata metadata(long id) {
+        return recentMetadata.getIfPresent(id);
+    }
+
+    // Splits a multi-query search response into one ID → text map per query, best hit first
+    static List<Map<Long, String>> mapSearchResults(SearchResultData data, int queryCount) {
+        SearchResultsWrapper wrapper = new SearchResultsWrapper(data);
+        List<Map<Long, String>> results = new ArrayList<>(queryCount);
+        for (int query = 0; query < queryCount; query++) {
+            List<SearchResultsWrapper.IDScore> scores = wrapper.getIDScore(query);
+            List<?> texts = wrapper.getFieldData("text", query);
+
+            Map<Long, String> hits = new LinkedHashMap<>();
+            for (int i = 0; i < scores.size(); i++) {
+                hits.put(scores.get(i).getLongID(), (String) texts.get(i));
+            }
+            results.add(hits);
+        }
         return results;
     }
 
+    // Collects the metadata fields returned alongside each hit
+    static void mapSearchMetadata(SearchResultData data, int queryCount, Set<String> metadataFields,
+                                  Map<Long, ChunkMetadata> into) {
+        SearchResultsWrapper wrapper = new SearchResultsWrapper(data);
+        for (int query = 0; query < queryCount; query++) {
+            List<SearchResultsWrapper.IDScore> scores = wrapper.getIDScore(query);
+            List<?> sources = fieldData(wrapper, metadataFields, "source", query);
+            List<?> pages = fieldData(wrapper, metadataFields, "page", query);
+            List<?> sections = fieldData(wrapper, metadataFields, "section", query);
+            List<?> tenants = fieldData(wrapper, metadataFields, "tenant", query);
+            List<?> timestamps = fieldData(wrapper, metadataFields, "updated_at", query);
+            for (int i = 0; i < scores.size(); i++) {
+                ChunkMetadata metadata = new ChunkMetadata(
+                        tenants == null ? "" : (String) tenants.get(i),
+                        sources == null ? "" : (String) sources.get(i),
+                        pages == null ? 0 : ((Number) pages.get(i)).intValue(),
+                        sections == null ? "" : (String) sections.get(i),
+                        timestamps == null ? 0 : ((Number) timestamps.get(i)).longValue());
+                if (!metadata.isEmpty()) into.put(scores.get(i).getLongID(), metadata);
+            }
+        }
+    }
+
+    private static List<?> fieldData(SearchResultsWrapper wrapper, Set<String> metadataFields, String field, int query) {
+        return metadataFields.contains(field) ? wrapper.getFieldData(field, query) : null;
+    }
+
+    static SearchParam buildSearchParam(String collectionName, IndexProfile profile, float[] queryEmbedding, int topK) {
+        return buildSearchParam(collectionName, profile, Collections.singletonList(queryEmbedding), topK,
+                Collections.emptySet(), "");
+    }
+
+    /**
+     * @param expression Milvus boolean expression restricting the search, or "" for none
+     */
+    static SearchParam buildSearchParam(String collectionName, IndexProfile profile, List<float[]> queryEmbeddings, int topK,
+                                        Set<String> metadataFields, String expression) {
+        List<String> outFields = new ArrayList<>(Arrays.asList("id", "text"));  // 🟢 نطلب النص كمان
+        outFields.addAll(metadataFields);
+        return SearchParam.newBuilder()
+                .withCollectionName(collectionName)
+                .withMetricType(profile.getMetricType())
+                .withOutFields(outFields)
+                .withExpr(expression)
+                .withTopK(topK)
+                .withVectors(vectorData(queryEmbeddings, profile.isBinary()))
+                .withVectorFieldName("embedding")
+                .withParams(profile.searchParams(topK))
+                .build();
+    }
+
+    private static List<?> vectorData(List<float[]> vectors, boolean binary) {
+        return binary ? FloatVectors.toBinaryBuffers(vectors) : FloatVectors.toLists(vectors);
+    }
 
     @Override
     public void close() {
-        if (milvusClient != null) {
-            milvusClient.close();
+        if (closed) return;
+        closed = true;
+
+        sealScheduler.shutdownNow();
+        try {
+            writer.join();
+            if (!ready.isCompletedExceptionally()) {
+                flush();
+                seal(true);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            List<PendingRow> abandoned = new ArrayList<>();
+            writeQueue.drainTo(abandoned);
+            abandon(abandoned);
+            if (milvusClient != null) {
+                milvusClient.close();
+            }
+        }
+    }
+
+    private static class RowBatch {
+        final List<Long> ids = new ArrayList<>(BATCH_SIZE);
+        final List<float[]> embeddings = new ArrayList<>(BATCH_SIZE);
+        final List<String> texts = new ArrayList<>(BATCH_SIZE);
+        final List<ChunkMetadata> metadata = new ArrayList<>(BATCH_SIZE);
+    }
+
+    // One stripe of the synchronous buffer; rows are inserted outside the stripe lock
+    private static class WriteStripe {
+        private RowBatch rows = new RowBatch();
+        private long lastFlushTime = System.currentTimeMillis();
+
+        // Returns a batch ready for insertion once the stripe is full or stale, otherwise null
+        synchronized RowBatch add(long id, String text, float[] embedding, ChunkMetadata metadata) {
+            rows.ids.add(id);
+            rows.embeddings.add(embedding);
+            rows.texts.add(text);
+            rows.metadata.add(metadata == null ? ChunkMetadata.NONE : metadata);
+            if (rows.ids.size() >= BATCH_SIZE || System.currentTimeMillis() - lastFlushTime > FLUSH_INTERVAL_MS) {
+                return drain();
+            }
+            return null;
+        }
+
+        synchronized RowBatch drain() {
+            if (rows.ids.isEmpty()) return null;
+            RowBatch full = rows;
+            rows = new RowBatch();
+            lastFlushTime = System.currentTimeMillis();
+            return full;
+        }
+    }
+
+    private static class PendingRow {
+        final long id;
+        final String text;
+        final float[] embedding;
+        final ChunkMetadata metadata;
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        PendingRow(long id, String text, float[] embedding, ChunkMetadata metadata) {
+            this.id = id;
+            this.text = text;
+            this.embedding = embedding;
+            this.metadata = metadata == null ? ChunkMetadata.NONE : metadata;
         }
     }
 }
@@ -0,0 +1,481 @@
+package RAGApp;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.language.LanguageModel;
+import dev.langchain4j.model.language.StreamingLanguageModel;
+import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
+import dev.langchain4j.model.ollama.OllamaLanguageModel;
+import dev.langchain4j.model.ollama.OllamaStreamingLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.Counter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Client layer shared by everything that talks to Ollama ({@link Embedder}, {@link RagLLM}),
+ * spreading requests over one or more Ollama servers.
+ *
+ * <ul>
+ *   <li>One client per endpoint and model, built once and reused, so HTTP connections are too.</li>
+ *   <li>Each request goes to the endpoint with the fewest requests in flight, skipping endpoints
+ *       at their concurrency limit; when all are full, callers wait for a free slot. Embeddings and
+ *       generations have separate slots on each endpoint (Ollama limits parallel requests per
+ *       loaded model), so slow generations never hold up the short query embeddings.</li>
+ *   <li>Failed requests are retried a bounded number of times, on another endpoint if there is
+ *       one, after an exponential backoff with jitter. Streaming requests are only retried
+ *       before their first token.</li>
+ *   <li>Each endpoint has a circuit breaker: after several consecutive failures it gets no
+ *       traffic for a cool-down period, then a single trial request decides whether it is back.
+ *       With every circuit open, requests fail at once instead of queueing.</li>
+ * </ul>
+ *
+ * Ollama 0.25's embedding client sends one HTTP request per text, so batches are split over
+ * all free slots and embedded concurrently; indexing throughput grows with the endpoints.
+ *
+ * <p>Endpoints are given as {@code http://host:port}, optionally followed by {@code =N} for
+ * that endpoint's concurrency limit, e.g. {@code http://gpu1:11434=8,http://gpu2:11434}.
+ */
+public class OllamaPool implements AutoCloseable {
+    public static final String DEFAULT_ENDPOINT = "http://localhost:11434";
+    public static final int DEFAULT_MAX_CONCURRENCY = 4;
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(120);
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 2_000;
+    private static final int FAILURES_TO_OPEN = 5;
+    private static final long OPEN_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static OllamaPool shared;
+
+    // Each endpoint has this many slots per lane
+    private enum Lane { EMBED, GENERATE }
+
+    // Builds the per-endpoint clients; replaced by local stand-ins in load tests
+    interface ModelFactory {
+        EmbeddingModel embeddingModel(String baseUrl, String modelName, Duration timeout);
+
+        LanguageModel languageModel(String baseUrl, String modelName, Duration timeout);
+
+        StreamingLanguageModel streamingLanguageModel(String baseUrl, String modelName, Duration timeout);
+    }
+
+    private static final ModelFactory OLLAMA = new ModelFactory() {
+        // Retries are done by the pool, on any endpoint
+        @Override
+        public EmbeddingModel embeddingModel(String baseUrl, String modelName, Duration timeout) {
+            return OllamaEmbeddingModel.builder().baseUrl(baseUrl).modelName(modelName).timeout(timeout).maxRetries(1).build();
+        }
+
+        @Override
+        public LanguageModel languageModel(String baseUrl, String modelName, Duration timeout) {
+            return OllamaLanguageModel.builder().baseUrl(baseUrl).modelName(modelName).timeout(timeout).maxRetries(1).build();
+        }
+
+        @Override
+        public StreamingLanguageModel streamingLanguageModel(String baseUrl, String modelName, Duration timeout) {
+            return OllamaStreamingLanguageModel.builder().baseUrl(baseUrl).modelName(modelName).timeout(timeout).build();
+        }
+    };
+
+    private final List<Endpoint> endpoints;
+    private final ModelFactory factory;
+    private final Duration timeout;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final AtomicInteger rotation = new AtomicInteger();
+    // Runs the slices of split embedding batches and delayed retries of streaming requests
+    private final ExecutorService workers;
+    private final ThrottledLog retryLog = new ThrottledLog(5_000);
+    private final Counter retries = RagMetrics.counter("rag.ollama.retries", "Ollama requests retried after a failure");
+
+    public OllamaPool(List<String> endpoints, int maxConcurrencyPerEndpoint, Duration timeout) {
+        this(endpoints, maxConcurrencyPerEndpoint, timeout, OLLAMA);
+    }
+
+    OllamaPool(List<String> endpointSpecs, int maxConcurrencyPerEndpoint, Duration timeout, ModelFactory factory) {
+        if (endpointSpecs.isEmpty()) {
+            throw new IllegalArgumentException("At least one Ollama endpoint is required");
+        }
+        List<Endpoint> parsed = new ArrayList<>(endpointSpecs.size());
+        int total = 0;
+        for (String spec : endpointSpecs) {
+            Endpoint endpoint = parseEndpoint(spec.strip(), maxConcurrencyPerEndpoint);
+            parsed.add(endpoint);
+            total += endpoint.maxConcurrency;
+        }
+        this.endpoints = Collections.unmodifiableList(parsed);
+        this.factory = factory;
+        this.timeout = timeout;
+        this.capacity = total;
+        this.workers = Executors.newFixedThreadPool(total, r -> {
+            Thread t = new Thread(r, "ollama-pool");
+            t.setDaemon(true);
+            return t;
+        });
+        System.out.println("🦙 Ollama endpoints: " + endpoints);
+    }
+
+    /**
+     * @param spec Comma-separated endpoints, each optionally with {@code =N} for its concurrency limit
+     */
+    public static OllamaPool fromSpec(String spec, int maxConcurrencyPerEndpoint) {
+        List<String> endpoints = new ArrayList<>();
+        for (String endpoint : spec.split(",")) {
+            if (!endpoint.isBlank()) endpoints.add(endpoint.strip());
+        }
+        return new OllamaPool(endpoints, maxConcurrencyPerEndpoint, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * The pool used by components built without one, configured by the system properties
+     * {@code rag.ollama.endpoints} (default {@value #DEFAULT_ENDPOINT}) and
+     * {@code rag.ollama.max-concurrency} (per endpoint, default {@value #DEFAULT_MAX_CONCURRENCY}).
+     */
+    public static synchronized OllamaPool shared() {
+        if (shared == null) {
+            shared = fromSpec(System.getProperty("rag.ollama.endpoints", DEFAULT_ENDPOINT),
+                    Integer.getInteger("rag.ollama.max-concurrency", DEFAULT_MAX_CONCURRENCY));
+        }
+        return shared;
+    }
+
+    private static Endpoint parseEndpoint(String spec, int defaultConcurrency) {
+        int limitAt = spec.lastIndexOf('=');
+        String url = limitAt < 0 ? spec : spec.substring(0, limitAt);
+        int limit = defaultConcurrency;
+        if (limitAt >= 0) {
+            try {
+                limit = Integer.parseInt(spec.substring(limitAt + 1).strip());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad concurrency limit in Ollama endpoint '" + spec + "'", e);
+            }
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Concurrency limit must be positive in Ollama endpoint '" + spec + "'");
+        }
+        return new Endpoint(url.endsWith("/") ? url.substring(0, url.length() - 1) : url, limit);
+    }
+
+    public EmbeddingModel embeddingModel(String modelName) {
+        return new PooledEmbeddingModel(modelName);
+    }
+
+    public LanguageModel languageModel(String modelName) {
+        return prompt -> call("generate", Lane.GENERATE, endpoint -> endpoint.languageModels
+                .computeIfAbsent(modelName, name -> factory.languageModel(endpoint.baseUrl, name, timeout))
+                .generate(prompt));
+    }
+
+    public StreamingLanguageModel streamingLanguageModel(String modelName) {
+        return (prompt, handler) -> stream(modelName, prompt, handler, 1, new ArrayList<>());
+    }
+
+    // Requests of one kind (embeddings, or generations) the pool lets run at once
+    public int capacity() {
+        return capacity;
+    }
+
+    private final class PooledEmbeddingModel implements EmbeddingModel {
+        private final String modelName;
+
+        PooledEmbeddingModel(String modelName) {
+            this.modelName = modelName;
+        }
+
+        private EmbeddingModel on(Endpoint endpoint) {
+            return endpoint.embeddingModels.computeIfAbsent(modelName,
+                    name -> factory.embeddingModel(endpoint.baseUrl, name, timeout));
+        }
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+            if (segments.size() <= 1) {
+                return call("embed", Lane.EMBED, endpoint -> on(endpoint).embedAll(segments));
+            }
+
+            // One slice per free slot; each slice is retried on its own
+            int slices = Math.min(segments.size(), capacity);
+            List<CompletableFuture<Response<List<Embedding>>>> futures = new ArrayList<>(slices);
+            for (int slice = 0; slice < slices; slice++) {
+                List<TextSegment> part = segments.subList(
+                        (int) ((long) segments.size() * slice / slices), (int) ((long) segments.size() * (slice + 1) / slices));
+                futures.add(CompletableFuture.supplyAsync(() -> call("embed", Lane.EMBED, endpoint -> on(endpoint).embedAll(part)), workers));
+            }
+            List<Embedding> embeddings = new ArrayList<>(segments.size());
+            try {
+                for (CompletableFuture<Response<List<Embedding>>> future : futures) {
+                    embeddings.addAll(future.join().content());
+                }
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+            return Response.from(embeddings);
+        }
+    }
+
+    /**
+     * Runs a request on the least busy endpoint, retrying failures with backoff.
+     */
+    private <T> T call(String operation, Lane lane, Function<Endpoint, T> request) {
+        List<Endpoint> failed = new ArrayList<>();
+        RuntimeException lastFailure = null;
+        for (int attempt = 1; ; attempt++) {
+            Lease lease = acquire(lane, failed, lastFailure);
+            try {
+                T result = request.apply(lease.endpoint);
+                release(lease, true);
+                return result;
+            } catch (RuntimeException e) {
+                release(lease, false);
+                lastFailure = e;
+                failed.add(lease.endpoint);
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw new RuntimeException("Ollama " + operation + " failed after " + attempt + " attempts: "
+                            + e.getMessage(), e);
+                }
+                logRetry(operation, lease.endpoint, attempt, e);
+                sleep(backoffMillis(attempt));
+            }
+        }
+    }
+
+    // Streaming requests complete on Ollama's callback thread; only a failure before the first token is retried
+    private void stream(String modelName, String prompt, StreamingResponseHandler<String> handler,
+                        int attempt, List<Endpoint> failed) {
+        Lease lease;
+        try {
+            lease = acquire(Lane.GENERATE, failed, null);
+        } catch (RuntimeException e) {
+            handler.onError(e);
+            return;
+        }
+        AtomicBoolean started = new AtomicBoolean();
+        StreamingResponseHandler<String> tracking = new StreamingResponseHandler<>() {
+            @Override
+            public void onNext(String token) {
+                started.set(true);
+                handler.onNext(token);
+            }
+
+            @Override
+            public void onComplete(Response<String> response) {
+                release(lease, true);
+                handler.onComplete(response);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                release(lease, false);
+                if (started.get() || attempt >= MAX_ATTEMPTS) {
+                    handler.onError(error);
+                    return;
+                }
+                failed.add(lease.endpoint);
+                logRetry("stream", lease.endpoint, attempt, error);
+                CompletableFuture.runAsync(() -> stream(modelName, prompt, handler, attempt + 1, failed),
+                        CompletableFuture.delayedExecutor(backoffMillis(attempt), TimeUnit.MILLISECONDS, workers));
+            }
+        };
+        try {
+            lease.endpoint.streamingModels
+                    .computeIfAbsent(modelName, name -> factory.streamingLanguageModel(lease.endpoint.baseUrl, name, timeout))
+                    .generate(prompt, tracking);
+        } catch (RuntimeException e) {
+            tracking.onError(e);
+        }
+    }
+
+    /**
+     * Takes a slot on the endpoint with the fewest requests in flight, preferring endpoints that
+     * haven't failed this request yet. Waits while every admitting endpoint is full.
+     *
+     * @throws RuntimeException If every circuit is open, or no slot frees up within the timeout
+     */
+    private Lease acquire(Lane lane, List<Endpoint> avoid, RuntimeException lastFailure) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        lock.lock();
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                Endpoint best = null;
+                boolean anyAdmitting = false;
+                int start = Math.floorMod(rotation.getAndIncrement(), endpoints.size());
+                for (int i = 0; i < endpoints.size(); i++) {
+                    Endpoint endpoint = endpoints.get((start + i) % endpoints.size());
+                    if (!endpoint.admits(now)) continue;
+                    anyAdmitting = true;
+                    if (endpoint.outstanding(lane) >= endpoint.maxConcurrency) continue;
+                    if (best == null || prefer(lane, endpoint, best, avoid)) best = endpoint;
+                }
+                if (best != null) {
+                    boolean probe = best.isTripped();
+                    if (probe) best.probing = true;
+                    best.adjustOutstanding(lane, 1);
+                    return new Lease(best, lane, probe);
+                }
+                if (!anyAdmitting) {
+                    RuntimeException unavailable = new RuntimeException("All Ollama endpoints are unavailable (circuit open): " + endpoints);
+                    if (lastFailure != null) unavailable.addSuppressed(lastFailure);
+                    throw unavailable;
+                }
+                long remaining = deadline - now;
+                if (remaining <= 0) {
+                    throw new RuntimeException("Timed out after " + timeout.toSeconds() + "s waiting for a free Ollama endpoint");
+                }
+                released.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a free Ollama endpoint", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean prefer(Lane lane, Endpoint candidate, Endpoint best, List<Endpoint> avoid) {
+        boolean candidateAvoided = avoid.contains(candidate);
+        if (candidateAvoided != avoid.contains(best)) return !candidateAvoided;
+        return candidate.outstanding(lane) < best.outstanding(lane);
+    }
+
+    private void release(Lease lease, boolean success) {
+        if (!lease.released.compareAndSet(false, true)) return;
+        Endpoint endpoint = lease.endpoint;
+        lock.lock();
+        try {
+            endpoint.adjustOutstanding(lease.lane, -1);
+            if (lease.probe) endpoint.probing = false;
+            if (success) {
+                if (endpoint.isTripped()) System.out.println("🔌 Ollama endpoint " + endpoint + " is back");
+                endpoint.consecutiveFailures = 0;
+            } else {
+                endpoint.failures.increment();
+                endpoint.consecutiveFailures++;
+                // A failed trial request re-opens the circuit for another cool-down
+                if (lease.probe || endpoint.consecutiveFailures == FAILURES_TO_OPEN) {
+                    endpoint.openUntilNanos = System.nanoTime() + OPEN_NANOS;
+                    System.err.println("🔌 Ollama endpoint " + endpoint + " failed " + endpoint.consecutiveFailures
+                            + " times in a row; pausing it for " + TimeUnit.NANOSECONDS.toSeconds(OPEN_NANOS) + "s");
+                }
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void logRetry(String operation, Endpoint endpoint, int attempt, Throwable error) {
+        retries.increment();
+        if (retryLog.shouldLog()) {
+            System.err.println("⚠ Ollama " + operation + " on " + endpoint + " failed (attempt " + attempt + "), retrying: "
+                    + error.getMessage());
+        }
+    }
+
+    // Exponential backoff with equal jitter: half fixed, half random, so retries don't arrive in lockstep
+    private static long backoffMillis(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << (attempt - 1));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while backing off from a failed Ollama request", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private static final class Lease {
+        final Endpoint endpoint;
+        final Lane lane;
+        // The single trial request of a half-open circuit
+        final boolean probe;
+        final AtomicBoolean released = new AtomicBoolean();
+
+        Lease(Endpoint endpoint, Lane lane, boolean probe) {
+            this.endpoint = endpoint;
+            this.lane = lane;
+            this.probe = probe;
+        }
+    }
+
+    // Mutable state is guarded by the pool lock; volatile only so the gauges can read it
+    private static final class Endpoint {
+        final String baseUrl;
+        final int maxConcurrency;
+        final Map<String, EmbeddingModel> embeddingModels = new ConcurrentHashMap<>();
+        final Map<String, LanguageModel> languageModels = new ConcurrentHashMap<>();
+        final Map<String, StreamingLanguageModel> streamingModels = new ConcurrentHashMap<>();
+        final Counter failures;
+        volatile int embedsOutstanding;
+        volatile int generationsOutstanding;
+        volatile int consecutiveFailures;
+        volatile long openUntilNanos;
+        boolean probing;
+
+        Endpoint(String baseUrl, int maxConcurrency) {
+            this.baseUrl = baseUrl;
+            this.maxConcurrency = maxConcurrency;
+            this.failures = RagMetrics.counter("rag.ollama.failures", "Failed Ollama requests", "endpoint", baseUrl);
+            for (Lane lane : Lane.values()) {
+                RagMetrics.gauge("rag.ollama.outstanding", "Ollama requests in flight", this,
+                        endpoint -> endpoint.outstanding(lane), "endpoint", baseUrl, "lane", lane.name().toLowerCase(Locale.ROOT));
+            }
+            RagMetrics.gauge("rag.ollama.circuit.open", "1 while the endpoint's circuit breaker is open", this,
+                    endpoint -> endpoint.openUntilNanos - System.nanoTime() > 0 ? 1 : 0, "endpoint", baseUrl);
+        }
+
+        int outstanding(Lane lane) {
+            return lane == Lane.EMBED ? embedsOutstanding : generationsOutstanding;
+        }
+
+        void adjustOutstanding(Lane lane, int delta) {
+            if (lane == Lane.EMBED) embedsOutstanding += delta;
+            else generationsOutstanding += delta;
+        }
+
+        boolean isTripped() {
+            return consecutiveFailures >= FAILURES_TO_OPEN;
+        }
+
+        // Closed: always; open: never until the cool-down ends; half-open: one trial request at a time
+        boolean admits(long now) {
+            if (!isTripped()) return true;
+            return now - openUntilNanos >= 0 && !probing;
+        }
+
+        @Override
+        public String toString() {
+            return baseUrl + " (max " + maxConcurrency + " per lane)";
+        }
+    }
+}
@@ -1,15 +1,13 @@
 package RAGApp;
 
-import dev.langchain4j.model.ollama.OllamaLanguageModel;
+import dev.langchain4j.model.language.LanguageModel;
 
 public class OllamaTest {
 
     public static void main(String[] args) {
 
-        OllamaLanguageModel model = OllamaLanguageModel.builder()
-                .baseUrl("http://localhost:11434")
-                .modelName("mistral")
-                .build();
+        // Endpoints from -Drag.ollama.endpoints, http://localhost:11434 by default
+        LanguageModel model = OllamaPool.shared().languageModel("mistral");
 
         String prompt = "What is Artificial Intelligence?";
 
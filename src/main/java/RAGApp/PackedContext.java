@@ -0,0 +1,67 @@
+package RAGApp;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The context actually sent to the LLM, with how much it shrank compared with
+ * the unpacked top-{@value ContextAssembler#BASELINE_CHUNKS} prompt it replaced.
+ */
+public class PackedContext {
+    private final String text;
+    private final Set<Long> chunkIds;
+    private final int candidates;
+    private final int duplicatesDropped;
+    private final int baselineTokens;
+    private final int packedTokens;
+
+    public PackedContext(String text, Set<Long> chunkIds, int candidates, int duplicatesDropped,
+                         int baselineTokens, int packedTokens) {
+        this.text = text;
+        this.chunkIds = Collections.unmodifiableSet(chunkIds);
+        this.candidates = candidates;
+        this.duplicatesDropped = duplicatesDropped;
+        this.baselineTokens = baselineTokens;
+        this.packedTokens = packedTokens;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Set<Long> getChunkIds() {
+        return chunkIds;
+    }
+
+    public boolean isEmpty() {
+        return chunkIds.isEmpty();
+    }
+
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public int getDuplicatesDropped() {
+        return duplicatesDropped;
+    }
+
+    public int getBaselineTokens() {
+        return baselineTokens;
+    }
+
+    public int getPackedTokens() {
+        return packedTokens;
+    }
+
+    // Zero when the packed context is larger than the baseline prompt
+    public int getTokensSaved() {
+        return Math.max(0, baselineTokens - packedTokens);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d candidates → %d chunks (%d duplicates), %d prompt tokens (top-%d baseline %d, %d saved)",
+                candidates, chunkIds.size(), duplicatesDropped, packedTokens,
+                ContextAssembler.BASELINE_CHUNKS, baselineTokens, getTokensSaved());
+    }
+}
@@ -0,0 +1,276 @@
+package RAGApp;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineNode;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * PDF via PDFBox, one page at a time: chunks never span pages, and each carries its
+ * page number and the title of the nearest preceding outline (bookmark) entry.
+ *
+ * <p>Pages are extracted in windows of a few dozen pages. Each window is split into page
+ * ranges on a fork-join pool; {@link PDDocument} is not thread-safe, so every worker
+ * borrows its own instance of the document. The next window is extracted while the
+ * current one is being consumed, so at most two windows of page text are held at once.
+ * Documents are opened with a {@link MemoryUsageSetting} that spills decoded streams to a
+ * temp file past a fixed heap budget, and worker documents are reopened after a few
+ * hundred pages so their object caches don't grow with the size of the file.
+ */
+public class PdfDocumentParser implements DocumentParser {
+    private static final int PAGES_PER_TASK = 4;
+    private static final int PAGES_PER_WORKER_DOCUMENT = 256;
+    private static final int MAX_OUTLINE_DEPTH = 16;
+    private static final long DEFAULT_MAIN_MEMORY_BYTES = 32L * 1024 * 1024;
+    private static final String SECTION_SEPARATOR = " > ";
+
+    private final int parallelism;
+    private final long maxMainMemoryBytes;
+
+    public PdfDocumentParser() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_MAIN_MEMORY_BYTES);
+    }
+
+    /**
+     * @param parallelism        Page ranges extracted concurrently, each on its own copy of the document
+     * @param maxMainMemoryBytes Heap per open document for decoded streams; the rest goes to a temp file
+     */
+    public PdfDocumentParser(int parallelism, long maxMainMemoryBytes) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+    }
+
+    @Override
+    public boolean supports(Path file) {
+        return DocumentParser.extensionOf(file).equals("pdf");
+    }
+
+    @Override
+    public Stream<DocumentChunk> parse(Path file, TextSplitter splitter) throws IOException {
+        TreeMap<Integer, String> sections = new TreeMap<>();
+        int pageCount;
+        try (PDDocument document = open(file)) {
+            pageCount = document.getNumberOfPages();
+            PDDocumentOutline outline = document.getDocumentCatalog().getDocumentOutline();
+            if (outline != null) readOutline(document, outline, "", 0, sections);
+        }
+        System.out.println("📄 Parsing " + file.getFileName() + ": " + pageCount + " pages on " + parallelism + " threads");
+
+        Extraction extraction = new Extraction(file, pageCount);
+        ChunkMetadata document = ChunkMetadata.forFile(file);
+
+        Iterator<DocumentChunk> chunks = new Iterator<>() {
+            private final ArrayDeque<DocumentChunk> ready = new ArrayDeque<>();
+            private Window window;
+            private int page = 1;
+
+            private void fill() {
+                while (ready.isEmpty() && page <= pageCount) {
+                    if (window == null || page >= window.start + window.pages.length) {
+                        window = extraction.nextWindow();
+                    }
+                    String text = window.pages[page - window.start];
+                    window.pages[page - window.start] = null;
+
+                    Map.Entry<Integer, String> section = sections.floorEntry(page);
+                    ChunkMetadata metadata = document.withPage(page, section == null ? "" : section.getValue());
+                    if (text != null) {
+                        splitter.split(text, (t, start, end) ->
+                                ready.add(new DocumentChunk(t.subSequence(start, end).toString(), metadata)));
+                    }
+                    page++;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                fill();
+                return !ready.isEmpty();
+            }
+
+            @Override
+            public DocumentChunk next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return ready.poll();
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(extraction::close);
+    }
+
+    private PDDocument open(Path file) throws IOException {
+        return PDDocument.load(file.toFile(), MemoryUsageSetting.setupMixed(maxMainMemoryBytes));
+    }
+
+    // Maps each bookmarked page (1-based) to its outline path; deeper entries refine their parent's
+    private static void readOutline(PDDocument document, PDOutlineNode node, String prefix, int depth,
+                                    TreeMap<Integer, String> sections) {
+        if (depth >= MAX_OUTLINE_DEPTH) return;
+        for (PDOutlineItem item : node.children()) {
+            String title = item.getTitle() == null ? "" : item.getTitle().strip();
+            String path = prefix.isEmpty() ? title : title.isEmpty() ? prefix : prefix + SECTION_SEPARATOR + title;
+            try {
+                PDPage page = item.findDestinationPage(document);
+                int index = page == null ? -1 : document.getPages().indexOf(page);
+                if (index >= 0 && !path.isEmpty()) {
+                    sections.merge(index + 1, path, (existing, refined) -> refined.startsWith(existing) ? refined : existing);
+                }
+            } catch (IOException e) {
+                System.err.println("⚠ Skipping broken bookmark '" + title + "': " + e.getMessage());
+            }
+            readOutline(document, item, path, depth + 1, sections);
+        }
+    }
+
+    private static final class Window {
+        final int start;
+        final String[] pages;
+        final ForkJoinTask<Void> task;
+
+        Window(int start, String[] pages, ForkJoinTask<Void> task) {
+            this.start = start;
+            this.pages = pages;
+            this.task = task;
+        }
+    }
+
+    private static final class WorkerDocument {
+        final PDDocument document;
+        int pagesExtracted;
+
+        WorkerDocument(PDDocument document) {
+            this.document = document;
+        }
+    }
+
+    // Fork-join extraction of one file, a window ahead of the consumer
+    private final class Extraction {
+        private final Path file;
+        private final int pageCount;
+        private final int windowPages = parallelism * PAGES_PER_TASK * 2;
+        private final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        private final ConcurrentLinkedQueue<WorkerDocument> idle = new ConcurrentLinkedQueue<>();
+        private Window prefetched;
+
+        Extraction(Path file, int pageCount) {
+            this.file = file;
+            this.pageCount = pageCount;
+            this.prefetched = pageCount > 0 ? start(1) : null;
+        }
+
+        Window nextWindow() {
+            Window current = prefetched;
+            current.task.join();
+            int next = current.start + current.pages.length;
+            prefetched = next <= pageCount ? start(next) : null;
+            return current;
+        }
+
+        private Window start(int first) {
+            String[] pages = new String[Math.min(windowPages, pageCount - first + 1)];
+            return new Window(first, pages, pool.submit(new PageRange(pages, first, first, first + pages.length)));
+        }
+
+        private void extract(String[] pages, int first, int from, int to) {
+            WorkerDocument worker = idle.poll();
+            try {
+                if (worker == null) worker = new WorkerDocument(open(file));
+                PDFTextStripper stripper = new PDFTextStripper();
+                for (int page = from; page < to; page++) {
+                    stripper.setStartPage(page);
+                    stripper.setEndPage(page);
+                    try {
+                        pages[page - first] = stripper.getText(worker.document);
+                    } catch (IOException | RuntimeException e) {
+                        // One damaged page shouldn't lose the rest of the document
+                        System.err.println("⚠ Failed to extract page " + page + " of " + file + ": " + e.getMessage());
+                    }
+                }
+                worker.pagesExtracted += to - from;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open " + file, e);
+            } finally {
+                if (worker != null) release(worker);
+            }
+        }
+
+        private void release(WorkerDocument worker) {
+            if (worker.pagesExtracted < PAGES_PER_WORKER_DOCUMENT && !pool.isShutdown()) {
+                idle.add(worker);
+            } else {
+                closeQuietly(worker.document);
+            }
+        }
+
+        void close() {
+            pool.shutdownNow();
+            try {
+                pool.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            WorkerDocument worker;
+            while ((worker = idle.poll()) != null) {
+                closeQuietly(worker.document);
+            }
+        }
+
+        private final class PageRange extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            private final String[] pages;
+            private final int first;
+            private final int from;
+            private final int to;
+
+            PageRange(String[] pages, int first, int from, int to) {
+                this.pages = pages;
+                this.first = first;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from <= PAGES_PER_TASK) {
+                    extract(pages, first, from, to);
+                    return;
+                }
+                int mid = (from + to) >>> 1;
+                invokeAll(new PageRange(pages, first, from, mid), new PageRange(pages, first, mid, to));
+            }
+        }
+    }
+
+    private static void closeQuietly(PDDocument document) {
+        try {
+            document.close();
+        } catch (IOException e) {
+            System.err.println("⚠ Failed to close PDF: " + e.getMessage());
+        }
+    }
+}
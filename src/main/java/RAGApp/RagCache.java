@@ -0,0 +1,159 @@
+package RAGApp;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Three-tier cache in front of the RAG pipeline:
+ * question → embedding, (embedding, topK, filter) → retrieved chunks, and
+ * (normalized question, chunk IDs) → answer.
+ * Each tier is size-bounded (W-TinyLFU eviction), expires after a TTL and records hit rates.
+ */
+public class RagCache {
+    private static final long DEFAULT_MAX_ENTRIES = 10_000;
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(30);
+
+    private final Cache<String, float[]> embeddings;
+    private final Cache<RetrievalKey, Map<Long, String>> retrievals;
+    private final Cache<AnswerKey, String> answers;
+
+    public RagCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL, true);
+    }
+
+    /**
+     * @param maxEntries   Maximum entries per tier
+     * @param ttl          Time after write before an entry expires
+     * @param cacheAnswers Whether to cache generated answers (otherwise only embeddings and retrievals)
+     */
+    public RagCache(long maxEntries, Duration ttl, boolean cacheAnswers) {
+        this.embeddings = newCache(maxEntries, ttl);
+        this.retrievals = newCache(maxEntries, ttl);
+        this.answers = cacheAnswers ? newCache(maxEntries, ttl) : null;
+    }
+
+    private static <K, V> Cache<K, V> newCache(long maxEntries, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    // Lookup/store pairs: the pipeline computes entries asynchronously between the two
+    public float[] cachedEmbedding(String question) {
+        return embeddings.getIfPresent(normalize(question));
+    }
+
+    public void putEmbedding(String question, float[] embedding) {
+        embeddings.put(normalize(question), embedding);
+    }
+
+    // Retrievals are cached per filter, so one tenant's hits are never served to another
+    public Map<Long, String> cachedRetrieval(float[] queryEmbedding, int topK, SearchFilter filter) {
+        return retrievals.getIfPresent(new RetrievalKey(queryEmbedding, topK, filter));
+    }
+
+    public void putRetrieval(float[] queryEmbedding, int topK, SearchFilter filter, Map<Long, String> results) {
+        retrievals.put(new RetrievalKey(queryEmbedding, topK, filter), Collections.unmodifiableMap(new LinkedHashMap<>(results)));
+    }
+
+    public String cachedAnswer(String question, Set<Long> chunkIds) {
+        return answers == null ? null : answers.getIfPresent(new AnswerKey(normalize(question), chunkIds));
+    }
+
+    public void putAnswer(String question, Set<Long> chunkIds, String answer) {
+        if (answers != null) answers.put(new AnswerKey(normalize(question), chunkIds), answer);
+    }
+
+    // Called after the collection changes: cached retrievals and the answers built on them are stale
+    public void invalidateRetrievals() {
+        retrievals.invalidateAll();
+        if (answers != null) answers.invalidateAll();
+    }
+
+    public void invalidateAll() {
+        embeddings.invalidateAll();
+        invalidateRetrievals();
+    }
+
+    public CacheStats embeddingStats() {
+        return embeddings.stats();
+    }
+
+    public CacheStats retrievalStats() {
+        return retrievals.stats();
+    }
+
+    public CacheStats answerStats() {
+        return answers == null ? CacheStats.empty() : answers.stats();
+    }
+
+    public String statsSummary() {
+        return String.format("embedding %.0f%%, retrieval %.0f%%, answer %.0f%% hit rate",
+                embeddingStats().hitRate() * 100, retrievalStats().hitRate() * 100, answerStats().hitRate() * 100);
+    }
+
+    // Case, surrounding whitespace, repeated spaces and trailing punctuation don't change the question
+    static String normalize(String question) {
+        String normalized = question.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        return normalized.replaceAll("[\\s?.!]+$", "");
+    }
+
+    private static final class RetrievalKey {
+        private final float[] embedding;
+        private final int topK;
+        private final SearchFilter filter;
+        private final int hash;
+
+        RetrievalKey(float[] embedding, int topK, SearchFilter filter) {
+            this.embedding = embedding;
+            this.topK = topK;
+            this.filter = filter == null ? SearchFilter.NONE : filter;
+            this.hash = 31 * (31 * Arrays.hashCode(embedding) + topK) + this.filter.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RetrievalKey)) return false;
+            RetrievalKey other = (RetrievalKey) o;
+            return topK == other.topK && filter.equals(other.filter) && Arrays.equals(embedding, other.embedding);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class AnswerKey {
+        private final String question;
+        private final Set<Long> chunkIds;
+
+        AnswerKey(String question, Set<Long> chunkIds) {
+            this.question = question;
+            this.chunkIds = Set.copyOf(chunkIds);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof AnswerKey)) return false;
+            AnswerKey other = (AnswerKey) o;
+            return question.equals(other.question) && chunkIds.equals(other.chunkIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * question.hashCode() + chunkIds.hashCode();
+        }
+    }
+}
@@ -1,25 +1,88 @@
 package RAGApp;
 
-import dev.langchain4j.model.ollama.OllamaLanguageModel;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.language.LanguageModel;
+import dev.langchain4j.model.language.StreamingLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
 
-import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 public class RagLLM {
 
-    private final OllamaLanguageModel llm;
+    private final LanguageModel llm;
+    private final StreamingLanguageModel streamingLlm;
+    private final Timer generateTimer = RagMetrics.timer("rag.llm.generate", "LLM generation requests", "mode", "blocking");
+    private final Timer streamTimer = RagMetrics.timer("rag.llm.generate", "LLM generation requests", "mode", "streaming");
+    private final Counter promptTokens = RagMetrics.counter("rag.llm.tokens", "Tokens processed by the LLM", "type", "prompt");
+    private final Counter outputTokens = RagMetrics.counter("rag.llm.tokens", "Tokens processed by the LLM", "type", "output");
+    private final DistributionSummary outputRate = RagMetrics.summary("rag.llm.output.rate", "Generated tokens per second of one answer", "tokens/s");
 
     // Initialize with the lightweight "mistral" model
     public RagLLM() {
-        this.llm = OllamaLanguageModel.builder()
-                .baseUrl("http://localhost:11434")  // Required to avoid NullPointerException
-                .modelName("mistral")               // Suitable model for limited-memory machines
-                .timeout(Duration.ofSeconds(120))
-                .build();
+        this(OllamaPool.shared(), "mistral");  // Suitable model for limited-memory machines
+    }
+
+    // Blocking and streaming generation share the pool's endpoints, limits and circuit breakers
+    public RagLLM(OllamaPool pool, String modelName) {
+        this(pool.languageModel(modelName), pool.streamingLanguageModel(modelName));
+    }
+
+    // Any pair of models, e.g. local stand-ins for benchmarks and load tests
+    public RagLLM(LanguageModel llm, StreamingLanguageModel streamingLlm) {
+        this.llm = llm;
+        this.streamingLlm = streamingLlm;
     }
 
     public String generateAnswer(String context, String question) {
-        String prompt = String.format("""
+        long start = System.nanoTime();
+        Response<String> response = llm.generate(buildPrompt(context, question));
+        long elapsed = System.nanoTime() - start;
+        generateTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        recordTokens(response.tokenUsage(), elapsed);
+        return response.content();
+    }
+
+    // Same prompt as generateAnswer, but tokens are delivered to the handler as Ollama produces them
+    public void generateAnswerStreaming(String context, String question, StreamingResponseHandler<String> handler) {
+        long start = System.nanoTime();
+        streamingLlm.generate(buildPrompt(context, question), new StreamingResponseHandler<>() {
+            @Override
+            public void onNext(String token) {
+                handler.onNext(token);
+            }
+
+            @Override
+            public void onComplete(Response<String> response) {
+                long elapsed = System.nanoTime() - start;
+                streamTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                recordTokens(response.tokenUsage(), elapsed);
+                handler.onComplete(response);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                handler.onError(error);
+            }
+        });
+    }
+
+    private void recordTokens(TokenUsage usage, long elapsedNanos) {
+        if (usage == null) return;
+        if (usage.inputTokenCount() != null) promptTokens.increment(usage.inputTokenCount());
+        if (usage.outputTokenCount() != null) {
+            outputTokens.increment(usage.outputTokenCount());
+            if (elapsedNanos > 0) outputRate.record(usage.outputTokenCount() * 1e9 / elapsedNanos);
+        }
+    }
+
+    static String buildPrompt(String context, String question) {
+        return String.format("""
                 You are a helpful assistant. Use the following context to answer the user's question.
+                When a chunk carries a [source, page, section] reference, cite it after the facts you use.
 
                 Context:
                 %s
@@ -27,7 +90,5 @@ public class RagLLM {
                 Question: %s
 
                 Answer:""", context, question);
-
-        return llm.generate(prompt).content();
     }
 }
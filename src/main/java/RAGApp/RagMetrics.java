@@ -0,0 +1,110 @@
+package RAGApp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer meters for the RAG hot paths, registered on {@link Metrics#globalRegistry}.
+ * Spring Boot adds its Prometheus registry there, so the server exports them at
+ * {@code /actuator/prometheus}; with no registry attached, recording is a no-op.
+ *
+ * <p>Callers look meters up once and keep them in fields, so recording is a few atomic
+ * updates with no map lookups. Timers publish percentile histograms for server-side
+ * quantiles in Prometheus.
+ */
+public final class RagMetrics {
+    private static final MeterRegistry REGISTRY = Metrics.globalRegistry;
+    private static final Map<String, Timer> STAGE_TIMERS = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> ASK_TIMERS = new ConcurrentHashMap<>();
+
+    private RagMetrics() {
+    }
+
+    static Timer timer(String name, String description, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(REGISTRY);
+    }
+
+    static Counter counter(String name, String description, String... tags) {
+        return Counter.builder(name).description(description).tags(tags).register(REGISTRY);
+    }
+
+    static DistributionSummary summary(String name, String description, String baseUnit, String... tags) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit(baseUnit)
+                .tags(tags)
+                .publishPercentiles(0.5, 0.95)
+                .register(REGISTRY);
+    }
+
+    static <T> void gauge(String name, String description, T target, ToDoubleFunction<T> value, String... tags) {
+        Gauge.builder(name, target, value)
+                .description(description)
+                .tags(tags)
+                .strongReference(true)
+                .register(REGISTRY);
+    }
+
+    // Per-stage timers of the ask pipeline; outcome is one of those returned by outcome(Throwable)
+    static Timer stageTimer(String stage, String outcome) {
+        return STAGE_TIMERS.computeIfAbsent(stage + ':' + outcome, key -> timer("rag.stage",
+                "Time from submitting an ask pipeline stage until it completes", "stage", stage, "outcome", outcome));
+    }
+
+    // End-to-end ask timers; mode is async or streaming
+    static Timer askTimer(String mode, String outcome) {
+        return ASK_TIMERS.computeIfAbsent(mode + ':' + outcome, key -> timer("rag.ask",
+                "End-to-end ask latency", "mode", mode, "outcome", outcome));
+    }
+
+    // success, timeout, cancelled or error
+    static String outcome(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) error = error.getCause();
+        if (error == null) return "success";
+        if (error instanceof StageTimeoutException) return "timeout";
+        if (error instanceof CancellationException) return "cancelled";
+        return "error";
+    }
+
+    /**
+     * One line per RAG timer with count, mean and p95, for the console client's exit report.
+     */
+    public static String summary() {
+        List<String> lines = new ArrayList<>();
+        for (Meter meter : REGISTRY.getMeters()) {
+            if (!(meter instanceof Timer) || !meter.getId().getName().startsWith("rag.")) continue;
+            Timer timer = (Timer) meter;
+            if (timer.count() == 0) continue;
+            double p95 = Double.NaN;
+            for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                if (percentile.percentile() == 0.95) p95 = percentile.value(TimeUnit.MILLISECONDS);
+            }
+            lines.add(String.format("%-18s %-44s n=%-6d mean=%8.1f ms  p95=%8.1f ms%n",
+                    meter.getId().getName(), meter.getId().getTags(), timer.count(),
+                    timer.mean(TimeUnit.MILLISECONDS), p95));
+        }
+        Collections.sort(lines);
+        return String.join("", lines);
+    }
+}
@@ -1,45 +1,684 @@
 package RAGApp;
 
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.stream.StreamSupport;
 
 public class RagService implements AutoCloseable {
-    private final MilvusVectorStore vectorStore;
+    private static final int DEFAULT_EMBED_BATCH_SIZE = 32;
+    private static final int DEFAULT_EMBED_CONCURRENCY = 4;
+    // Recently seen chunk IDs kept for in-run dedupe; older repeats are caught by the Milvus existence check
+    private static final int RECENT_IDS_CAPACITY = 100_000;
+    // Hedge an embedding call once it runs longer than this percentile of recent calls
+    private static final double HEDGE_PERCENTILE = 95;
+    private static final int STAGE_THREADS = 64;
+    // Generation holds a thread for up to its whole deadline, so it gets its own pool
+    private static final int GENERATE_THREADS = 32;
+
+    private final VectorStore vectorStore;
     private final Embedder embedder;
     private final RagLLM llm;
+    private final RagCache cache;
+    private final Retriever retriever;
+    private final StageDeadlines deadlines;
+    private final ContextAssembler contextAssembler;
+    private final LatencyWindow embedLatency = new LatencyWindow(256, 20);
+    private final Timer firstTokenTimer = RagMetrics.timer("rag.ask.first.token", "Time to first streamed answer token");
+    private final Counter chunksIndexed = RagMetrics.counter("rag.index.chunks", "Chunks seen by indexing", "result", "indexed");
+    private final Counter chunksSkipped = RagMetrics.counter("rag.index.chunks", "Chunks seen by indexing", "result", "skipped");
+    private final Counter chunksRemoved = RagMetrics.counter("rag.index.chunks", "Chunks seen by indexing", "result", "removed");
+    private final DistributionSummary contextTokens = RagMetrics.summary("rag.context.tokens", "Prompt context tokens after packing", "tokens");
+    private final DistributionSummary contextTokensSaved = RagMetrics.summary("rag.context.tokens.saved", "Prompt tokens saved by context packing, against the top-3 prompt", "tokens");
+    // Progress lines on hot paths are throttled so printing never becomes the bottleneck
+    private final ThrottledLog indexLog = new ThrottledLog(1000);
+    private final ThrottledLog contextLog = new ThrottledLog(1000);
+    private final ExecutorService stageExecutor;
+    private final ExecutorService generateExecutor;
+    private final ScheduledExecutorService stageScheduler;
+    private volatile Bm25Index lexicalIndex;
+
+    public RagService(VectorStore vectorStore, Embedder embedder) {
+        this(vectorStore, embedder, new RagCache());
+    }
+
+    public RagService(VectorStore vectorStore, Embedder embedder, RagCache cache) {
+        this(vectorStore, embedder, cache, StageDeadlines.defaults(), ContextBudget.defaults());
+    }
 
-    public RagService(MilvusVectorStore vectorStore, Embedder embedder) {
+    public RagService(VectorStore vectorStore, Embedder embedder, RagCache cache,
+                      StageDeadlines deadlines, ContextBudget contextBudget) {
+        this(vectorStore, embedder, new RagLLM(), cache, deadlines, contextBudget);
+    }
+
+    public RagService(VectorStore vectorStore, Embedder embedder, RagLLM llm, RagCache cache,
+                      StageDeadlines deadlines, ContextBudget contextBudget) {
         this.vectorStore = vectorStore;
         this.embedder = embedder;
-        this.llm = new RagLLM();
+        this.llm = llm;
+        this.cache = cache;
+        this.retriever = new Retriever(vectorStore);
+        this.deadlines = deadlines;
+        this.contextAssembler = new ContextAssembler(embedder, contextBudget, vectorStore::metadata);
+        // Bounded: Java 17 has no virtual threads, and concurrent asks beyond this just queue for a stage thread
+        this.stageExecutor = Executors.newFixedThreadPool(STAGE_THREADS, daemonThreads("rag-stage"));
+        this.generateExecutor = Executors.newFixedThreadPool(GENERATE_THREADS, daemonThreads("rag-generate"));
+        this.stageScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("rag-deadlines"));
+        RagMetrics.gauge("rag.stage.queue", "Ask pipeline stages waiting for a thread",
+                (ThreadPoolExecutor) stageExecutor, executor -> executor.getQueue().size());
+        RagMetrics.gauge("rag.generate.queue", "Answer generations waiting for a thread",
+                (ThreadPoolExecutor) generateExecutor, executor -> executor.getQueue().size());
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    // Optional keyword retrieval run concurrently with vector search; its hits are merged into the context
+    public void setLexicalSearch(LexicalSearch lexicalSearch) {
+        retriever.setLexicalSearch(lexicalSearch);
     }
 
-    // Index a text chunk by generating its embedding and storing it in Milvus
+    /**
+     * Uses a BM25 index for the lexical side of retrieval and keeps it up to date as chunks
+     * are indexed. Chunks already in the vector store are still added, so an empty index
+     * catches up on the next indexing run.
+     */
+    public void setLexicalIndex(Bm25Index lexicalIndex) {
+        this.lexicalIndex = lexicalIndex;
+        retriever.setLexicalSearch(lexicalIndex);
+    }
+
+    // Index a text chunk by generating its embedding and storing it in Milvus (skipped if already indexed)
     public void indexText(String text) {
+        long id = ChunkIds.of("", text);
+        Bm25Index lexical = lexicalIndex;
+        if (!vectorStore.existingIds(Collections.singletonList(id)).isEmpty()) {
+            if (lexical != null) lexical.add(id, text);
+            return;
+        }
         float[] embedding = embedder.embed(text).vector();
-        vectorStore.index(text, embedding);
+        vectorStore.index(id, text, embedding);
+        // Only chunks with a vector row become keyword hits
+        if (lexical != null) lexical.add(id, text);
+        cache.invalidateRetrievals();
+    }
+
+    public IndexingStats indexAll(Iterable<String> texts) {
+        return indexAll("", texts);
+    }
+
+    public IndexingStats indexAll(String source, Iterable<String> texts) {
+        return indexAll(source, texts, DEFAULT_EMBED_BATCH_SIZE, DEFAULT_EMBED_CONCURRENCY);
+    }
+
+    /**
+     * Indexes many chunks by embedding them in batches on a bounded pool.
+     * Chunk IDs are derived from source and text, and chunks already present in the
+     * collection (or repeated within this run) are skipped before embedding, so
+     * re-running over an unchanged corpus costs one existence query per batch.
+     * At most {@code concurrency} batches are in flight at once; finished batches
+     * are queued on the vector store's async writer as they complete, and the call
+     * returns once every row has been inserted.
+     *
+     * @param source      Identifier of the originating document, part of each chunk ID
+     * @param texts       Chunks to index; blank chunks are skipped
+     * @param batchSize   Number of chunks per embedAll request
+     * @param concurrency Maximum number of embedding requests in flight
+     * @return Throughput summary for the run
+     */
+    public IndexingStats indexAll(String source, Iterable<String> texts, int batchSize, int concurrency) {
+        ChunkMetadata metadata = ChunkMetadata.of(source);
+        return indexDocuments(() -> StreamSupport.stream(texts.spliterator(), false)
+                .map(text -> new DocumentChunk(text, metadata))
+                .iterator(), batchSize, concurrency);
+    }
+
+    public IndexingStats indexDocuments(Iterable<DocumentChunk> chunks) {
+        return indexDocuments(chunks, DEFAULT_EMBED_BATCH_SIZE, DEFAULT_EMBED_CONCURRENCY);
+    }
+
+    /**
+     * Same as {@link #indexAll(String, Iterable, int, int)}, for chunks that carry their own
+     * source/page/section (see {@link DocumentLoader#streamDocument}); the metadata is stored
+     * in the chunk's row. Chunks without a timestamp are stamped with the time of indexing.
+     */
+    public IndexingStats indexDocuments(Iterable<DocumentChunk> chunks, int batchSize, int concurrency) {
+        return indexDocuments(chunks, batchSize, concurrency, null, null);
+    }
+
+    public IndexingStats reindexSources(Iterable<DocumentChunk> chunks) {
+        return reindexSources(chunks, () -> true);
+    }
+
+    /**
+     * Re-indexes whole documents: indexes the chunks as {@link #indexDocuments(Iterable)} does,
+     * then deletes every stored chunk of each tenant's sources seen here that the new version
+     * no longer has, from the vector store and the lexical index. Chunk IDs are content-addressed,
+     * so an edited document would otherwise keep its old chunks. Chunks without a source are
+     * never removed.
+     *
+     * @param complete Checked once the chunks are used up; when it returns false (e.g. indexing
+     *                 was stopped part way through a document) nothing is removed
+     */
+    public IndexingStats reindexSources(Iterable<DocumentChunk> chunks, BooleanSupplier complete) {
+        long start = System.nanoTime();
+        Map<String, Set<String>> sourcesByTenant = new HashMap<>();
+        Set<Long> currentIds = new HashSet<>();
+        IndexingStats stats = indexDocuments(chunks, DEFAULT_EMBED_BATCH_SIZE, DEFAULT_EMBED_CONCURRENCY,
+                sourcesByTenant, currentIds);
+        if (!complete.getAsBoolean()) return stats;
+        long removed = removeStale(sourcesByTenant, currentIds);
+        return new IndexingStats(stats.getChunksIndexed(), stats.getChunksSkipped(), removed, System.nanoTime() - start);
+    }
+
+    /**
+     * @param sourcesByTenant If not null, collects the sources seen, by tenant
+     * @param currentIds      If not null, collects the IDs of every chunk from a named source
+     */
+    private IndexingStats indexDocuments(Iterable<DocumentChunk> chunks, int batchSize, int concurrency,
+                                         Map<String, Set<String>> sourcesByTenant, Set<Long> currentIds) {
+        if (batchSize <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("Batch size and concurrency must be positive");
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        CompletionService<EmbeddedBatch> completion = new ExecutorCompletionService<>(pool);
+        Set<Long> seen = Collections.newSetFromMap(new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > RECENT_IDS_CAPACITY;
+            }
+        });
+        long start = System.nanoTime();
+        long indexedAt = System.currentTimeMillis();
+        long indexed = 0;
+        long skipped = 0;
+        int inFlight = 0;
+        // This run's own insert failures, independent of other writers on the same store
+        AtomicReference<Throwable> insertFailure = new AtomicReference<>();
+
+        try {
+            Map<Long, DocumentChunk> batch = new LinkedHashMap<>();
+            for (DocumentChunk chunk : chunks) {
+                String text = chunk.getText();
+                if (text == null || text.trim().isEmpty()) continue;
+                long id = chunk.id();
+                String source = chunk.getMetadata().getSource();
+                if (sourcesByTenant != null && !source.isEmpty()) {
+                    sourcesByTenant.computeIfAbsent(chunk.getMetadata().getTenant(), tenant -> new HashSet<>()).add(source);
+                    currentIds.add(id);
+                }
+                if (!seen.add(id)) {
+                    skipped++;
+                    continue;
+                }
+                if (chunk.getMetadata().getTimestamp() == 0) {
+                    chunk = chunk.withMetadata(chunk.getMetadata().withTimestamp(indexedAt));
+                }
+                batch.put(id, chunk);
+                if (batch.size() == batchSize) {
+                    skipped += dropExisting(batch);
+                    if (!batch.isEmpty()) {
+                        if (inFlight == concurrency) {
+                            indexed += store(completion.take().get(), start, indexed, insertFailure);
+                            inFlight--;
+                        }
+                        submit(completion, batch);
+                        inFlight++;
+                    }
+                    batch = new LinkedHashMap<>();
+                }
+            }
+            skipped += dropExisting(batch);
+            if (!batch.isEmpty()) {
+                submit(completion, batch);
+                inFlight++;
+            }
+            while (inFlight > 0) {
+                indexed += store(completion.take().get(), start, indexed, insertFailure);
+                inFlight--;
+            }
+            vectorStore.awaitPendingWrites();
+            if (insertFailure.get() != null) throw new CompletionException(insertFailure.get());
+            if (indexed > 0) cache.invalidateRetrievals();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Indexing interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Embedding batch failed", e.getCause());
+        } catch (CompletionException e) {
+            throw new RuntimeException("Milvus insert failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        chunksSkipped.increment(skipped);
+        return new IndexingStats(indexed, skipped, System.nanoTime() - start);
+    }
+
+    /**
+     * Removes chunks whose IDs are already in the collection; returns how many were removed.
+     * Those are added to the lexical index here, so an empty one catches up.
+     */
+    private int dropExisting(Map<Long, DocumentChunk> batch) {
+        if (batch.isEmpty()) return 0;
+        Set<Long> existing = vectorStore.existingIds(batch.keySet());
+        Bm25Index lexical = lexicalIndex;
+        for (Long id : existing) {
+            DocumentChunk chunk = batch.remove(id);
+            if (lexical != null && chunk != null) lexical.add(id, chunk.getText());
+        }
+        return existing.size();
+    }
+
+    // Deletes the stored chunks of these sources that weren't just indexed; returns how many
+    private long removeStale(Map<String, Set<String>> sourcesByTenant, Set<Long> currentIds) {
+        long removed = 0;
+        Bm25Index lexical = lexicalIndex;
+        for (Map.Entry<String, Set<String>> tenant : sourcesByTenant.entrySet()) {
+            // IDs are derived from tenant and source, so one set of current IDs serves every tenant
+            Set<Long> stale = vectorStore.idsForSources(tenant.getKey(), tenant.getValue());
+            stale.removeAll(currentIds);
+            if (stale.isEmpty()) continue;
+            vectorStore.delete(stale);
+            if (lexical != null) lexical.remove(stale);
+            removed += stale.size();
+        }
+        if (removed > 0) {
+            chunksRemoved.increment(removed);
+            cache.invalidateRetrievals();
+            System.out.println("🧹 Removed " + removed + " chunks that re-indexed documents no longer have");
+        }
+        return removed;
+    }
+
+    private void submit(CompletionService<EmbeddedBatch> completion, Map<Long, DocumentChunk> batch) {
+        List<Long> ids = new ArrayList<>(batch.size());
+        List<String> texts = new ArrayList<>(batch.size());
+        List<ChunkMetadata> metadata = new ArrayList<>(batch.size());
+        batch.forEach((id, chunk) -> {
+            ids.add(id);
+            texts.add(chunk.getText());
+            metadata.add(chunk.getMetadata());
+        });
+        completion.submit(() -> new EmbeddedBatch(ids, texts, metadata, embedder.embedAll(texts)));
+    }
+
+    // Queues the batch's rows; each chunk joins the lexical index once its vector row is inserted
+    private int store(EmbeddedBatch batch, long start, long indexedSoFar, AtomicReference<Throwable> failure) {
+        Bm25Index lexical = lexicalIndex;
+        for (int i = 0; i < batch.texts.size(); i++) {
+            String text = batch.texts.get(i);
+            vectorStore.indexAsync(batch.ids.get(i), text, batch.vectors.get(i), batch.metadata.get(i))
+                    .whenComplete((id, error) -> {
+                        if (error != null) failure.compareAndSet(null, error);
+                        else if (lexical != null) lexical.add(id, text);
+                    });
+        }
+        chunksIndexed.increment(batch.texts.size());
+        if (indexLog.shouldLog()) {
+            IndexingStats progress = new IndexingStats(indexedSoFar + batch.texts.size(), 0, System.nanoTime() - start);
+            System.out.println("⚡ Indexed " + progress);
+        }
+        return batch.texts.size();
     }
 
-    // Ask a question using vector search + LLM answer generation
+    private static final String NO_RESULTS_ANSWER = "Sorry, I couldn't find relevant information.";
+
+    // Ask a question using vector search + LLM answer generation; repeated questions are served from the cache
     public String ask(String question) {
-        float[] queryEmbedding = embedder.embed(question).vector();
-        Map<Long, String> topResults = vectorStore.search(queryEmbedding, 3);
+        return ask(question, SearchFilter.NONE);
+    }
 
-        if (topResults.isEmpty()) {
-            return "Sorry, I couldn't find relevant information.";
+    public String ask(String question, SearchFilter filter) {
+        try {
+            return askAsync(question, filter).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
         }
+    }
+
+    /**
+     * Runs ask as an asynchronous stage pipeline: embed (hedged when slow) → vector search,
+     * with lexical search running concurrently, then prompt assembly and generation.
+     * Each stage has its own deadline from {@link StageDeadlines} and fails with
+     * {@link StageTimeoutException} when it misses it. Cancelling the returned future
+     * (e.g. when the client disconnects) interrupts whatever stage is still running.
+     */
+    public CompletableFuture<String> askAsync(String question) {
+        return askAsync(question, SearchFilter.NONE);
+    }
+
+    /**
+     * Same as {@link #askAsync(String)}, retrieving only chunks that match the filter
+     * (e.g. one tenant's documents). The filter applies to lexical hits as well.
+     */
+    public CompletableFuture<String> askAsync(String question, SearchFilter filter) {
+        long start = System.nanoTime();
+        StageRunner stages = new StageRunner(stageExecutor, stageScheduler);
+        CompletableFuture<String> answer = retrieveAsync(question, filter, stages).thenCompose(context -> {
+            if (context.isEmpty()) {
+                return CompletableFuture.completedFuture(NO_RESULTS_ANSWER);
+            }
+            String cached = cache.cachedAnswer(question, context.getChunkIds());
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            return stages.run("generate", () -> llm.generateAnswer(context.getText(), question), deadlines.getGenerate(),
+                            generateExecutor)
+                    .thenApply(generated -> {
+                        cache.putAnswer(question, context.getChunkIds(), generated);
+                        return generated;
+                    });
+        });
+        answer.whenComplete((value, error) -> {
+            if (answer.isCancelled()) stages.cancelAll();
+            RagMetrics.askTimer("async", RagMetrics.outcome(error)).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        });
+        return answer;
+    }
+
+    /**
+     * Streams the answer token by token as the model generates it.
+     * Retrieval runs on the stage pool as in {@link #askAsync}; tokens are then delivered on the
+     * model client's thread. Cached answers are delivered as a single token.
+     * Cancelling the returned future stops retrieval if it is still running, or stops
+     * delivering tokens; the listener is not called after that.
+     *
+     * @return A future completed with the full answer
+     */
+    public CompletableFuture<String> askStreaming(String question, AnswerListener listener) {
+        return askStreaming(question, SearchFilter.NONE, listener);
+    }
+
+    public CompletableFuture<String> askStreaming(String question, SearchFilter filter, AnswerListener listener) {
+        long start = System.nanoTime();
+        StageRunner stages = new StageRunner(stageExecutor, stageScheduler);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) stages.cancelAll();
+            RagMetrics.askTimer("streaming", RagMetrics.outcome(error)).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        });
+
+        retrieveAsync(question, filter, stages).whenComplete((context, error) -> {
+            if (result.isDone()) return;
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                listener.onError(cause);
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            String immediate = context.isEmpty() ? NO_RESULTS_ANSWER : cache.cachedAnswer(question, context.getChunkIds());
+            if (immediate != null) {
+                long elapsed = millisSince(start);
+                listener.onToken(immediate);
+                listener.onComplete(immediate, new AnswerTiming(elapsed, elapsed, 1));
+                result.complete(immediate);
+                return;
+            }
+            streamAnswer(question, context, start, listener, result);
+        });
+        return result;
+    }
+
+    // The model's stream can't be aborted, so once the result is cancelled its tokens are dropped here
+    private void streamAnswer(String question, PackedContext context, long start, AnswerListener listener,
+                              CompletableFuture<String> result) {
+        llm.generateAnswerStreaming(context.getText(), question, new StreamingResponseHandler<>() {
+            private final StringBuilder answer = new StringBuilder();
+            private long firstTokenMillis = -1;
+            private int tokens;
+
+            @Override
+            public void onNext(String token) {
+                if (result.isDone()) return;
+                if (firstTokenMillis < 0) {
+                    firstTokenMillis = millisSince(start);
+                    firstTokenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+                tokens++;
+                answer.append(token);
+                listener.onToken(token);
+            }
+
+            @Override
+            public void onComplete(Response<String> response) {
+                if (result.isDone()) return;
+                String full = answer.toString();
+                cache.putAnswer(question, context.getChunkIds(), full);
+                long total = millisSince(start);
+                listener.onComplete(full, new AnswerTiming(firstTokenMillis < 0 ? total : firstTokenMillis, total, tokens));
+                result.complete(full);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                if (result.isDone()) return;
+                listener.onError(error);
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    /**
+     * Streams the answer as a {@link Flow.Publisher} of tokens, for reactive callers.
+     * Each subscription runs its own ask, started once it is subscribed, so no token is missed.
+     * Tokens are buffered per subscriber and delivered on the service's stage pool; a subscriber
+     * that falls a whole buffer behind fails with {@link IllegalStateException} rather than
+     * stalling the model's stream. Cancelling the subscription cancels the ask. The stream
+     * completes or fails with the answer.
+     */
+    public Flow.Publisher<String> askPublisher(String question) {
+        return askPublisher(question, SearchFilter.NONE);
+    }
 
-        StringBuilder contextBuilder = new StringBuilder();
-        for (Map.Entry<Long, String> entry : topResults.entrySet()) {
-            contextBuilder.append("Chunk ID ").append(entry.getKey()).append(": ")
-                    .append(entry.getValue()).append("\n\n");
+    public Flow.Publisher<String> askPublisher(String question, SearchFilter filter) {
+        return subscriber -> {
+            SubmissionPublisher<String> tokens = new SubmissionPublisher<>(stageExecutor, Flow.defaultBufferSize());
+            CompletableFuture<Void> cancelled = new CompletableFuture<>();
+            tokens.subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscriber.onSubscribe(new Flow.Subscription() {
+                        @Override
+                        public void request(long n) {
+                            subscription.request(n);
+                        }
+
+                        @Override
+                        public void cancel() {
+                            subscription.cancel();
+                            cancelled.complete(null);
+                        }
+                    });
+                }
+
+                @Override
+                public void onNext(String token) {
+                    subscriber.onNext(token);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    subscriber.onError(error);
+                }
+
+                @Override
+                public void onComplete() {
+                    subscriber.onComplete();
+                }
+            });
+
+            CompletableFuture<String> answer = askStreaming(question, filter, new AnswerListener() {
+                @Override
+                public void onToken(String token) {
+                    // Never block the model's callback thread on a slow subscriber
+                    if (tokens.offer(token, (ignored, dropped) -> false) < 0) {
+                        tokens.closeExceptionally(new IllegalStateException(
+                                "Subscriber fell more than " + tokens.getMaxBufferCapacity() + " tokens behind"));
+                        cancelled.complete(null);
+                    }
+                }
+
+                @Override
+                public void onComplete(String answer, AnswerTiming timing) {
+                    tokens.close();
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    tokens.closeExceptionally(error);
+                }
+            });
+            cancelled.thenRun(() -> {
+                answer.cancel(true);
+                tokens.close();
+            });
+        };
+    }
+
+    /**
+     * Embedding (hedged) → over-fetching vector search, with lexical search alongside, then
+     * dedupe/rerank/packing of the candidates into the context budget. Cached stages are skipped.
+     * The filter is pushed down to the vector store; lexical hits are checked against it there too.
+     */
+    private CompletableFuture<PackedContext> retrieveAsync(String question, SearchFilter filter, StageRunner stages) {
+        int candidates = contextAssembler.getBudget().getCandidates();
+        float[] cachedEmbedding = cache.cachedEmbedding(question);
+        CompletableFuture<float[]> embedding = cachedEmbedding != null
+                ? CompletableFuture.completedFuture(cachedEmbedding)
+                : hedgedEmbed(question, stages).thenApply(vector -> {
+                    cache.putEmbedding(question, vector);
+                    return vector;
+                });
+
+        CompletableFuture<Map<Long, String>> vectorHits = embedding.thenCompose(queryEmbedding -> {
+            Map<Long, String> cached = cache.cachedRetrieval(queryEmbedding, candidates, filter);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            return stages.run("search", () -> retriever.searchVectors(queryEmbedding, candidates, filter), deadlines.getSearch())
+                    .thenApply(hits -> {
+                        cache.putRetrieval(queryEmbedding, candidates, filter, hits);
+                        return hits;
+                    });
+        });
+
+        CompletableFuture<Map<Long, String>> lexicalHits = !retriever.hasLexicalSearch()
+                ? CompletableFuture.completedFuture(Collections.emptyMap())
+                // Lexical hits only add context, so a slow or failing lexical stage never fails the request
+                : stages.run("lexical", () -> retriever.searchLexical(question, candidates, filter), deadlines.getSearch())
+                        .exceptionally(error -> Collections.emptyMap());
+
+        return vectorHits.thenCombine(lexicalHits, (vector, keyword) -> Retriever.combine(vector, keyword, candidates))
+                .thenCompose(hits -> stages.run("assemble", () -> {
+                    PackedContext context = contextAssembler.assemble(question, embedding.join(), hits);
+                    contextTokens.record(context.getPackedTokens());
+                    contextTokensSaved.record(context.getTokensSaved());
+                    if (contextLog.shouldLog()) System.out.println("✂️ Context: " + context);
+                    return context;
+                }, deadlines.getAssemble()));
+    }
+
+    /**
+     * Embeds the question; if the call runs past the recent p95 latency, a second identical
+     * request is sent and whichever finishes first wins.
+     */
+    private CompletableFuture<float[]> hedgedEmbed(String question, StageRunner stages) {
+        CompletableFuture<float[]> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger();
+        List<CompletableFuture<float[]>> attempts = new CopyOnWriteArrayList<>();
+
+        Runnable attempt = () -> {
+            outstanding.incrementAndGet();
+            long start = System.nanoTime();
+            CompletableFuture<float[]> call = stages.run("embed", () -> embedder.embed(question).vector(), deadlines.getEmbed());
+            attempts.add(call);
+            call.whenComplete((vector, error) -> {
+                // Failures and timeouts count towards the hedging threshold too; a cancelled loser's time says nothing
+                if (!(error instanceof CancellationException)) embedLatency.record(millisSince(start));
+                if (error == null) result.complete(vector);
+                else if (outstanding.decrementAndGet() == 0) result.completeExceptionally(error);
+            });
+            if (result.isDone()) call.cancel(true);
+        };
+        // The losing attempt would otherwise keep its Ollama slot until it finishes
+        result.whenComplete((vector, error) -> attempts.forEach(call -> call.cancel(true)));
+        attempt.run();
+
+        long hedgeAfter = embedLatency.percentile(HEDGE_PERCENTILE);
+        if (deadlines.isHedgeEmbeddings() && hedgeAfter > 0) {
+            stages.schedule(() -> {
+                if (!result.isDone()) attempt.run();
+            }, hedgeAfter);
         }
+        return result;
+    }
 
-        return llm.generateAnswer(contextBuilder.toString(), question);
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public RagCache getCache() {
+        return cache;
     }
 
     @Override
     public void close() {
+        stageExecutor.shutdownNow();
+        generateExecutor.shutdownNow();
+        stageScheduler.shutdownNow();
+        retriever.close();
         vectorStore.close();
     }
+
+    private static class EmbeddedBatch {
+        final List<Long> ids;
+        final List<String> texts;
+        final List<ChunkMetadata> metadata;
+        final List<float[]> vectors;
+
+        EmbeddedBatch(List<Long> ids, List<String> texts, List<ChunkMetadata> metadata, List<float[]> vectors) {
+            this.ids = ids;
+            this.texts = texts;
+            this.metadata = metadata;
+            this.vectors = vectors;
+        }
+    }
 }
@@ -1,18 +1,53 @@
 package RAGApp;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-public class Retriever {
+/**
+ * Hybrid retrieval over a vector store and an optional keyword index. {@link RagService}
+ * runs {@link #searchVectors} and {@link #searchLexical} as concurrent pipeline stages, each
+ * with its own deadline, and merges their hits with {@link #combine}.
+ */
+public class Retriever implements AutoCloseable {
+    // Standard reciprocal rank fusion constant; damps the influence of the very top ranks
+    private static final int RRF_K = 60;
+    // Lexical candidates fetched per requested hit when a search filter will discard some of them
+    private static final int LEXICAL_FILTER_OVERFETCH = 4;
 
-    private final MilvusVectorStore vectorStore;
+    private final VectorStore vectorStore;
+    private final SearchBatcher searchBatcher;
+    private volatile LexicalSearch lexicalSearch;
 
-    public Retriever(MilvusVectorStore vectorStore) {
+    public Retriever(VectorStore vectorStore) {
+        this(vectorStore, null);
+    }
+
+    /**
+     * @param lexicalSearch Keyword index fused with vector hits, or {@code null} for vector search only
+     */
+    public Retriever(VectorStore vectorStore, LexicalSearch lexicalSearch) {
         this.vectorStore = vectorStore;
+        this.searchBatcher = new SearchBatcher(vectorStore);
+        this.lexicalSearch = lexicalSearch;
+    }
+
+    public void setLexicalSearch(LexicalSearch lexicalSearch) {
+        this.lexicalSearch = lexicalSearch;
+    }
+
+    public boolean hasLexicalSearch() {
+        return lexicalSearch != null;
     }
 
     /**
      * Retrieves the topK most similar vector IDs for the given query vector.
+     * Vector search only, since there is no query text to match keywords against.
      *
      * @param queryVector The query embedding vector
      * @param topK        Number of similar results to retrieve
@@ -21,4 +56,109 @@ public class Retriever {
     public Map<Long, String> retrieve(float[] queryVector, int topK) {
         return vectorStore.search(queryVector, topK);
     }
+
+    /**
+     * Hybrid retrieval: vector hits for the embedding fused with keyword hits for the text
+     * when a lexical index is configured, otherwise vector hits only.
+     */
+    public Map<Long, String> retrieve(String queryText, float[] queryVector, int topK) {
+        return combine(retrieve(queryVector, topK), searchLexical(queryText, topK, SearchFilter.NONE), topK);
+    }
+
+    // Vector search, micro-batched with concurrent callers and with the filter pushed down to the store
+    public Map<Long, String> searchVectors(float[] queryVector, int topK, SearchFilter filter) {
+        return searchBatcher.search(queryVector, topK, filter);
+    }
+
+    /**
+     * Keyword search, or no hits without a lexical index. The lexical index holds every
+     * tenant's chunks, so with a filter extra hits are fetched and checked against the vector store.
+     */
+    public Map<Long, String> searchLexical(String queryText, int topK, SearchFilter filter) {
+        LexicalSearch lexical = lexicalSearch;
+        if (lexical == null) return Collections.emptyMap();
+        if (filter == null || filter.isEmpty()) {
+            return lexical.search(queryText, topK);
+        }
+        Map<Long, String> hits = lexical.search(queryText, topK * LEXICAL_FILTER_OVERFETCH);
+        if (hits.isEmpty()) return hits;
+        Set<Long> allowed = vectorStore.existingIds(hits.keySet(), filter);
+        Map<Long, String> filtered = new LinkedHashMap<>();
+        for (Map.Entry<Long, String> hit : hits.entrySet()) {
+            if (filtered.size() == topK) break;
+            if (allowed.contains(hit.getKey())) filtered.put(hit.getKey(), hit.getValue());
+        }
+        return filtered;
+    }
+
+    // Vector hits as they are when there are no lexical hits, otherwise both fused
+    public static Map<Long, String> combine(Map<Long, String> vectorHits, Map<Long, String> lexicalHits, int topK) {
+        return lexicalHits.isEmpty() ? vectorHits : fuse(Arrays.asList(vectorHits, lexicalHits), topK);
+    }
+
+    /**
+     * Reciprocal rank fusion: each chunk scores the sum of 1 / (k + rank) over the rankings
+     * it appears in, so agreement between rankings matters more than raw scores, which are
+     * not comparable between BM25 and vector distance.
+     *
+     * @param rankings Result maps, each ordered best first
+     * @param topK     Number of fused results to keep
+     */
+    public static Map<Long, String> fuse(List<Map<Long, String>> rankings, int topK) {
+        Map<Long, Double> scores = new HashMap<>();
+        Map<Long, String> texts = new HashMap<>();
+        for (Map<Long, String> ranking : rankings) {
+            int rank = 1;
+            for (Map.Entry<Long, String> hit : ranking.entrySet()) {
+                scores.merge(hit.getKey(), 1.0 / (RRF_K + rank++), Double::sum);
+                texts.putIfAbsent(hit.getKey(), hit.getValue());
+            }
+        }
+        List<Map.Entry<Long, Double>> ordered = new ArrayList<>(scores.entrySet());
+        ordered.sort(Map.Entry.<Long, Double>comparingByValue().reversed());
+
+        Map<Long, String> fused = new LinkedHashMap<>();
+        for (Map.Entry<Long, Double> entry : ordered) {
+            if (fused.size() == topK) break;
+            fused.put(entry.getKey(), texts.get(entry.getKey()));
+        }
+        return fused;
+    }
+
+    /**
+     * Retrieves the topK most similar chunks for many query vectors with one search request.
+     *
+     * @param queryVectors The query embedding vectors
+     * @param topK         Number of similar results to retrieve per query
+     * @return One result map per query, in query order
+     */
+    public List<Map<Long, String>> retrieveAll(List<float[]> queryVectors, int topK) {
+        return vectorStore.searchBatch(queryVectors, topK);
+    }
+
+    /**
+     * Same as {@link #retrieveAll(List, int)}, fusing each query's vector hits with keyword
+     * hits for its text when a lexical index is configured.
+     *
+     * @param queryTexts   The query texts, one per vector
+     * @param queryVectors Their embeddings
+     */
+    public List<Map<Long, String>> retrieveAll(List<String> queryTexts, List<float[]> queryVectors, int topK) {
+        if (queryTexts.size() != queryVectors.size()) {
+            throw new IllegalArgumentException("Got " + queryTexts.size() + " query texts for " + queryVectors.size() + " vectors");
+        }
+        List<Map<Long, String>> vectorHits = retrieveAll(queryVectors, topK);
+        if (lexicalSearch == null) return vectorHits;
+        List<Map<Long, String>> results = new ArrayList<>(vectorHits.size());
+        for (int i = 0; i < vectorHits.size(); i++) {
+            results.add(combine(vectorHits.get(i), searchLexical(queryTexts.get(i), topK, SearchFilter.NONE), topK));
+        }
+        return results;
+    }
+
+    // Stops the search batcher; the vector store is left to its owner
+    @Override
+    public void close() {
+        searchBatcher.close();
+    }
 }
@@ -0,0 +1,195 @@
+package RAGApp;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micro-batching front-end for {@link VectorStore#searchBatch}.
+ * Concurrent searches arriving within a short window are packed into one Milvus request
+ * and the results handed back per caller. When no search is in flight a request is sent
+ * immediately, so a single user never pays the batching window. Searches with different
+ * {@link SearchFilter}s are collected together but sent as one request per filter.
+ */
+public class SearchBatcher implements AutoCloseable {
+    private static final long DEFAULT_WINDOW_MICROS = 2_000;
+    private static final int DEFAULT_MAX_BATCH = 64;
+    private static final int DISPATCH_THREADS = 4;
+
+    private final VectorStore vectorStore;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ExecutorService dispatchers;
+    private final Thread collector;
+    private final Timer searchTimer;
+    private final DistributionSummary batchSizes;
+    private volatile boolean closed = false;
+
+    public SearchBatcher(VectorStore vectorStore) {
+        this(vectorStore, DEFAULT_WINDOW_MICROS, DEFAULT_MAX_BATCH);
+    }
+
+    /**
+     * @param windowMicros How long to wait for more searches once one is pending and others are in flight
+     * @param maxBatch     Maximum queries per Milvus request
+     */
+    public SearchBatcher(VectorStore vectorStore, long windowMicros, int maxBatch) {
+        this.vectorStore = vectorStore;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxBatch = maxBatch;
+        this.dispatchers = Executors.newFixedThreadPool(DISPATCH_THREADS, r -> {
+            Thread t = new Thread(r, "search-dispatch");
+            t.setDaemon(true);
+            return t;
+        });
+        String store = vectorStore.getClass().getSimpleName();
+        this.searchTimer = RagMetrics.timer("rag.search", "Vector store search requests", "store", store);
+        this.batchSizes = RagMetrics.summary("rag.search.batch.size", "Queries coalesced into one search request", "queries", "store", store);
+        RagMetrics.gauge("rag.search.queue", "Searches waiting to be batched", queue, BlockingQueue::size, "store", store);
+        this.collector = new Thread(this::collect, "search-batcher");
+        this.collector.setDaemon(true);
+        this.collector.start();
+    }
+
+    public CompletableFuture<Map<Long, String>> submit(float[] queryEmbedding, int topK) {
+        return submit(queryEmbedding, topK, SearchFilter.NONE);
+    }
+
+    public CompletableFuture<Map<Long, String>> submit(float[] queryEmbedding, int topK, SearchFilter filter) {
+        if (closed) {
+            throw new IllegalStateException("Search batcher is closed");
+        }
+        Request request = new Request(queryEmbedding, topK, filter == null ? SearchFilter.NONE : filter);
+        queue.add(request);
+        // close() may have drained the queue between the check above and the add; nothing would pick this up
+        if (closed && queue.remove(request)) {
+            request.future.completeExceptionally(new IllegalStateException("Search batcher is closed"));
+        }
+        return request.future;
+    }
+
+    // Blocking convenience wrapper around submit()
+    public Map<Long, String> search(float[] queryEmbedding, int topK) {
+        return search(queryEmbedding, topK, SearchFilter.NONE);
+    }
+
+    public Map<Long, String> search(float[] queryEmbedding, int topK, SearchFilter filter) {
+        try {
+            return submit(queryEmbedding, topK, filter).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private void collect() {
+        List<Request> batch = new ArrayList<>(maxBatch);
+        while (!closed) {
+            try {
+                batch.add(queue.take());
+                if (inFlight.get() > 0) {
+                    long deadline = System.nanoTime() + windowNanos;
+                    while (batch.size() < maxBatch) {
+                        Request next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) break;
+                        batch.add(next);
+                    }
+                } else {
+                    queue.drainTo(batch, maxBatch - 1);
+                }
+            } catch (InterruptedException e) {
+                if (batch.isEmpty()) return;
+            }
+
+            Map<SearchFilter, List<Request>> byFilter = new LinkedHashMap<>();
+            for (Request request : batch) {
+                byFilter.computeIfAbsent(request.filter, filter -> new ArrayList<>()).add(request);
+            }
+            batch.clear();
+            for (List<Request> dispatched : byFilter.values()) {
+                inFlight.incrementAndGet();
+                dispatchers.execute(() -> dispatch(dispatched));
+            }
+        }
+    }
+
+    // Every request in the batch has the same filter
+    private void dispatch(List<Request> batch) {
+        try {
+            int topK = 0;
+            List<float[]> queries = new ArrayList<>(batch.size());
+            for (Request request : batch) {
+                topK = Math.max(topK, request.topK);
+                queries.add(request.queryEmbedding);
+            }
+
+            long start = System.nanoTime();
+            List<Map<Long, String>> results = vectorStore.searchBatch(queries, topK, batch.get(0).filter);
+            searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizes.record(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(truncate(results.get(i), batch.get(i).topK));
+            }
+        } catch (Exception e) {
+            for (Request request : batch) {
+                request.future.completeExceptionally(e);
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    // Requests in one batch share the largest topK; trim each result back to what was asked for
+    private static Map<Long, String> truncate(Map<Long, String> hits, int topK) {
+        if (hits.size() <= topK) return hits;
+        Map<Long, String> trimmed = new LinkedHashMap<>();
+        for (Map.Entry<Long, String> hit : hits.entrySet()) {
+            if (trimmed.size() == topK) break;
+            trimmed.put(hit.getKey(), hit.getValue());
+        }
+        return trimmed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        collector.interrupt();
+        try {
+            collector.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dispatchers.shutdown();
+        Request pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new IllegalStateException("Search batcher is closed"));
+        }
+    }
+
+    private static class Request {
+        final float[] queryEmbedding;
+        final int topK;
+        final SearchFilter filter;
+        final CompletableFuture<Map<Long, String>> future = new CompletableFuture<>();
+
+        Request(float[] queryEmbedding, int topK, SearchFilter filter) {
+            this.queryEmbedding = queryEmbedding;
+            this.topK = topK;
+            this.filter = filter;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package RAGApp;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Restricts a search to one tenant, a set of sources and/or a timestamp range.
+ * {@link MilvusVectorStore} pushes it down as a boolean expression, so a tenant filter
+ * only touches that tenant's partition; in-memory stores evaluate {@link #matches} per chunk.
+ * Immutable; build with {@link #forTenant} and the {@code with…} methods.
+ */
+public class SearchFilter {
+    public static final SearchFilter NONE = new SearchFilter(null, Collections.emptySet(), Long.MIN_VALUE, Long.MAX_VALUE);
+
+    private final String tenant;
+    private final Set<String> sources;
+    private final long fromTimestamp;
+    private final long toTimestamp;
+
+    private SearchFilter(String tenant, Set<String> sources, long fromTimestamp, long toTimestamp) {
+        this.tenant = tenant;
+        this.sources = sources;
+        this.fromTimestamp = fromTimestamp;
+        this.toTimestamp = toTimestamp;
+    }
+
+    public static SearchFilter forTenant(String tenant) {
+        return NONE.withTenant(tenant);
+    }
+
+    // A null or empty tenant matches every tenant
+    public SearchFilter withTenant(String tenant) {
+        return new SearchFilter(tenant == null || tenant.isEmpty() ? null : tenant, sources, fromTimestamp, toTimestamp);
+    }
+
+    // Only chunks from one of these sources; an empty collection matches every source
+    public SearchFilter withSources(Collection<String> sources) {
+        Set<String> sorted = sources == null ? Collections.emptySet() : Collections.unmodifiableSet(new TreeSet<>(sources));
+        return new SearchFilter(tenant, sorted, fromTimestamp, toTimestamp);
+    }
+
+    /**
+     * Only chunks whose document timestamp (epoch millis) is in {@code [from, to)}.
+     */
+    public SearchFilter withTimestampRange(long from, long to) {
+        if (from > to) {
+            throw new IllegalArgumentException("Empty timestamp range: " + from + " > " + to);
+        }
+        return new SearchFilter(tenant, sources, from, to);
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public Set<String> getSources() {
+        return sources;
+    }
+
+    public boolean isEmpty() {
+        return tenant == null && sources.isEmpty() && fromTimestamp == Long.MIN_VALUE && toTimestamp == Long.MAX_VALUE;
+    }
+
+    public boolean hasTimestampRange() {
+        return fromTimestamp != Long.MIN_VALUE || toTimestamp != Long.MAX_VALUE;
+    }
+
+    public boolean matches(ChunkMetadata metadata) {
+        if (metadata == null) metadata = ChunkMetadata.NONE;
+        if (tenant != null && !tenant.equals(metadata.getTenant())) return false;
+        if (!sources.isEmpty() && !sources.contains(metadata.getSource())) return false;
+        return metadata.getTimestamp() >= fromTimestamp && metadata.getTimestamp() < toTimestamp;
+    }
+
+    /**
+     * Milvus boolean expression over the tenant, source and updated_at fields, or "" for no filter.
+     */
+    public String toExpression() {
+        StringBuilder expression = new StringBuilder();
+        if (tenant != null) {
+            and(expression).append("tenant == ").append(quote(tenant));
+        }
+        if (!sources.isEmpty()) {
+            and(expression).append("source in [");
+            boolean first = true;
+            for (String source : sources) {
+                if (!first) expression.append(", ");
+                expression.append(quote(source));
+                first = false;
+            }
+            expression.append(']');
+        }
+        if (fromTimestamp != Long.MIN_VALUE) {
+            and(expression).append("updated_at >= ").append(fromTimestamp);
+        }
+        if (toTimestamp != Long.MAX_VALUE) {
+            and(expression).append("updated_at < ").append(toTimestamp);
+        }
+        return expression.toString();
+    }
+
+    private static StringBuilder and(StringBuilder expression) {
+        return expression.length() == 0 ? expression : expression.append(" && ");
+    }
+
+    // Double-quoted string literal; backslashes and quotes are escaped so values can't break out of it
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') quoted.append('\\');
+            quoted.append(c);
+        }
+        return quoted.append('"').toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SearchFilter)) return false;
+        SearchFilter other = (SearchFilter) o;
+        return fromTimestamp == other.fromTimestamp && toTimestamp == other.toTimestamp
+                && Objects.equals(tenant, other.tenant) && sources.equals(other.sources);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tenant, sources, fromTimestamp, toTimestamp);
+    }
+
+    @Override
+    public String toString() {
+        return isEmpty() ? "no filter" : toExpression();
+    }
+}
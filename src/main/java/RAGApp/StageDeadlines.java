@@ -0,0 +1,48 @@
+package RAGApp;
+
+import java.time.Duration;
+
+/**
+ * Per-stage time limits for the ask pipeline, plus whether slow embedding calls are hedged.
+ */
+public class StageDeadlines {
+    private final Duration embed;
+    private final Duration search;
+    private final Duration assemble;
+    private final Duration generate;
+    private final boolean hedgeEmbeddings;
+
+    public StageDeadlines(Duration embed, Duration search, Duration assemble, Duration generate, boolean hedgeEmbeddings) {
+        this.embed = embed;
+        this.search = search;
+        this.assemble = assemble;
+        this.generate = generate;
+        this.hedgeEmbeddings = hedgeEmbeddings;
+    }
+
+    public static StageDeadlines defaults() {
+        return new StageDeadlines(Duration.ofSeconds(10), Duration.ofSeconds(5), Duration.ofSeconds(2),
+                Duration.ofSeconds(120), true);
+    }
+
+    public Duration getEmbed() {
+        return embed;
+    }
+
+    public Duration getSearch() {
+        return search;
+    }
+
+    // Dedupe, rerank and packing of the retrieved chunks; in-process work, so it gets a short limit
+    public Duration getAssemble() {
+        return assemble;
+    }
+
+    public Duration getGenerate() {
+        return generate;
+    }
+
+    public boolean isHedgeEmbeddings() {
+        return hedgeEmbeddings;
+    }
+}
@@ -0,0 +1,69 @@
+package RAGApp;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the stages of one request on a shared pool, each with its own deadline.
+ * A stage that times out, or every stage when the request is cancelled, has its
+ * worker thread interrupted so blocking calls stop as early as they can.
+ */
+class StageRunner {
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final List<FutureTask<?>> tasks = new CopyOnWriteArrayList<>();
+
+    StageRunner(ExecutorService executor, ScheduledExecutorService scheduler) {
+        this.executor = executor;
+        this.scheduler = scheduler;
+    }
+
+    <T> CompletableFuture<T> run(String stage, Callable<T> work, Duration deadline) {
+        return run(stage, work, deadline, executor);
+    }
+
+    // For long stages that get their own pool, so they never hold up the short ones queued on the shared one
+    <T> CompletableFuture<T> run(String stage, Callable<T> work, Duration deadline, ExecutorService on) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            try {
+                result.complete(work.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+            return null;
+        });
+        tasks.add(task);
+        long start = System.nanoTime();
+
+        ScheduledFuture<?> timeout = scheduler.schedule(
+                () -> result.completeExceptionally(new StageTimeoutException(stage, deadline)),
+                deadline.toMillis(), TimeUnit.MILLISECONDS);
+        result.whenComplete((value, error) -> {
+            timeout.cancel(false);
+            if (error != null) task.cancel(true);
+            RagMetrics.stageTimer(stage, RagMetrics.outcome(error)).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        });
+
+        on.execute(task);
+        return result;
+    }
+
+    void schedule(Runnable action, long delayMillis) {
+        scheduler.schedule(action, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void cancelAll() {
+        for (FutureTask<?> task : tasks) {
+            task.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package RAGApp;
+
+import java.time.Duration;
+
+/**
+ * Thrown when one stage of the ask pipeline misses its deadline.
+ */
+public class StageTimeoutException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public StageTimeoutException(String stage, Duration deadline) {
+        super(stage + " stage exceeded its " + deadline.toMillis() + " ms deadline");
+    }
+}
@@ -0,0 +1,118 @@
+package RAGApp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * What startup learned last time, so the next start can skip the round trips: the
+ * embedding dimension of each model (normally found with a live embedding request) and
+ * the outcome of the Milvus collection handshake (has/describe collection, describe index,
+ * row count). Entries are trusted on startup and rewritten whenever the live value is
+ * checked again, so a stale entry corrects itself after one run.
+ *
+ * <p>A small properties file, rewritten atomically on every change.
+ */
+public class StartupManifest {
+    private final Path path;
+    private final Properties properties = new Properties();
+
+    /**
+     * @param path File to read and write; missing or unreadable files start an empty manifest
+     */
+    public StartupManifest(Path path) {
+        this.path = path;
+        if (Files.exists(path)) {
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("⚠ Ignoring unreadable startup manifest " + path + ": " + e.getMessage());
+                properties.clear();
+            }
+        }
+    }
+
+    /**
+     * @return The dimension last seen for this model, or 0 if unknown
+     */
+    public synchronized int embeddingDimension(String modelName) {
+        return Integer.parseInt(properties.getProperty("embedding." + modelName + ".dimension", "0"));
+    }
+
+    public synchronized void putEmbeddingDimension(String modelName, int dimension) {
+        if (embeddingDimension(modelName) == dimension) return;
+        properties.setProperty("embedding." + modelName + ".dimension", Integer.toString(dimension));
+        save();
+    }
+
+    /**
+     * @return The handshake recorded for this collection, or {@code null} if there is none
+     */
+    public synchronized CollectionState collection(String key) {
+        String prefix = "collection." + key + ".";
+        String dimension = properties.getProperty(prefix + "dimension");
+        if (dimension == null) return null;
+        String fields = properties.getProperty(prefix + "fields", "");
+        return new CollectionState(Integer.parseInt(dimension),
+                properties.getProperty(prefix + "profile", ""),
+                Long.parseLong(properties.getProperty(prefix + "rows", "0")),
+                fields.isEmpty() ? Collections.emptySet() : new LinkedHashSet<>(Arrays.asList(fields.split(","))));
+    }
+
+    public synchronized void putCollection(String key, CollectionState state) {
+        String prefix = "collection." + key + ".";
+        properties.setProperty(prefix + "dimension", Integer.toString(state.dimension));
+        properties.setProperty(prefix + "profile", state.profile);
+        properties.setProperty(prefix + "rows", Long.toString(state.rows));
+        properties.setProperty(prefix + "fields", String.join(",", state.metadataFields));
+        save();
+    }
+
+    public synchronized void removeCollection(String key) {
+        String prefix = "collection." + key + ".";
+        if (properties.keySet().removeIf(name -> name.toString().startsWith(prefix))) save();
+    }
+
+    private void save() {
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "RAG startup manifest; safe to delete");
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Only costs the next start its shortcut
+            System.err.println("⚠ Failed to save startup manifest " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * A collection as the last handshake found it.
+     */
+    public static final class CollectionState {
+        final int dimension;
+        // IndexProfile.toString() of the requested profile
+        final String profile;
+        // Row count the active index profile was resolved for
+        final long rows;
+        final Set<String> metadataFields;
+
+        CollectionState(int dimension, String profile, long rows, Set<String> metadataFields) {
+            this.dimension = dimension;
+            this.profile = profile;
+            this.rows = rows;
+            this.metadataFields = metadataFields;
+        }
+    }
+}
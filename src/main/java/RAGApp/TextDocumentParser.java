@@ -0,0 +1,30 @@
+package RAGApp;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Plain UTF-8 text, recognized by extension; {@link DocumentLoader#streamDocument} also uses it
+ * for a single file of unknown type. Directory walks skip unknown types, since images, office
+ * files and the like aren't UTF-8.
+ * Read in bounded windows through {@link DocumentLoader#streamChunks(Path, TextSplitter)}.
+ */
+public class TextDocumentParser implements DocumentParser {
+    private static final Set<String> TEXT_EXTENSIONS = Set.of(
+            "txt", "text", "log", "csv", "tsv", "json", "jsonl", "xml", "html", "htm", "yaml", "yml",
+            "rst", "adoc", "asciidoc", "tex", "properties", "ini", "cfg", "conf", "sql",
+            "java", "kt", "py", "js", "ts", "go", "rs", "c", "h", "cpp", "hpp", "cs", "rb", "sh");
+
+    @Override
+    public boolean supports(Path file) {
+        return TEXT_EXTENSIONS.contains(DocumentParser.extensionOf(file));
+    }
+
+    @Override
+    public Stream<DocumentChunk> parse(Path file, TextSplitter splitter) throws IOException {
+        ChunkMetadata metadata = ChunkMetadata.forFile(file);
+        return DocumentLoader.streamChunks(file, splitter).map(text -> new DocumentChunk(text, metadata));
+    }
+}
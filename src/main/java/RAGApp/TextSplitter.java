@@ -1,13 +1,47 @@
 package RAGApp;
 
+import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
- * Utility class for splitting long text into smaller fixed-size chunks.
+ * Splits long text into chunks for embedding.
+ *
+ * <p>The static {@link #split(String, int)} is the original naive fixed-size splitter.
+ * Instances are boundary-aware: text is segmented into sentences and paragraphs, which are
+ * packed into chunks of at most {@code maxTokens} estimated tokens, with about {@code overlapTokens}
+ * worth of trailing sentences (topped up with whole words) repeated at the start of the next chunk. Splitting works on
+ * offsets into the original {@link CharSequence}; no substrings are made unless asked for.
  */
 public class TextSplitter {
 
+    // Rough WordPiece behaviour: long words split into pieces of about this many characters
+    private static final int WORDPIECE_CHARS = 6;
+
+    /**
+     * Receives each chunk as a {@code [start, end)} range of the text being split.
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(CharSequence text, int start, int end);
+    }
+
+    private final int maxTokens;
+    private final int overlapTokens;
+
+    /**
+     * @param maxTokens     Upper bound on estimated tokens per chunk; keep it within the embedding model's context window
+     * @param overlapTokens Estimated tokens of trailing text repeated in the next chunk
+     */
+    public TextSplitter(int maxTokens, int overlapTokens) {
+        if (maxTokens <= 0 || overlapTokens < 0 || overlapTokens >= maxTokens) {
+            throw new IllegalArgumentException("Require maxTokens > overlapTokens >= 0");
+        }
+        this.maxTokens = maxTokens;
+        this.overlapTokens = overlapTokens;
+    }
+
     /**
      * Splits the input text into chunks of the given size.
      * This is a naive splitter that does not consider word boundaries.
@@ -25,4 +59,190 @@ public class TextSplitter {
         }
         return chunks;
     }
+
+    /**
+     * Splits the text and hands each chunk to the consumer as offsets, without copying.
+     * Chunks are trimmed of surrounding whitespace; empty chunks are never emitted.
+     */
+    public void split(CharSequence text, ChunkConsumer consumer) {
+        Units units = segment(text);
+        int i = 0;
+        // Units before this index were already emitted; the chunk must add at least one after it
+        int firstNew = 0;
+        int carryStart = -1;
+        int carryTokens = 0;
+        while (i < units.size) {
+            int tokens = carryTokens;
+            int j = i;
+            while (j < units.size && tokens + units.tokens[j] <= maxTokens) {
+                tokens += units.tokens[j];
+                j++;
+                // Prefer ending on a paragraph once the chunk is reasonably full
+                if (j > firstNew && units.paragraphEnd[j - 1] && tokens * 2 >= maxTokens) break;
+            }
+            if (j == i) j = i + 1;
+
+            emitTrimmed(text, carryStart >= 0 ? carryStart : units.starts[i], units.ends[j - 1], consumer);
+            if (j >= units.size) break;
+
+            // Overlap whole trailing sentences first, then top up with trailing words of the sentence before them
+            int next = j;
+            int overlap = 0;
+            while (next - 1 > i && overlap + units.tokens[next - 1] <= overlapTokens) {
+                overlap += units.tokens[next - 1];
+                next--;
+            }
+            // The carried sentences are counted again when the next chunk re-adds them; only words are carried here
+            carryStart = -1;
+            carryTokens = 0;
+            int pos = units.ends[next - 1];
+            int lowest = units.starts[next - 1];
+            while (pos > lowest) {
+                int wordEnd = pos;
+                while (wordEnd > lowest && Character.isWhitespace(text.charAt(wordEnd - 1))) wordEnd--;
+                int wordStart = wordEnd;
+                while (wordStart > lowest && !Character.isWhitespace(text.charAt(wordStart - 1))) wordStart--;
+                int wordTokens = estimateTokens(text, wordStart, wordEnd);
+                if (wordStart == wordEnd || overlap + carryTokens + wordTokens > overlapTokens) break;
+                carryTokens += wordTokens;
+                carryStart = wordStart;
+                pos = wordStart;
+            }
+            // Without room for the next new unit the overlap would make a chunk of old text only
+            if (overlap + carryTokens + units.tokens[j] > maxTokens) {
+                next = j;
+                carryStart = -1;
+                carryTokens = 0;
+            }
+            firstNew = j;
+            i = next;
+        }
+    }
+
+    public List<CharSequence> splitToViews(CharSequence text) {
+        List<CharSequence> chunks = new ArrayList<>();
+        split(text, (source, start, end) -> chunks.add(CharBuffer.wrap(source, start, end)));
+        return chunks;
+    }
+
+    public List<String> splitToStrings(CharSequence text) {
+        List<String> chunks = new ArrayList<>();
+        split(text, (source, start, end) -> chunks.add(source.subSequence(start, end).toString()));
+        return chunks;
+    }
+
+    /**
+     * Estimates tokens for a range of text: one per punctuation character and one per
+     * {@value #WORDPIECE_CHARS}-character piece of each word.
+     */
+    public static int estimateTokens(CharSequence text, int start, int end) {
+        int tokens = 0;
+        int wordLength = 0;
+        for (int pos = start; pos < end; pos++) {
+            char c = text.charAt(pos);
+            if (Character.isLetterOrDigit(c)) {
+                if (wordLength++ % WORDPIECE_CHARS == 0) tokens++;
+            } else {
+                wordLength = 0;
+                if (!Character.isWhitespace(c)) tokens++;
+            }
+        }
+        return tokens;
+    }
+
+    // Cuts the text into sentence/paragraph units, none larger than maxTokens
+    private Units segment(CharSequence text) {
+        Units units = new Units();
+        int length = text.length();
+        int unitStart = 0;
+        int tokens = 0;
+        int wordLength = 0;
+        int lastSpace = -1;
+        int tokensAtSpace = 0;
+
+        for (int pos = 0; pos < length; pos++) {
+            char c = text.charAt(pos);
+            if (Character.isLetterOrDigit(c)) {
+                if (wordLength++ % WORDPIECE_CHARS == 0) tokens++;
+            } else {
+                wordLength = 0;
+                if (Character.isWhitespace(c)) {
+                    lastSpace = pos;
+                    tokensAtSpace = tokens;
+                } else {
+                    tokens++;
+                }
+            }
+
+            if (tokens > maxTokens) {
+                if (lastSpace > unitStart) {
+                    // Oversized sentence: cut at the last word boundary
+                    units.add(unitStart, lastSpace, tokensAtSpace, false);
+                    unitStart = lastSpace + 1;
+                    tokens -= tokensAtSpace;
+                } else {
+                    // A single enormous word: hard cut before this character
+                    units.add(unitStart, pos, tokens - 1, false);
+                    unitStart = pos;
+                    tokens = 1;
+                }
+                lastSpace = -1;
+                tokensAtSpace = 0;
+            }
+
+            boolean sentenceEnd = (c == '.' || c == '!' || c == '?')
+                    && (pos + 1 == length || Character.isWhitespace(text.charAt(pos + 1)));
+            boolean paragraphEnd = c == '\n' && isParagraphBreak(text, pos + 1);
+            if (sentenceEnd || paragraphEnd) {
+                if (tokens > 0) units.add(unitStart, pos + 1, tokens, paragraphEnd);
+                else if (paragraphEnd && units.size > 0) units.paragraphEnd[units.size - 1] = true;
+                unitStart = pos + 1;
+                tokens = 0;
+                lastSpace = -1;
+                tokensAtSpace = 0;
+            }
+        }
+        if (tokens > 0) units.add(unitStart, length, tokens, true);
+        return units;
+    }
+
+    // True if only spaces/tabs/CR stand between this position and another newline
+    private static boolean isParagraphBreak(CharSequence text, int pos) {
+        for (int i = pos; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') return true;
+            if (c != ' ' && c != '\t' && c != '\r') return false;
+        }
+        return false;
+    }
+
+    private static void emitTrimmed(CharSequence text, int start, int end, ChunkConsumer consumer) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+        if (start < end) consumer.accept(text, start, end);
+    }
+
+    // Parallel primitive arrays: one entry per sentence/paragraph unit
+    private static final class Units {
+        int[] starts = new int[64];
+        int[] ends = new int[64];
+        int[] tokens = new int[64];
+        boolean[] paragraphEnd = new boolean[64];
+        int size;
+
+        void add(int start, int end, int tokenCount, boolean endsParagraph) {
+            if (size == starts.length) {
+                int capacity = size * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                tokens = Arrays.copyOf(tokens, capacity);
+                paragraphEnd = Arrays.copyOf(paragraphEnd, capacity);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            tokens[size] = tokenCount;
+            paragraphEnd[size] = endsParagraph;
+            size++;
+        }
+    }
 }
@@ -0,0 +1,22 @@
+package RAGApp;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets a hot path print at most once per interval; callers check {@link #shouldLog()}
+ * before building the message, so suppressed lines cost one atomic read.
+ */
+final class ThrottledLog {
+    private final long intervalNanos;
+    private final AtomicLong nextLogNanos = new AtomicLong(System.nanoTime());
+
+    ThrottledLog(long intervalMillis) {
+        this.intervalNanos = intervalMillis * 1_000_000;
+    }
+
+    boolean shouldLog() {
+        long now = System.nanoTime();
+        long next = nextLogNanos.get();
+        return now - next >= 0 && nextLogNanos.compareAndSet(next, now + intervalNanos);
+    }
+}
@@ -0,0 +1,157 @@
+package RAGApp;
+
+import java.util.Locale;
+
+/**
+ * How embeddings are shrunk before they reach the vector store, to cut its memory and the
+ * bytes moved per insert and search:
+ * <ul>
+ *   <li>Matryoshka-style truncation to the leading dimensions, renormalized to unit length.
+ *       Only meaningful for models trained so that a prefix of the vector is itself an
+ *       embedding (e.g. nomic-embed-text, mxbai-embed-large).</li>
+ *   <li>Quantization: SQ8 keeps float vectors but indexes them with IVF_SQ8 (one byte per
+ *       dimension), BINARY stores one sign bit per dimension in a BinaryVector field.</li>
+ *   <li>Rescoring: {@link CompressedVectorStore} over-fetches {@code rescore} times the
+ *       requested hits and reorders them by full-precision cosine similarity.</li>
+ * </ul>
+ * Parsed from a spec like {@code "truncate:256,binary,rescore:8"}; {@code "none"} disables it.
+ */
+public class VectorCompression {
+    public static final VectorCompression NONE = new VectorCompression(0, Quantization.NONE, 1);
+
+    public enum Quantization { NONE, SQ8, BINARY }
+
+    private final int dimensions;
+    private final Quantization quantization;
+    private final int rescoreFactor;
+
+    /**
+     * @param dimensions    Leading dimensions to keep, or 0 for all
+     * @param quantization  How the stored vectors are quantized
+     * @param rescoreFactor Candidates fetched per requested hit for full-precision rescoring; 1 disables rescoring
+     */
+    public VectorCompression(int dimensions, Quantization quantization, int rescoreFactor) {
+        if (dimensions < 0 || rescoreFactor < 1) {
+            throw new IllegalArgumentException("Invalid compression: dimensions=" + dimensions + ", rescore=" + rescoreFactor);
+        }
+        if (quantization == Quantization.BINARY && dimensions % 8 != 0) {
+            throw new IllegalArgumentException("Binary quantization needs dimensions divisible by 8, got " + dimensions);
+        }
+        this.dimensions = dimensions;
+        this.quantization = quantization;
+        this.rescoreFactor = rescoreFactor;
+    }
+
+    public static VectorCompression parse(String spec) {
+        if (spec == null || spec.isBlank() || spec.strip().equalsIgnoreCase("none")) {
+            return NONE;
+        }
+        int dimensions = 0;
+        Quantization quantization = Quantization.NONE;
+        int rescoreFactor = 1;
+        for (String part : spec.toLowerCase(Locale.ROOT).split(",")) {
+            String[] keyValue = part.strip().split(":", 2);
+            try {
+                switch (keyValue[0]) {
+                    case "truncate": dimensions = Integer.parseInt(keyValue[1].strip()); break;
+                    case "sq8": quantization = Quantization.SQ8; break;
+                    case "binary": quantization = Quantization.BINARY; break;
+                    case "rescore": rescoreFactor = Integer.parseInt(keyValue[1].strip()); break;
+                    default: throw new IllegalArgumentException("Unknown compression option '" + part.strip() + "'");
+                }
+            } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                throw new IllegalArgumentException("Bad compression option '" + part.strip() + "' in '" + spec + "'", e);
+            }
+        }
+        return new VectorCompression(dimensions, quantization, rescoreFactor);
+    }
+
+    // The same truncation and rescoring without quantization, for stores that only hold float vectors
+    public VectorCompression truncationOnly() {
+        return quantization == Quantization.NONE ? this : new VectorCompression(dimensions, Quantization.NONE, rescoreFactor);
+    }
+
+    public boolean isEnabled() {
+        return dimensions > 0 || quantization != Quantization.NONE;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public Quantization getQuantization() {
+        return quantization;
+    }
+
+    public int getRescoreFactor() {
+        return rescoreFactor;
+    }
+
+    // Dimension of the vectors the store holds for a model with the given full dimension
+    public int storedDimension(int fullDimension) {
+        return dimensions == 0 ? fullDimension : Math.min(dimensions, fullDimension);
+    }
+
+    // Approximate stored vector size, for comparing settings
+    public long bytesPerVector(int fullDimension) {
+        int stored = storedDimension(fullDimension);
+        switch (quantization) {
+            case SQ8: return stored;
+            case BINARY: return stored / 8;
+            default: return stored * 4L;
+        }
+    }
+
+    /**
+     * The Milvus index profile to pair with this setting, given the one used without compression.
+     * Quantized vectors need their own index type; truncation alone keeps the requested profile.
+     */
+    public IndexProfile indexProfile(IndexProfile uncompressed) {
+        switch (quantization) {
+            case SQ8: return IndexProfile.ivfSq8(1024, 32, uncompressed.getMetricType());
+            case BINARY: return IndexProfile.binaryFlat();
+            default: return uncompressed;
+        }
+    }
+
+    // Appended to the collection name so differently compressed vectors never share a collection
+    public String collectionSuffix() {
+        if (!isEnabled()) return "";
+        StringBuilder suffix = new StringBuilder();
+        if (dimensions > 0) suffix.append("_d").append(dimensions);
+        if (quantization != Quantization.NONE) suffix.append('_').append(quantization.name().toLowerCase(Locale.ROOT));
+        return suffix.toString();
+    }
+
+    /**
+     * Keeps the leading dimensions and rescales them to unit length, so cosine and inner
+     * product keep their meaning. Returns the input when nothing is cut.
+     */
+    public float[] truncate(float[] vector) {
+        if (dimensions == 0 || dimensions >= vector.length) return vector;
+        float[] truncated = new float[dimensions];
+        double norm = 0;
+        for (int i = 0; i < dimensions; i++) {
+            truncated[i] = vector[i];
+            norm += (double) vector[i] * vector[i];
+        }
+        if (norm > 0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < dimensions; i++) truncated[i] *= scale;
+        }
+        return truncated;
+    }
+
+    @Override
+    public String toString() {
+        if (!isEnabled()) return "none";
+        StringBuilder spec = new StringBuilder();
+        if (dimensions > 0) spec.append("truncate:").append(dimensions);
+        if (quantization != Quantization.NONE) {
+            if (spec.length() > 0) spec.append(',');
+            spec.append(quantization.name().toLowerCase(Locale.ROOT));
+        }
+        if (rescoreFactor > 1) spec.append(",rescore:").append(rescoreFactor);
+        return spec.toString();
+    }
+}
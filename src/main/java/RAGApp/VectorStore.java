@@ -0,0 +1,118 @@
+package RAGApp;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Storage and similarity search for chunk embeddings.
+ * Implemented by {@link MilvusVectorStore} and the in-process {@link HnswVectorStore}.
+ */
+public interface VectorStore extends AutoCloseable {
+
+    void index(long id, String text, float[] embedding);
+
+    default void index(String text, float[] embedding) {
+        index(ChunkIds.of("", text), text, embedding);
+    }
+
+    /**
+     * Stores a row without waiting for it to be written.
+     *
+     * @return A future completed with the row ID once the store has accepted it
+     */
+    default CompletableFuture<Long> indexAsync(long id, String text, float[] embedding) {
+        index(id, text, embedding);
+        return CompletableFuture.completedFuture(id);
+    }
+
+    /**
+     * Stores a row together with its source/page/section. Stores without metadata
+     * columns ignore it.
+     */
+    default void index(long id, String text, float[] embedding, ChunkMetadata metadata) {
+        index(id, text, embedding);
+    }
+
+    default CompletableFuture<Long> indexAsync(long id, String text, float[] embedding, ChunkMetadata metadata) {
+        index(id, text, embedding, metadata);
+        return CompletableFuture.completedFuture(id);
+    }
+
+    /**
+     * Returns the metadata stored with a chunk when it is known locally (held in memory,
+     * or seen in a recent insert or search response), without another request to the store.
+     *
+     * @return The chunk's metadata, or {@code null} if not known
+     */
+    default ChunkMetadata metadata(long id) {
+        return null;
+    }
+
+    /**
+     * Returns the subset of the given IDs that are already stored.
+     */
+    Set<Long> existingIds(Collection<Long> ids);
+
+    default Map<Long, String> search(float[] queryEmbedding, int topK) {
+        return searchBatch(Collections.singletonList(queryEmbedding), topK).get(0);
+    }
+
+    /**
+     * @return One ID → text map per query, best match first, in the same order as the queries
+     */
+    List<Map<Long, String>> searchBatch(List<float[]> queryEmbeddings, int topK);
+
+    default Map<Long, String> search(float[] queryEmbedding, int topK, SearchFilter filter) {
+        return searchBatch(Collections.singletonList(queryEmbedding), topK, filter).get(0);
+    }
+
+    /**
+     * Searches only chunks matching the filter; every query in the batch shares it.
+     */
+    default List<Map<Long, String>> searchBatch(List<float[]> queryEmbeddings, int topK, SearchFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return searchBatch(queryEmbeddings, topK);
+        }
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support filtered search");
+    }
+
+    /**
+     * Returns the subset of the given IDs that are stored and match the filter.
+     * Used to apply a search filter to hits that did not come from this store, such as lexical hits.
+     */
+    default Set<Long> existingIds(Collection<Long> ids, SearchFilter filter) {
+        Set<Long> existing = existingIds(ids);
+        if (filter == null || filter.isEmpty()) return existing;
+        existing.removeIf(id -> !filter.matches(metadata(id)));
+        return existing;
+    }
+
+    /**
+     * Returns the IDs of every stored chunk from one of the given sources of a tenant
+     * ("" being the default tenant). Used to find chunks a re-indexed source no longer has.
+     */
+    default Set<Long> idsForSources(String tenant, Collection<String> sources) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not track chunk sources");
+    }
+
+    // Removes the given rows; IDs that aren't stored are ignored
+    default void delete(Collection<Long> ids) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support deletes");
+    }
+
+    // Waits until every row handed to index/indexAsync so far is stored
+    default void awaitPendingWrites() {
+    }
+
+    // Makes every row stored so far durable
+    default void checkpoint() {
+        awaitPendingWrites();
+    }
+
+    @Override
+    void close();
+}
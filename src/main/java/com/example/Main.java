@@ -1,53 +1,103 @@
 package com.example;
 
 import RAGApp.*;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.milvus.param.MetricType;
 
 import java.io.IOException;
-import java.util.List;
+import java.nio.file.Path;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 public class Main {
     public static void main(String[] args) {
         String modelName = "nomic-embed-text";
-        String documentPath = "src/main/resources/document.txt";
+        // A text, Markdown or PDF file, or a directory of them
+        String documentPath = System.getProperty("rag.document", "src/main/resources/document.txt");
         int embeddingDimension = 768;  // known output of nomic-embed-text
         String collectionName = "rag_collection_768";  // avoid collisions
-        int chunkSize = 500;
+        Path embeddingCacheDir = Path.of(".rag-cache", "embeddings");
+        int chunkTokens = 128;       // well inside nomic-embed-text's context window
+        int overlapTokens = 16;
+        // "milvus" (default) or "embedded" for the in-process HNSW store, no external services needed
+        String storeType = System.getProperty("rag.store", "milvus");
+        // e.g. "truncate:256,binary,rescore:8"; see VectorCompression
+        VectorCompression compression = VectorCompression.parse(System.getProperty("rag.compression", "none"));
+        // Skip startup probes already recorded in the manifest, load Milvus in the background,
+        // and answer questions against the existing collection while the document indexes
+        boolean fastStart = Boolean.getBoolean("rag.fast-start");
+        StartupManifest manifest = fastStart ? new StartupManifest(Path.of(".rag-cache", "manifest.properties")) : null;
+        // New collections get an automatic COSINE index; existing ones (e.g. IVF_FLAT/L2 from older
+        // versions) keep theirs unless rebuilding is enabled
+        boolean rebuildIndex = Boolean.getBoolean("rag.milvus.rebuild-index");
 
         System.out.println("🚀 Initializing RAG Application...");
+        // Collect rag.* metrics in memory for the timing report printed on exit
+        Metrics.addRegistry(new SimpleMeterRegistry());
 
         Embedder embedder = null;
-        MilvusVectorStore vectorStore = null;
+        VectorStore vectorStore = null;
+        MilvusVectorStore milvusStore = null;
         RagService ragService = null;
+        Bm25Index lexicalIndex = null;
+        CompletableFuture<Void> indexing = CompletableFuture.completedFuture(null);
+        AtomicBoolean stopIndexing = new AtomicBoolean();
 
         try {
             // Initialize embedder
             System.out.println("📡 Loading embedding model: " + modelName);
-            embedder = new Embedder(modelName, embeddingDimension);
+            embedder = new Embedder(modelName, embeddingDimension, embeddingCacheDir, manifest);
             System.out.println("✅ Model loaded with dimension: " + embedder.getEmbeddingDimension());
+            if (fastStart) {
+                // Loads the model in Ollama while Milvus loads the collection
+                CompletableFuture.runAsync(embedder::warmUp).exceptionally(e -> {
+                    System.err.println("⚠ Embedding model warm-up failed: " + e.getMessage());
+                    return null;
+                });
+            }
 
             // Initialize vector store
-            System.out.println("🗄 Connecting to Milvus...");
-            vectorStore = new MilvusVectorStore(embeddingDimension, "localhost", 19530, collectionName);
-            System.out.println("✅ Vector store initialized: " + collectionName);
+            if (storeType.equals("embedded") && compression.getQuantization() != VectorCompression.Quantization.NONE) {
+                System.out.println("⚠️ The embedded store keeps float vectors; using only truncation and rescoring");
+                compression = compression.truncationOnly();
+            }
+            int storedDimension = compression.storedDimension(embeddingDimension);
+            String storeCollection = collectionName + compression.collectionSuffix();
+            if (storeType.equals("embedded")) {
+                System.out.println("🗄 Opening embedded vector store...");
+                vectorStore = new HnswVectorStore(storedDimension, MetricType.COSINE,
+                        Path.of(".rag-cache", "vectors", storeCollection + ".hnsw"));
+            } else {
+                System.out.println("🗄 Connecting to Milvus...");
+                milvusStore = new MilvusVectorStore(storedDimension, "localhost", 19530, storeCollection,
+                        compression.indexProfile(IndexProfile.auto(MetricType.COSINE)), manifest, rebuildIndex);
+                vectorStore = milvusStore;
+            }
+            if (compression.isEnabled()) {
+                vectorStore = new CompressedVectorStore(vectorStore, compression, embedder.getDiskCache());
+            }
+            System.out.println("✅ Vector store initialized: " + storeCollection);
 
             // Setup RAG service
             ragService = new RagService(vectorStore, embedder);
 
-            // Load document
-            System.out.println("📚 Reading document: " + documentPath);
-            List<String> chunks = DocumentLoader.loadDocumentChunks(documentPath, chunkSize);
-            System.out.println("✂ Chunked into " + chunks.size() + " parts (size " + chunkSize + ")");
-
-            // Index chunks
-            for (int i = 0; i < chunks.size(); i++) {
-                ragService.indexText(chunks.get(i));
-                System.out.printf("⚡ Indexed chunk %d/%d (%.1f%%)%n",
-                        i + 1, chunks.size(), ((i + 1) * 100.0) / chunks.size());
+            // Keyword index fused with vector hits, so exact terms like error codes and IDs are found
+            lexicalIndex = new Bm25Index(Path.of(".rag-cache", "lexical", collectionName + ".bm25"));
+            ragService.setLexicalIndex(lexicalIndex);
+
+            // Stream document chunks straight into indexing
+            System.out.println("📚 Reading document: " + documentPath + " (" + chunkTokens + " tokens per chunk)");
+            TextSplitter splitter = new TextSplitter(chunkTokens, overlapTokens);
+            if (fastStart) {
+                indexing = indexInBackground(ragService, vectorStore, milvusStore, lexicalIndex,
+                        Path.of(documentPath), splitter, stopIndexing);
+            } else {
+                indexDocuments(ragService, vectorStore, milvusStore, lexicalIndex, Path.of(documentPath), splitter, stopIndexing, true);
             }
 
-            System.out.println("\n✅ Indexing complete!");
-
             // Query loop
             System.out.println("\n🔍 Ready to answer questions (type 'exit' to quit):");
 
@@ -57,20 +107,33 @@ public class Main {
                 String query = scanner.nextLine().trim();
 
                 if (query.equalsIgnoreCase("exit") || query.equalsIgnoreCase("quit")) {
+                    if (!indexing.isDone()) {
+                        System.out.println("⏳ Stopping background indexing after the current batches...");
+                    }
+                    System.out.println("📈 Cache: " + ragService.getCache().statsSummary());
+                    System.out.print("⏱ Timings:\n" + RagMetrics.summary());
                     System.out.println("👋 Exiting. Thanks!");
                     break;
                 }
 
                 if (!query.isEmpty()) {
                     try {
-                        long start = System.currentTimeMillis();
-                        String response = ragService.ask(query);
-                        long duration = System.currentTimeMillis() - start;
-
-                        System.out.println("\n💡 Response (" + duration + " ms):");
-                        System.out.println("─".repeat(50));
-                        System.out.println(response);
+                        System.out.println("\n💡 Response:");
                         System.out.println("─".repeat(50));
+                        ragService.askStreaming(query, new AnswerListener() {
+                            @Override
+                            public void onToken(String token) {
+                                System.out.print(token);
+                                System.out.flush();
+                            }
+
+                            @Override
+                            public void onComplete(String answer, AnswerTiming timing) {
+                                System.out.println();
+                                System.out.println("─".repeat(50));
+                                System.out.println("⏱ " + timing);
+                            }
+                        }).join();
                     } catch (Exception e) {
                         System.err.println("❌ Failed to process query: " + e.getMessage());
                     }
@@ -84,12 +147,56 @@ public class Main {
             e.printStackTrace();
         } finally {
             System.out.println("\n🧹 Cleaning up resources...");
+            stopIndexing.set(true);
+            indexing.exceptionally(e -> null).join();
             try {
                 if (ragService != null) ragService.close();
                 if (vectorStore != null) vectorStore.close();
+                if (lexicalIndex != null) lexicalIndex.close();
+                if (embedder != null) embedder.close();
             } catch (Exception e) {
                 System.err.println("⚠ Warning during cleanup: " + e.getMessage());
             }
         }
     }
+
+    private static void indexDocuments(RagService ragService, VectorStore vectorStore, MilvusVectorStore milvusStore,
+                                       Bm25Index lexicalIndex, Path documentPath, TextSplitter splitter,
+                                       AtomicBoolean stop, boolean allowRebuild) throws IOException {
+        IndexingStats stats;
+        try (Stream<DocumentChunk> chunks = DocumentLoader.streamDocuments(documentPath, splitter)) {
+            Stream<DocumentChunk> untilStopped = chunks.takeWhile(chunk -> !stop.get());
+            // Files edited since the last run lose the chunks they no longer have, unless indexing was stopped
+            stats = ragService.reindexSources(untilStopped::iterator, () -> !stop.get());
+        }
+
+        System.out.println("\n✅ Indexing complete: " + stats);
+        if (milvusStore != null) {
+            milvusStore.reselectIndexProfile(allowRebuild);
+        } else {
+            vectorStore.checkpoint();
+        }
+        lexicalIndex.checkpoint();
+    }
+
+    // Serve first: questions are answered from what is already stored while new chunks index behind them
+    private static CompletableFuture<Void> indexInBackground(RagService ragService, VectorStore vectorStore,
+                                                             MilvusVectorStore milvusStore, Bm25Index lexicalIndex,
+                                                             Path documentPath, TextSplitter splitter, AtomicBoolean stop) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Thread indexer = new Thread(() -> {
+            try {
+                // Questions are being served, so the index must stay loaded
+                indexDocuments(ragService, vectorStore, milvusStore, lexicalIndex, documentPath, splitter, stop, false);
+                done.complete(null);
+            } catch (Exception e) {
+                System.err.println("\n❌ Background indexing failed: " + e.getMessage());
+                done.completeExceptionally(e);
+            }
+        }, "rag-indexer");
+        indexer.setDaemon(true);
+        indexer.start();
+        System.out.println("📚 Indexing in the background; questions are answered from the existing collection meanwhile");
+        return done;
+    }
 }
\ No newline at end of file
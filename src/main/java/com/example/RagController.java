@@ -0,0 +1,172 @@
+package com.example;
+
+import RAGApp.AnswerListener;
+import RAGApp.AnswerTiming;
+import RAGApp.ChunkMetadata;
+import RAGApp.DocumentChunk;
+import RAGApp.IndexingStats;
+import RAGApp.RagService;
+import RAGApp.SearchFilter;
+import RAGApp.StageTimeoutException;
+import RAGApp.TextSplitter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@RestController
+public class RagController {
+    private final RagService ragService;
+    private final TextSplitter textSplitter;
+    private final ThreadPoolTaskExecutor requestExecutor;
+
+    public RagController(RagService ragService, TextSplitter textSplitter, ThreadPoolTaskExecutor ragRequestExecutor) {
+        this.ragService = ragService;
+        this.textSplitter = textSplitter;
+        this.requestExecutor = ragRequestExecutor;
+    }
+
+    public static class AskRequest {
+        public String question;
+        // Optional: only search this tenant's chunks, and only these sources
+        public String tenant;
+        public List<String> sources;
+
+        SearchFilter filter() {
+            return SearchFilter.forTenant(tenant).withSources(sources);
+        }
+    }
+
+    public static class IndexRequest {
+        public String tenant = "";
+        public String source = "";
+        public String text;
+        public List<String> chunks;
+        // This request holds the whole source: chunks the source had before and doesn't have now are deleted
+        public boolean replace;
+    }
+
+    /**
+     * Answers a question without holding a request thread; a timed-out or abandoned
+     * request cancels whichever pipeline stage is still running.
+     */
+    @PostMapping("/ask")
+    public DeferredResult<ResponseEntity<Map<String, Object>>> ask(@RequestBody AskRequest request) {
+        DeferredResult<ResponseEntity<Map<String, Object>>> result = new DeferredResult<>();
+        if (request.question == null || request.question.isBlank()) {
+            result.setResult(ResponseEntity.badRequest().body(Map.of("error", "question is required")));
+            return result;
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<String> answer = ragService.askAsync(request.question, request.filter());
+        result.onTimeout(() -> answer.cancel(true));
+        result.onError(error -> answer.cancel(true));
+        answer.whenComplete((text, error) -> {
+            if (error == null) {
+                result.setResult(ResponseEntity.ok(Map.of(
+                        "answer", text,
+                        "millis", (System.nanoTime() - start) / 1_000_000)));
+            } else if (!answer.isCancelled()) {
+                result.setResult(errorResponse(error));
+            }
+        });
+        return result;
+    }
+
+    @GetMapping(value = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter askStream(@RequestParam("q") String question,
+                                @RequestParam(value = "tenant", required = false) String tenant,
+                                @RequestParam(value = "source", required = false) List<String> sources) {
+        SseEmitter emitter = new SseEmitter();
+        SearchFilter filter = SearchFilter.forTenant(tenant).withSources(sources);
+        CompletableFuture<String> answer = ragService.askStreaming(question, filter, new AnswerListener() {
+            @Override
+            public void onToken(String token) {
+                send(emitter, "token", token);
+            }
+
+            @Override
+            public void onComplete(String answer, AnswerTiming timing) {
+                send(emitter, "done", Map.of(
+                        "timeToFirstTokenMillis", timing.getTimeToFirstTokenMillis(),
+                        "totalMillis", timing.getTotalMillis(),
+                        "tokens", timing.getTokens()));
+                emitter.complete();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                emitter.completeWithError(error);
+            }
+        });
+        // A timed-out or disconnected client stops retrieval, or the forwarding of tokens
+        emitter.onTimeout(() -> answer.cancel(true));
+        emitter.onError(error -> answer.cancel(true));
+        emitter.onCompletion(() -> answer.cancel(true));
+        return emitter;
+    }
+
+    /**
+     * Indexes either a raw document ({@code text}, split with the configured splitter) or
+     * ready-made {@code chunks}, for the given tenant. With {@code replace}, the request
+     * is the source's new version and its chunks that are no longer there are removed.
+     */
+    @PostMapping("/index")
+    public CompletableFuture<ResponseEntity<?>> index(@RequestBody IndexRequest request) {
+        List<String> chunks = new ArrayList<>();
+        if (request.chunks != null) chunks.addAll(request.chunks);
+        if (request.text != null) chunks.addAll(textSplitter.splitToStrings(request.text));
+        if (chunks.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", "text or chunks is required")));
+        }
+        if (request.replace && (request.source == null || request.source.isEmpty())) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", "replace requires a source")));
+        }
+        ChunkMetadata metadata;
+        try {
+            metadata = new ChunkMetadata(request.tenant, request.source, 0, "", 0);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", e.getMessage())));
+        }
+        List<DocumentChunk> documentChunks = new ArrayList<>(chunks.size());
+        for (String chunk : chunks) {
+            documentChunks.add(new DocumentChunk(chunk, metadata));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            IndexingStats stats = request.replace ? ragService.reindexSources(documentChunks)
+                    : ragService.indexDocuments(documentChunks);
+            return ResponseEntity.ok(stats);
+        }, requestExecutor);
+    }
+
+    private static void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the container reports it through onError, which cancels the stream
+        }
+    }
+
+    private static ResponseEntity<Map<String, Object>> errorResponse(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        HttpStatus status = cause instanceof StageTimeoutException ? HttpStatus.GATEWAY_TIMEOUT
+                : cause instanceof IllegalArgumentException ? HttpStatus.BAD_REQUEST
+                : HttpStatus.INTERNAL_SERVER_ERROR;
+        return ResponseEntity.status(status).body(Map.of("error", String.valueOf(cause.getMessage())));
+    }
+}
@@ -0,0 +1,15 @@
+package com.example;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * HTTP entry point: serves {@code /ask}, {@code /ask/stream} and {@code /index} over one
+ * shared {@link RAGApp.RagService}. {@link Main} remains the single-user console client.
+ */
+@SpringBootApplication
+public class RagServerApplication {
+    public static void main(String[] args) {
+        SpringApplication.run(RagServerApplication.class, args);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example;
+
+import RAGApp.Bm25Index;
+import RAGApp.CompressedVectorStore;
+import RAGApp.ContextBudget;
+import RAGApp.Embedder;
+import RAGApp.HnswVectorStore;
+import RAGApp.IndexProfile;
+import RAGApp.MilvusVectorStore;
+import RAGApp.OllamaPool;
+import RAGApp.RagCache;
+import RAGApp.RagLLM;
+import RAGApp.RagService;
+import RAGApp.StageDeadlines;
+import RAGApp.StartupManifest;
+import RAGApp.TextSplitter;
+import RAGApp.VectorCompression;
+import RAGApp.VectorStore;
+import io.milvus.param.MetricType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Singletons shared by every request, so all requests reuse the same Ollama HTTP
+ * connection pools, Milvus gRPC channel, caches and search batcher.
+ */
+@Configuration
+public class RagServerConfig implements WebMvcConfigurer {
+
+    @Value("${rag.request-threads:32}")
+    private int requestThreads;
+
+    @Value("${rag.request-timeout:180s}")
+    private Duration requestTimeout;
+
+    @Value("${rag.fast-start:false}")
+    private boolean fastStart;
+
+    // One client layer for every Ollama call: endpoint balancing, retries and circuit breakers
+    @Bean(destroyMethod = "close")
+    public OllamaPool ollamaPool(@Value("${rag.ollama.endpoints:http://localhost:11434}") String endpoints,
+                                 @Value("${rag.ollama.max-concurrency:4}") int maxConcurrency) {
+        return OllamaPool.fromSpec(endpoints, maxConcurrency);
+    }
+
+    @Bean
+    public StartupManifest startupManifest(@Value("${rag.cache-dir}") Path cacheDir) {
+        return new StartupManifest(cacheDir.resolve("manifest.properties"));
+    }
+
+    // With fast start the model dimension comes from the manifest and the model is loaded in the background
+    @Bean(destroyMethod = "close")
+    public Embedder embedder(@Value("${rag.embedding-model}") String modelName,
+                             @Value("${rag.embedding-dimension}") int dimension,
+                             @Value("${rag.cache-dir}") Path cacheDir,
+                             OllamaPool ollamaPool,
+                             StartupManifest manifest) {
+        Embedder embedder = new Embedder(ollamaPool, modelName, dimension, cacheDir.resolve("embeddings"),
+                fastStart ? manifest : null);
+        if (fastStart) {
+            CompletableFuture.runAsync(embedder::warmUp).exceptionally(e -> {
+                System.err.println("⚠ Embedding model warm-up failed: " + e.getMessage());
+                return null;
+            });
+        }
+        return embedder;
+    }
+
+    // Closed by RagService. With compression, full-precision vectors for rescoring come from the embedder's cache
+    @Bean(destroyMethod = "")
+    public VectorStore vectorStore(@Value("${rag.store}") String storeType,
+                                   @Value("${rag.embedding-dimension}") int dimension,
+                                   @Value("${rag.collection}") String collection,
+                                   @Value("${rag.compression:none}") String compressionSpec,
+                                   @Value("${rag.cache-dir}") Path cacheDir,
+                                   @Value("${rag.milvus.host}") String host,
+                                   @Value("${rag.milvus.port}") int port,
+                                   @Value("${rag.milvus.rebuild-index:false}") boolean rebuildIndex,
+                                   Embedder embedder,
+                                   StartupManifest manifest) {
+        VectorCompression compression = VectorCompression.parse(compressionSpec);
+        VectorStore store;
+        if (storeType.equals("embedded")) {
+            compression = compression.truncationOnly();
+            store = new HnswVectorStore(compression.storedDimension(dimension), MetricType.COSINE,
+                    cacheDir.resolve("vectors").resolve(collection + compression.collectionSuffix() + ".hnsw"));
+        } else {
+            // Fast start loads the collection in the background; requests wait for it on first use
+            store = new MilvusVectorStore(compression.storedDimension(dimension), host, port,
+                    collection + compression.collectionSuffix(), compression.indexProfile(IndexProfile.auto(MetricType.COSINE)),
+                    fastStart ? manifest : null, rebuildIndex);
+        }
+        return compression.isEnabled() ? new CompressedVectorStore(store, compression, embedder.getDiskCache()) : store;
+    }
+
+    @Bean(destroyMethod = "close")
+    public Bm25Index lexicalIndex(@Value("${rag.collection}") String collection,
+                                  @Value("${rag.cache-dir}") Path cacheDir) {
+        return new Bm25Index(cacheDir.resolve("lexical").resolve(collection + ".bm25"));
+    }
+
+    @Bean(destroyMethod = "close")
+    public RagService ragService(VectorStore vectorStore, Embedder embedder, Bm25Index lexicalIndex,
+                                 OllamaPool ollamaPool, @Value("${rag.llm-model:mistral}") String llmModel,
+                                 StageDeadlines deadlines) {
+        RagService ragService = new RagService(vectorStore, embedder, new RagLLM(ollamaPool, llmModel), new RagCache(),
+                deadlines, ContextBudget.defaults());
+        ragService.setLexicalIndex(lexicalIndex);
+        return ragService;
+    }
+
+    @Bean
+    public StageDeadlines stageDeadlines(@Value("${rag.deadline.embed:10s}") Duration embed,
+                                         @Value("${rag.deadline.search:5s}") Duration search,
+                                         @Value("${rag.deadline.assemble:2s}") Duration assemble,
+                                         @Value("${rag.deadline.generate:120s}") Duration generate,
+                                         @Value("${rag.hedge-embeddings:true}") boolean hedgeEmbeddings) {
+        return new StageDeadlines(embed, search, assemble, generate, hedgeEmbeddings);
+    }
+
+    @Bean
+    public TextSplitter textSplitter(@Value("${rag.chunk-tokens}") int chunkTokens,
+                                     @Value("${rag.overlap-tokens}") int overlapTokens) {
+        return new TextSplitter(chunkTokens, overlapTokens);
+    }
+
+    /**
+     * Bounded pool for blocking request work (indexing). Java 17 has no
+     * virtual threads, so request threads are freed instead: handlers return futures and
+     * emitters, and the pipeline's own stages run on RagService's pool.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor ragRequestExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(requestThreads);
+        executor.setMaxPoolSize(requestThreads);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("rag-request-");
+        executor.setDaemon(true);
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor((AsyncTaskExecutor) ragRequestExecutor());
+        configurer.setDefaultTimeout(requestTimeout.toMillis());
+    }
+}
@@ -0,0 +1,132 @@
+package RAGApp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Bm25IndexTest {
+
+    // Enough chunks to seal postings blocks whose doc gaps and term frequencies need more than one varint byte
+    private static final int CHUNKS = 20_000;
+    private static final int ECHO_CHUNKS = 300;
+    private static final int NEEDLE_EVERY = 150;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sealedPostingsDecodeEveryDoc() {
+        Bm25Index index = filledIndex(null);
+
+        assertEquals(expectedNeedles(), index.search("needle", CHUNKS).keySet());
+        assertEquals(CHUNKS, index.search("filler", CHUNKS * 2).size());
+    }
+
+    @Test
+    void largeTermFrequenciesRankFirst() {
+        Bm25Index index = filledIndex(null);
+
+        List<Long> top = new ArrayList<>(index.search("echo", 3).keySet());
+        assertEquals(List.of(ECHO_CHUNKS - 1L, ECHO_CHUNKS - 2L, ECHO_CHUNKS - 3L), top);
+    }
+
+    @Test
+    void searchIsCaseInsensitiveAndReturnsText() {
+        Bm25Index index = new Bm25Index(null);
+        index.add(1, "Error E1042 in the Milvus connector");
+        index.add(2, "Ollama answered normally");
+
+        Map<Long, String> hits = index.search("e1042 MILVUS", 5);
+        assertEquals(Map.of(1L, "Error E1042 in the Milvus connector"), hits);
+        assertTrue(index.search("missing", 5).isEmpty());
+    }
+
+    @Test
+    void duplicateChunksAreIgnored() {
+        Bm25Index index = new Bm25Index(null);
+        index.add(7, "first text");
+        index.add(7, "second text");
+
+        assertEquals(1, index.size());
+        assertEquals(Map.of(7L, "first text"), index.search("text", 5));
+    }
+
+    @Test
+    void snapshotLoadsSameIndex() {
+        Path snapshot = dir.resolve("lexical.bin");
+        Bm25Index original = filledIndex(snapshot);
+        Map<Long, String> needles = original.search("needle", CHUNKS);
+        Map<Long, String> echoes = original.search("echo filler", 20);
+        original.close();
+
+        Bm25Index loaded = new Bm25Index(snapshot);
+        assertEquals(CHUNKS, loaded.size());
+        assertTrue(loaded.contains(0) && loaded.contains(CHUNKS - 1));
+        assertEquals(List.copyOf(needles.entrySet()), List.copyOf(loaded.search("needle", CHUNKS).entrySet()));
+        assertEquals(List.copyOf(echoes.entrySet()), List.copyOf(loaded.search("echo filler", 20).entrySet()));
+
+        // Postings read back from a snapshot keep accepting chunks
+        loaded.add(CHUNKS, "needle");
+        Set<Long> expected = new TreeSet<>(expectedNeedles());
+        expected.add((long) CHUNKS);
+        assertEquals(expected, new TreeSet<>(loaded.search("needle", CHUNKS).keySet()));
+    }
+
+    @Test
+    void removedChunksStayRemovedAfterReload() {
+        Path snapshot = dir.resolve("removed.bin");
+        Bm25Index index = new Bm25Index(snapshot);
+        index.add(1, "old wording of the install guide");
+        index.add(2, "install guide step two");
+        index.remove(List.of(1L, 99L));
+
+        assertEquals(1, index.size());
+        assertFalse(index.contains(1));
+        assertEquals(Map.of(2L, "install guide step two"), index.search("install wording", 5));
+
+        // A removed ID can come back, and only the new chunk is live after a reload
+        index.add(1, "new wording");
+        index.close();
+        Bm25Index loaded = new Bm25Index(snapshot);
+        assertEquals(2, loaded.size());
+        assertEquals(Map.of(1L, "new wording"), loaded.search("wording", 5));
+        assertTrue(loaded.search("old", 5).isEmpty());
+    }
+
+    @Test
+    void rejectsForeignSnapshot() throws Exception {
+        Path snapshot = dir.resolve("other.bin");
+        Files.write(snapshot, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        assertThrows(IllegalStateException.class, () -> new Bm25Index(snapshot));
+    }
+
+    // The first chunks repeat "echo" i times, padded with "filler" to the same length
+    private static Bm25Index filledIndex(Path snapshot) {
+        Bm25Index index = new Bm25Index(snapshot);
+        for (int i = 0; i < CHUNKS; i++) {
+            int echoes = i < ECHO_CHUNKS ? i : 0;
+            int fillers = i < ECHO_CHUNKS ? ECHO_CHUNKS - echoes : 1;
+            StringBuilder text = new StringBuilder();
+            text.append("echo ".repeat(echoes)).append("filler ".repeat(fillers));
+            if (i % NEEDLE_EVERY == 0) text.append("Needle");
+            index.add(i, text.toString());
+        }
+        return index;
+    }
+
+    private static Set<Long> expectedNeedles() {
+        Set<Long> ids = new TreeSet<>();
+        for (long i = 0; i < CHUNKS; i += NEEDLE_EVERY) ids.add(i);
+        return ids;
+    }
+}
@@ -0,0 +1,68 @@
+package RAGApp;
+
+import io.milvus.param.MetricType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedVectorStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void topByScoreOrdersDescendingAndCuts() {
+        List<Map.Entry<Long, String>> candidates = List.of(Map.entry(1L, "a"), Map.entry(2L, "b"), Map.entry(3L, "c"));
+
+        Map<Long, String> top = CompressedVectorStore.topByScore(candidates, new float[]{0.1f, 0.9f, 0.5f}, 2);
+        assertEquals(List.of(2L, 3L), List.copyOf(top.keySet()));
+        assertEquals("b", top.get(2L));
+    }
+
+    @Test
+    void topByScoreKeepsIncomingOrderForTiesAndUnscored() {
+        List<Map.Entry<Long, String>> candidates = List.of(
+                Map.entry(1L, "a"), Map.entry(2L, "b"), Map.entry(3L, "c"), Map.entry(4L, "d"), Map.entry(5L, "e"));
+        float[] scores = {Float.NEGATIVE_INFINITY, 0.5f, Float.NEGATIVE_INFINITY, 0.5f, 0.7f};
+
+        Map<Long, String> top = CompressedVectorStore.topByScore(candidates, scores, 10);
+        assertEquals(List.of(5L, 2L, 4L, 1L, 3L), List.copyOf(top.keySet()));
+    }
+
+    @Test
+    void topByScoreHandlesNoCandidates() {
+        assertTrue(CompressedVectorStore.topByScore(List.of(), new float[0], 3).isEmpty());
+    }
+
+    @Test
+    void rescoringRestoresFullPrecisionOrder() {
+        // B looks best on the two kept dimensions, A is closest on all four
+        float[] a = {0.8f, 0.6f, 0, 0};
+        float[] b = {0.5f, 0, 0.866f, 0};
+        float[] c = {0, 1, 0, 0};
+        float[] query = {1, 0, 0, 0};
+
+        DiskEmbeddingCache cache = new DiskEmbeddingCache(dir, "test-model", 4);
+        try {
+            CompressedVectorStore rescored = new CompressedVectorStore(new HnswVectorStore(2, MetricType.COSINE),
+                    VectorCompression.parse("truncate:2,rescore:3"), cache);
+            CompressedVectorStore plain = new CompressedVectorStore(new HnswVectorStore(2, MetricType.COSINE),
+                    VectorCompression.parse("truncate:2"), null);
+            for (CompressedVectorStore store : List.of(rescored, plain)) {
+                store.index(1, "A", a);
+                store.index(2, "B", b);
+                store.index(3, "C", c);
+            }
+
+            assertEquals(List.of(2L), List.copyOf(plain.searchBatch(List.of(query), 1).get(0).keySet()));
+            assertEquals(List.of(1L), List.copyOf(rescored.searchBatch(List.of(query), 1).get(0).keySet()));
+        } finally {
+            cache.close();
+        }
+    }
+}
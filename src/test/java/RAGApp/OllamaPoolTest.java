@@ -0,0 +1,295 @@
+package RAGApp;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.language.LanguageModel;
+import dev.langchain4j.model.language.StreamingLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OllamaPoolTest {
+
+    // Mirrors OllamaPool's MAX_ATTEMPTS and FAILURES_TO_OPEN
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int FAILURES_TO_OPEN = 5;
+
+    private static final String A = "http://a:11434";
+    private static final String B = "http://b:11434";
+
+    private final FakeServers servers = new FakeServers();
+    private OllamaPool pool;
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) pool.close();
+    }
+
+    @Test
+    void failedRequestIsRetriedOnAnotherEndpoint() {
+        servers.down.add(A);
+        pool = new OllamaPool(List.of(A, B), 2, Duration.ofSeconds(5), servers);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(B, pool.languageModel("llm").generate("hi").content());
+        }
+        assertTrue(servers.calls(A) <= 4);
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        servers.down.add(A);
+        pool = new OllamaPool(List.of(A), 2, Duration.ofSeconds(5), servers);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> pool.languageModel("llm").generate("hi"));
+        assertTrue(e.getMessage().contains("failed after " + MAX_ATTEMPTS + " attempts"), e.getMessage());
+        assertEquals(MAX_ATTEMPTS, servers.calls(A));
+    }
+
+    @Test
+    void circuitOpensAfterConsecutiveFailures() {
+        servers.down.add(A);
+        pool = new OllamaPool(List.of(A), 2, Duration.ofSeconds(5), servers);
+        LanguageModel llm = pool.languageModel("llm");
+
+        assertThrows(RuntimeException.class, () -> llm.generate("first"));
+        RuntimeException open = assertThrows(RuntimeException.class, () -> llm.generate("second"));
+        assertTrue(open.getMessage().contains("circuit open"), open.getMessage());
+        assertEquals(FAILURES_TO_OPEN, servers.calls(A));
+
+        // While open, requests fail at once without reaching the endpoint
+        servers.down.clear();
+        assertThrows(RuntimeException.class, () -> llm.generate("third"));
+        assertEquals(FAILURES_TO_OPEN, servers.calls(A));
+    }
+
+    @Test
+    void successResetsFailureCount() {
+        pool = new OllamaPool(List.of(A), 2, Duration.ofSeconds(5), servers);
+        LanguageModel llm = pool.languageModel("llm");
+
+        for (int round = 0; round < 3; round++) {
+            // One short of opening the circuit, then a success
+            servers.failNext.set(FAILURES_TO_OPEN - 1);
+            assertThrows(RuntimeException.class, () -> llm.generate("fails"));
+            assertEquals(A, llm.generate("recovers").content());
+        }
+        assertEquals(3 * FAILURES_TO_OPEN, servers.calls(A));
+    }
+
+    @Test
+    void concurrencyLimitIsRespected() throws Exception {
+        pool = new OllamaPool(List.of(A + "=2"), 8, Duration.ofSeconds(5), servers);
+        servers.delayMillis = 20;
+        LanguageModel llm = pool.languageModel("llm");
+
+        ExecutorService callers = Executors.newFixedThreadPool(10);
+        try {
+            List<CompletableFuture<Response<String>>> answers = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                answers.add(CompletableFuture.supplyAsync(() -> llm.generate("hi"), callers));
+            }
+            for (CompletableFuture<Response<String>> answer : answers) {
+                assertEquals(A, answer.get(5, TimeUnit.SECONDS).content());
+            }
+        } finally {
+            callers.shutdown();
+        }
+        assertEquals(2, servers.maxInFlight.get());
+    }
+
+    @Test
+    void embeddingsDoNotWaitForGenerationSlots() throws Exception {
+        pool = new OllamaPool(List.of(A + "=2"), 8, Duration.ofSeconds(5), servers);
+        servers.generationGate = new CountDownLatch(1);
+        servers.generationsWaiting = new CountDownLatch(2);
+        LanguageModel llm = pool.languageModel("llm");
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            List<CompletableFuture<Response<String>>> answers = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                answers.add(CompletableFuture.supplyAsync(() -> llm.generate("slow"), callers));
+            }
+            assertTrue(servers.generationsWaiting.await(5, TimeUnit.SECONDS));
+
+            // Every generation slot is taken, yet a query embedding goes straight through
+            CompletableFuture<Response<Embedding>> embedding = CompletableFuture.supplyAsync(
+                    () -> pool.embeddingModel("embed").embed("7"));
+            assertEquals(7, embedding.get(1, TimeUnit.SECONDS).content().vector()[0]);
+            assertFalse(answers.get(0).isDone());
+
+            servers.generationGate.countDown();
+            for (CompletableFuture<Response<String>> answer : answers) {
+                assertEquals(A, answer.get(5, TimeUnit.SECONDS).content());
+            }
+        } finally {
+            servers.generationGate.countDown();
+            callers.shutdown();
+        }
+    }
+
+    @Test
+    void embeddingBatchKeepsOrderAcrossSlices() {
+        pool = new OllamaPool(List.of(A, B), 3, Duration.ofSeconds(5), servers);
+        List<TextSegment> segments = new ArrayList<>();
+        for (int i = 0; i < 50; i++) segments.add(TextSegment.from(Integer.toString(i)));
+
+        List<Embedding> embeddings = pool.embeddingModel("embed").embedAll(segments).content();
+        assertEquals(50, embeddings.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, embeddings.get(i).vector()[0]);
+        }
+        assertTrue(servers.calls(A) > 0 && servers.calls(B) > 0);
+    }
+
+    @Test
+    void streamIsRetriedOnlyBeforeFirstToken() throws Exception {
+        servers.down.add(A);
+        pool = new OllamaPool(List.of(A, B), 2, Duration.ofSeconds(5), servers);
+        Recorder recorder = new Recorder();
+
+        pool.streamingLanguageModel("llm").generate("hi", recorder);
+        assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+        assertNull(recorder.error);
+        assertEquals(B, recorder.answer);
+
+        servers.down.clear();
+        servers.failAfterToken = true;
+        Recorder broken = new Recorder();
+        int callsBefore = servers.calls(A) + servers.calls(B);
+        pool.streamingLanguageModel("llm").generate("hi", broken);
+        assertTrue(broken.done.await(5, TimeUnit.SECONDS));
+        assertNotNull(broken.error);
+        assertEquals(callsBefore + 1, servers.calls(A) + servers.calls(B));
+    }
+
+    @Test
+    void rejectsBadEndpointSpecs() {
+        assertThrows(IllegalArgumentException.class, () -> new OllamaPool(List.of(), 2, Duration.ofSeconds(1), servers));
+        assertThrows(IllegalArgumentException.class, () -> new OllamaPool(List.of(A + "=x"), 2, Duration.ofSeconds(1), servers));
+        assertThrows(IllegalArgumentException.class, () -> new OllamaPool(List.of(A + "=0"), 2, Duration.ofSeconds(1), servers));
+    }
+
+    /**
+     * Stand-in Ollama servers: each call is counted per endpoint, answers with the endpoint's
+     * URL, and fails while the endpoint is down or a scripted failure is pending.
+     */
+    private static final class FakeServers implements OllamaPool.ModelFactory {
+        final Set<String> down = ConcurrentHashMap.newKeySet();
+        final AtomicInteger failNext = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        volatile long delayMillis;
+        volatile boolean failAfterToken;
+        // Generations wait here until released, while counted as in flight
+        volatile CountDownLatch generationGate;
+        volatile CountDownLatch generationsWaiting = new CountDownLatch(0);
+
+        int calls(String baseUrl) {
+            AtomicInteger count = calls.get(baseUrl);
+            return count == null ? 0 : count.get();
+        }
+
+        private void serve(String baseUrl) {
+            calls.computeIfAbsent(baseUrl, url -> new AtomicInteger()).incrementAndGet();
+            if (down.contains(baseUrl)) throw new RuntimeException("Connection refused: " + baseUrl);
+            if (failNext.getAndUpdate(n -> Math.max(0, n - 1)) > 0) throw new RuntimeException("Server error: " + baseUrl);
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                if (delayMillis > 0) Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        @Override
+        public EmbeddingModel embeddingModel(String baseUrl, String modelName, Duration timeout) {
+            return segments -> {
+                serve(baseUrl);
+                List<Embedding> embeddings = new ArrayList<>();
+                for (TextSegment segment : segments) {
+                    embeddings.add(Embedding.from(new float[]{Float.parseFloat(segment.text())}));
+                }
+                return Response.from(embeddings);
+            };
+        }
+
+        @Override
+        public LanguageModel languageModel(String baseUrl, String modelName, Duration timeout) {
+            return prompt -> {
+                serve(baseUrl);
+                CountDownLatch gate = generationGate;
+                if (gate != null) {
+                    generationsWaiting.countDown();
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return Response.from(baseUrl);
+            };
+        }
+
+        @Override
+        public StreamingLanguageModel streamingLanguageModel(String baseUrl, String modelName, Duration timeout) {
+            return (prompt, handler) -> {
+                try {
+                    serve(baseUrl);
+                } catch (RuntimeException e) {
+                    handler.onError(e);
+                    return;
+                }
+                handler.onNext(baseUrl);
+                if (failAfterToken) {
+                    handler.onError(new RuntimeException("Connection reset: " + baseUrl));
+                } else {
+                    handler.onComplete(Response.from(baseUrl));
+                }
+            };
+        }
+    }
+
+    private static final class Recorder implements StreamingResponseHandler<String> {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile String answer;
+        volatile Throwable error;
+
+        @Override
+        public void onNext(String token) {
+        }
+
+        @Override
+        public void onComplete(Response<String> response) {
+            answer = response.content();
+            done.countDown();
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+            done.countDown();
+        }
+    }
+}
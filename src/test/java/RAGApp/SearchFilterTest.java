@@ -0,0 +1,66 @@
+package RAGApp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchFilterTest {
+
+    @Test
+    void noFilterIsEmptyExpression() {
+        assertEquals("", SearchFilter.NONE.toExpression());
+        assertTrue(SearchFilter.forTenant("").isEmpty());
+        assertTrue(SearchFilter.forTenant(null).isEmpty());
+    }
+
+    @Test
+    void combinesClausesWithAnd() {
+        SearchFilter filter = SearchFilter.forTenant("acme")
+                .withSources(List.of("b.pdf", "a.pdf"))
+                .withTimestampRange(100, 200);
+
+        assertEquals("tenant == \"acme\" && source in [\"a.pdf\", \"b.pdf\"] && updated_at >= 100 && updated_at < 200",
+                filter.toExpression());
+    }
+
+    @Test
+    void openEndedRangeOmitsMissingBound() {
+        assertEquals("updated_at >= 5", SearchFilter.NONE.withTimestampRange(5, Long.MAX_VALUE).toExpression());
+        assertEquals("updated_at < 5", SearchFilter.NONE.withTimestampRange(Long.MIN_VALUE, 5).toExpression());
+    }
+
+    @Test
+    void quotesAndBackslashesAreEscaped() {
+        assertEquals("\"plain\"", SearchFilter.quote("plain"));
+        assertEquals("\"say \\\"hi\\\"\"", SearchFilter.quote("say \"hi\""));
+        assertEquals("\"C:\\\\docs\\\\\"", SearchFilter.quote("C:\\docs\\"));
+    }
+
+    @Test
+    void tenantCannotBreakOutOfLiteral() {
+        String hostile = "x\" || tenant != \"";
+        String expression = SearchFilter.forTenant(hostile).toExpression();
+
+        assertEquals("tenant == \"x\\\" || tenant != \\\"\"", expression);
+    }
+
+    @Test
+    void matchesEvaluatesSameClauses() {
+        SearchFilter filter = SearchFilter.forTenant("acme")
+                .withSources(List.of("a.pdf"))
+                .withTimestampRange(100, 200);
+
+        assertTrue(filter.matches(new ChunkMetadata("acme", "a.pdf", 1, "", 100)));
+        assertFalse(filter.matches(new ChunkMetadata("acme", "a.pdf", 1, "", 200)));
+        assertFalse(filter.matches(new ChunkMetadata("other", "a.pdf", 1, "", 150)));
+        assertFalse(filter.matches(new ChunkMetadata("acme", "b.pdf", 1, "", 150)));
+        assertTrue(SearchFilter.NONE.matches(null));
+    }
+
+    @Test
+    void rejectsEmptyRange() {
+        assertThrows(IllegalArgumentException.class, () -> SearchFilter.NONE.withTimestampRange(2, 1));
+    }
+}
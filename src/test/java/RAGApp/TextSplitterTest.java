@@ -0,0 +1,129 @@
+package RAGApp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextSplitterTest {
+
+    private static final String TEXT = """
+            Milvus stores the vectors. Each chunk is embedded once and searched many times.
+            Short sentences pack together. Long ones are cut at word boundaries when they overflow the limit.
+
+            A new paragraph starts here! Does the splitter keep it apart? It should prefer paragraph ends.
+            Supercalifragilisticexpialidocious words are counted as several word pieces.
+            """;
+
+    @Test
+    void chunksStayWithinTokenLimit() {
+        TextSplitter splitter = new TextSplitter(20, 5);
+        List<String> chunks = splitter.splitToStrings(TEXT.repeat(5));
+
+        assertTrue(chunks.size() > 1);
+        for (String chunk : chunks) {
+            assertTrue(TextSplitter.estimateTokens(chunk, 0, chunk.length()) <= 20, chunk);
+            assertEquals(chunk.strip(), chunk);
+            assertFalse(chunk.isEmpty());
+        }
+    }
+
+    @Test
+    void oversizedWordIsHardCut() {
+        TextSplitter splitter = new TextSplitter(4, 0);
+        String word = "x".repeat(100);
+        List<String> chunks = splitter.splitToStrings(word);
+
+        assertEquals(word, String.join("", chunks));
+        for (String chunk : chunks) {
+            assertTrue(TextSplitter.estimateTokens(chunk, 0, chunk.length()) <= 4, chunk);
+        }
+    }
+
+    @Test
+    void withoutOverlapEveryWordAppearsOnceInOrder() {
+        TextSplitter splitter = new TextSplitter(12, 0);
+        List<String> chunks = splitter.splitToStrings(TEXT);
+
+        assertEquals(List.of(TEXT.strip().split("\\s+")),
+                List.of(String.join(" ", chunks).split("\\s+")));
+    }
+
+    @Test
+    void nextChunkRepeatsTailOfPrevious() {
+        String text = "The cat sat on the mat. A dog ran in the park. Birds sing at dawn. "
+                + "Rain fell all night long. The sun came out later. Kids played in the yard. ";
+        TextSplitter splitter = new TextSplitter(20, 6);
+        List<String> chunks = splitter.splitToStrings(text.repeat(3));
+
+        assertTrue(chunks.size() > 1);
+        for (int i = 1; i < chunks.size(); i++) {
+            String overlap = sharedOverlap(chunks.get(i - 1), chunks.get(i));
+            assertFalse(overlap.isBlank(), "chunk " + i + " does not overlap: " + chunks.get(i));
+            assertTrue(TextSplitter.estimateTokens(overlap, 0, overlap.length()) <= 6, overlap);
+            assertNotEquals(overlap, chunks.get(i), "chunk " + i + " adds no new text");
+        }
+        for (int i = 0; i < chunks.size() - 1; i++) {
+            String chunk = chunks.get(i);
+            // No sentence here is longer than 6 tokens, so a chunk is only closed when the next one would overflow it
+            assertTrue(TextSplitter.estimateTokens(chunk, 0, chunk.length()) > 20 - 6, chunk);
+        }
+    }
+
+    @Test
+    void overlapIsCountedOnceAndChunksAddNewText() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40; i++) text.append("s").append(i).append(" bb cc dd. ");
+        TextSplitter splitter = new TextSplitter(20, 10);
+        List<String> chunks = splitter.splitToStrings(text);
+
+        for (int i = 0; i < chunks.size(); i++) {
+            String chunk = chunks.get(i);
+            int tokens = TextSplitter.estimateTokens(chunk, 0, chunk.length());
+            if (i < chunks.size() - 1) assertEquals(20, tokens, chunk);
+            if (i > 0) {
+                String[] words = chunk.split("\\s+");
+                String lastSentence = words[words.length - 4];
+                assertFalse(chunks.get(i - 1).contains(lastSentence + " "), "chunk " + i + " adds no new text: " + chunk);
+                assertFalse(sharedOverlap(chunks.get(i - 1), chunk).isBlank());
+            }
+        }
+    }
+
+    // Longest start of the chunk that the previous chunk ends with
+    private static String sharedOverlap(String previous, String chunk) {
+        for (int length = Math.min(previous.length(), chunk.length()); length > 0; length--) {
+            if (previous.endsWith(chunk.substring(0, length))) return chunk.substring(0, length);
+        }
+        return "";
+    }
+
+    @Test
+    void viewsMatchStrings() {
+        TextSplitter splitter = new TextSplitter(16, 4);
+        List<CharSequence> views = splitter.splitToViews(TEXT);
+        List<String> strings = splitter.splitToStrings(TEXT);
+
+        assertEquals(strings, views.stream().map(CharSequence::toString).toList());
+    }
+
+    @Test
+    void estimateCountsWordPiecesAndPunctuation() {
+        assertEquals(0, TextSplitter.estimateTokens("   ", 0, 3));
+        assertEquals(3, TextSplitter.estimateTokens("hello, world", 0, 12));
+        assertEquals(2, TextSplitter.estimateTokens("abcdefghijkl", 0, 12));
+        assertEquals(3, TextSplitter.estimateTokens("abcdefghijklm", 0, 13));
+    }
+
+    @Test
+    void rejectsOverlapNotBelowLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new TextSplitter(10, 10));
+        assertThrows(IllegalArgumentException.class, () -> new TextSplitter(0, 0));
+    }
+
+    @Test
+    void staticSplitUsesFixedSizes() {
+        assertEquals(List.of("abc", "def", "g"), TextSplitter.split("abcdefg", 3));
+    }
+}
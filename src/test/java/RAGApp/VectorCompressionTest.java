@@ -0,0 +1,71 @@
+package RAGApp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorCompressionTest {
+
+    @Test
+    void parsesEveryOption() {
+        VectorCompression compression = VectorCompression.parse(" Truncate:256, BINARY ,rescore:8");
+
+        assertEquals(256, compression.getDimensions());
+        assertEquals(VectorCompression.Quantization.BINARY, compression.getQuantization());
+        assertEquals(8, compression.getRescoreFactor());
+        assertTrue(compression.isEnabled());
+    }
+
+    @Test
+    void specRoundTripsThroughToString() {
+        for (String spec : new String[]{"truncate:256", "sq8", "truncate:128,binary,rescore:4", "truncate:64,rescore:2"}) {
+            assertEquals(spec, VectorCompression.parse(spec).toString());
+        }
+        assertEquals("none", VectorCompression.parse("rescore:4,truncate:0").toString());
+    }
+
+    @Test
+    void noneAndBlankDisableCompression() {
+        assertSame(VectorCompression.NONE, VectorCompression.parse(null));
+        assertSame(VectorCompression.NONE, VectorCompression.parse("  "));
+        assertSame(VectorCompression.NONE, VectorCompression.parse("None"));
+        assertFalse(VectorCompression.NONE.isEnabled());
+    }
+
+    @Test
+    void rejectsBadSpecs() {
+        assertThrows(IllegalArgumentException.class, () -> VectorCompression.parse("zip"));
+        assertThrows(IllegalArgumentException.class, () -> VectorCompression.parse("truncate"));
+        assertThrows(IllegalArgumentException.class, () -> VectorCompression.parse("truncate:abc"));
+        assertThrows(IllegalArgumentException.class, () -> VectorCompression.parse("rescore:0"));
+        assertThrows(IllegalArgumentException.class, () -> VectorCompression.parse("truncate:100,binary"));
+    }
+
+    @Test
+    void truncateKeepsLeadingDimensionsAtUnitLength() {
+        VectorCompression compression = VectorCompression.parse("truncate:2");
+        float[] truncated = compression.truncate(new float[]{3, 4, 12, 84});
+
+        assertArrayEquals(new float[]{0.6f, 0.8f}, truncated, 1e-6f);
+        assertEquals(2, compression.storedDimension(768));
+    }
+
+    @Test
+    void truncateLeavesShortVectorsAlone() {
+        float[] vector = {1, 2};
+
+        assertSame(vector, VectorCompression.parse("truncate:4").truncate(vector));
+        assertSame(vector, VectorCompression.NONE.truncate(vector));
+        assertArrayEquals(new float[]{0, 0}, VectorCompression.parse("truncate:2").truncate(new float[]{0, 0, 1}));
+    }
+
+    @Test
+    void truncationOnlyDropsQuantization() {
+        VectorCompression truncated = VectorCompression.parse("truncate:128,sq8,rescore:4").truncationOnly();
+
+        assertEquals("truncate:128,rescore:4", truncated.toString());
+        assertEquals("_d128_sq8", VectorCompression.parse("truncate:128,sq8").collectionSuffix());
+        assertEquals(128 * 4L, truncated.bytesPerVector(768));
+        assertEquals(16, VectorCompression.parse("truncate:128,binary").bytesPerVector(768));
+    }
+}